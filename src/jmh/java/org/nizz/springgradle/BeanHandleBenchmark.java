@@ -0,0 +1,90 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One lookup by name on the context (getBean + cast) versus the same lookup through a BeanHandle, on the context built
+ * from springApplicationContext.xml :
+ * 1. singleton : pointOne, looked up by its alias firstPoint
+ * 2. prototype : pointTwo - a new Point every time, so most of the time is spent creating it either way
+ * 3. dynamicBeans : the three lookups of Triangle.createDynamicBeans (two singletons, one prototype)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanHandleBenchmark {
+    ClassPathXmlApplicationContext context;
+    BeanHandle<Point> zeroPoint;
+    BeanHandle<Point> firstPoint;
+    BeanHandle<Point> pointTwo;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        QuietConsole.silence();
+        context = new ClassPathXmlApplicationContext("springApplicationContext.xml");
+        zeroPoint = BeanHandle.of(context, "zeroPoint", Point.class);
+        firstPoint = BeanHandle.of(context, "firstPoint", Point.class);
+        pointTwo = BeanHandle.of(context, "pointTwo", Point.class);
+        if (firstPoint.get() != context.getBean("pointOne") || pointTwo.get() == pointTwo.get()) {
+            throw new IllegalStateException("The handles do not return the beans of the context");
+        }
+    }
+
+    @Benchmark
+    public Point singletonGetBean() {
+        return (Point) context.getBean("firstPoint");
+    }
+
+    @Benchmark
+    public Point singletonHandle() {
+        return firstPoint.get();
+    }
+
+    @Benchmark
+    public Point prototypeGetBean() {
+        return (Point) context.getBean("pointTwo");
+    }
+
+    @Benchmark
+    public Point prototypeHandle() {
+        return pointTwo.get();
+    }
+
+    @Benchmark
+    public void dynamicBeansGetBean(Blackhole blackhole) {
+        blackhole.consume((Point) context.getBean("zeroPoint"));
+        blackhole.consume((Point) context.getBean("pointTwo"));
+        blackhole.consume((Point) context.getBean("pointOne"));
+    }
+
+    @Benchmark
+    public void dynamicBeansHandle(Blackhole blackhole) {
+        blackhole.consume(zeroPoint.get());
+        blackhole.consume(pointTwo.get());
+        blackhole.consume(firstPoint.get());
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+        QuietConsole.restore();
+    }
+}
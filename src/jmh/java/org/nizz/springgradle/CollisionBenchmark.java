@@ -0,0 +1,102 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One frame of collision detection over `shapes` shapes (half circles, half triangles, up to 32 units wide) : the
+ * scene grows with the number of shapes so that a shape overlaps about as many others whatever their number. Between
+ * two frames the circles move one unit right and the triangles one unit left (then back), so the order of the previous
+ * frame is almost sorted - the incremental case
+ *
+ * The score is in frames per second, the extra results in overlapping pairs and candidate pairs (boxes overlapping)
+ * per second. `threads` is the parallelism of the fork-join pool sweeping the shapes - 0 for one thread per core
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int shapes;
+
+    @Param({"1", "0"})
+    int threads;
+
+    CircleBatch circles;
+    TriangleBatch triangles;
+    ForkJoinPool pool;
+    CollisionDetector detector;
+    int step = 1;
+
+    @Setup
+    public void createScene() {
+        Random random = new Random(42);
+        int sceneSize = (int) Math.sqrt(shapes) * 16;
+        circles = new CircleBatch(shapes / 2);
+        triangles = new TriangleBatch(shapes - shapes / 2);
+        for (int i = 0; i < shapes / 2; i++) {
+            circles.add(random.nextInt(sceneSize), random.nextInt(sceneSize), 1 + random.nextInt(16));
+        }
+        for (int i = shapes / 2; i < shapes; i++) {
+            int x = random.nextInt(sceneSize);
+            int y = random.nextInt(sceneSize);
+            triangles.add(x, y, x + random.nextInt(33) - 16, y + random.nextInt(33) - 16,
+                    x + random.nextInt(33) - 16, y + random.nextInt(33) - 16);
+        }
+        pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        detector = new CollisionDetector(pool, 16384);
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PairCounter {
+        public long pairs;
+        public long candidates;
+    }
+
+    @Benchmark
+    public CollisionDetector.Pairs frame(PairCounter counter) {
+        move();
+        CollisionDetector.Pairs pairs = detector.detect(circles, triangles);
+        counter.pairs += pairs.size();
+        counter.candidates += pairs.getCandidates();
+        return pairs;
+    }
+
+    private void move() {
+        step = -step;
+        int[] centerX = circles.centerX;
+        for (int i = 0; i < circles.size; i++) {
+            centerX[i] += step;
+        }
+        int[] x1 = triangles.x1, x2 = triangles.x2, x3 = triangles.x3;
+        for (int i = 0; i < triangles.size; i++) {
+            x1[i] -= step;
+            x2[i] -= step;
+            x3[i] -= step;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/*
+ * Many threads drawing a scene while others move its shapes :
+ * 1. registry* : immutable shapes in a SceneRegistry - readers draw a snapshot, writers update single shapes
+ * 2. locked* : mutable Circles in a list guarded by synchronized, the only safe way to share them as they are
+ *
+ * Each read draws `window` consecutive shapes. The *Read / *Write benchmarks run on their own - scaling is measured
+ * with the thread count : ./gradlew jmh -PjmhIncludes=ConcurrentScene with jmh { threads = N }, or
+ * java -jar build/libs/*-jmh.jar ConcurrentScene -t 1 (then 2, 4, ... up to the number of cores)
+ *
+ * The *Mixed groups run 3 readers and 1 writer at the same time
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentSceneBenchmark {
+    private static final UnaryOperator<ShapeValue> MOVE = new UnaryOperator<ShapeValue>() {
+        @Override
+        public ShapeValue apply(ShapeValue shape) {
+            return shape.translate(1, 1);
+        }
+    };
+
+    @Param({"10000"})
+    int shapes;
+
+    @Param({"64"})
+    int window;
+
+    SceneRegistry registry;
+    List<Circle> lockedScene;
+
+    @State(Scope.Thread)
+    public static class Renderer {
+        ShapeRenderer.MemorySink sink;
+        ShapeRenderer renderer;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            sink = new ShapeRenderer.MemorySink();
+            renderer = new ShapeRenderer(sink);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createScenes() {
+        registry = new SceneRegistry();
+        lockedScene = new ArrayList<Circle>(shapes);
+        for (int i = 0; i < shapes; i++) {
+            ImmutableCircle circle = new ImmutableCircle(ImmutablePoint.of(i, i), 1 + i % 50);
+            registry.add(circle);
+            lockedScene.add(circle.toShape());
+        }
+    }
+
+    /* ===== REGISTRY ===== */
+
+    @Benchmark
+    public int registryRead(Renderer renderer) {
+        SceneRegistry.Snapshot snapshot = registry.snapshot();
+        int first = ThreadLocalRandom.current().nextInt(shapes - window);
+        for (int id = first; id < first + window; id++) {
+            snapshot.get(id).render(renderer.renderer);
+        }
+        renderer.renderer.flush();
+        renderer.sink.reset();
+        return first;
+    }
+
+    @Benchmark
+    public ShapeValue registryWrite() {
+        return registry.update(ThreadLocalRandom.current().nextInt(shapes), MOVE);
+    }
+
+    @Benchmark
+    @Group("registryMixed")
+    @GroupThreads(3)
+    public int registryMixedRead(Renderer renderer) {
+        return registryRead(renderer);
+    }
+
+    @Benchmark
+    @Group("registryMixed")
+    @GroupThreads(1)
+    public ShapeValue registryMixedWrite() {
+        return registryWrite();
+    }
+
+    /* ===== SYNCHRONIZED ===== */
+
+    @Benchmark
+    public int lockedRead(Renderer renderer) {
+        int first = ThreadLocalRandom.current().nextInt(shapes - window);
+        // The lock is held for the whole window : otherwise a circle could be drawn half moved
+        synchronized (lockedScene) {
+            for (int i = first; i < first + window; i++) {
+                lockedScene.get(i).render(renderer.renderer);
+            }
+        }
+        renderer.renderer.flush();
+        renderer.sink.reset();
+        return first;
+    }
+
+    @Benchmark
+    public Circle lockedWrite() {
+        int index = ThreadLocalRandom.current().nextInt(shapes);
+        synchronized (lockedScene) {
+            Circle circle = lockedScene.get(index);
+            Point center = circle.getCenter();
+            center.setX(center.getX() + 1);
+            center.setY(center.getY() + 1);
+            return circle;
+        }
+    }
+
+    @Benchmark
+    @Group("lockedMixed")
+    @GroupThreads(3)
+    public int lockedMixedRead(Renderer renderer) {
+        return lockedRead(renderer);
+    }
+
+    @Benchmark
+    @Group("lockedMixed")
+    @GroupThreads(1)
+    public Circle lockedMixedWrite() {
+        return lockedWrite();
+    }
+}
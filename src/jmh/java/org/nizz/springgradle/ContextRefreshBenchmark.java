@@ -0,0 +1,50 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Refreshing the context from springApplicationContext.xml once the JVM is warm : parsing the XML, scanning the
+ * classpath and creating the singletons again (ContextStartupBenchmark measures the very first, cold start-up)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextRefreshBenchmark {
+    ClassPathXmlApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void silenceConsole() {
+        QuietConsole.silence();
+        context = new ClassPathXmlApplicationContext(new String[] {"springApplicationContext.xml"}, false);
+    }
+
+    @Benchmark
+    public ClassPathXmlApplicationContext refresh() {
+        // refresh() destroys the singletons of the previous refresh before creating them again
+        context.refresh();
+        return context;
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        context.close();
+        QuietConsole.restore();
+    }
+}
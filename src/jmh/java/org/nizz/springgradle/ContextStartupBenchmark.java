@@ -0,0 +1,64 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cold start of the application context : every fork starts a fresh JVM and measures exactly one context start-up,
+ * so class loading, XML parsing and classpath scanning are all part of the number
+ *
+ * 1. xml : ClassPathXmlApplicationContext("springApplicationContext.xml")
+ * 2. precompiled : PrecompiledApplicationContext (bean definitions generated at build time)
+ * 3. parallel : ParallelClassPathXmlApplicationContext (independent singletons created in parallel)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ContextStartupBenchmark {
+    @Param({"xml", "precompiled", "parallel"})
+    String mode;
+
+    AbstractApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void silenceConsole() {
+        // The beans print a lot during start-up - keep it out of the measurement
+        QuietConsole.silence();
+    }
+
+    @Benchmark
+    public AbstractApplicationContext startContext() {
+        context = "precompiled".equals(mode) ? new PrecompiledApplicationContext()
+                : "parallel".equals(mode) ? new ParallelClassPathXmlApplicationContext("springApplicationContext.xml")
+                : new ClassPathXmlApplicationContext("springApplicationContext.xml");
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeContext() {
+        context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        QuietConsole.restore();
+    }
+}
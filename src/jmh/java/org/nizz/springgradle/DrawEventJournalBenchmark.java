@@ -0,0 +1,71 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Draw events appended to a DrawEventJournal, one at a time, with the records forced to the disk every
+ * groupCommitSize records (1 : a disk write per event) - a new journal directory for every iteration
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawEventJournalBenchmark {
+    @Param({"1", "64", "4096"})
+    int groupCommitSize;
+
+    Path directory;
+    DrawEventJournal journal;
+    DrawEvent circleEvent;
+    DrawEvent triangleEvent;
+    boolean circle;
+
+    @Setup(Level.Iteration)
+    public void openJournal() throws IOException {
+        directory = Files.createTempDirectory("draw-journal-benchmark");
+        journal = new DrawEventJournal(directory);
+        journal.setGroupCommitSize(groupCommitSize);
+        journal.setGroupCommitMillis(0);
+        journal.afterPropertiesSet();
+        Circle shape = new Circle(new Point(10, 20));
+        shape.setRadius(5);
+        circleEvent = new DrawEvent(shape);
+        Triangle triangle = new Triangle(new Point(0, 0), new Point(10, 0), new Point(0, 10));
+        triangle.setHeight(10);
+        triangleEvent = new DrawEvent(triangle);
+    }
+
+    @Benchmark
+    public void append() {
+        circle = !circle;
+        journal.onApplicationEvent(circle ? circleEvent : triangleEvent);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteJournal() throws IOException {
+        journal.close();
+        for (Path segment : DrawEventJournal.segments(directory)) {
+            Files.delete(segment);
+        }
+        Files.delete(directory);
+    }
+}
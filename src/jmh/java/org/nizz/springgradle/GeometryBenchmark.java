@@ -0,0 +1,118 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Area, perimeter and centroid of every triangle - besides the calls per second, the "shapes" counter reports the
+ * triangles processed per second
+ *
+ * 1. naive : one Triangle with three Points per triangle, metrics computed object by object
+ * 2. batch : GeometryEngine on a TriangleBatch, on the calling thread only
+ * 3. parallel : GeometryEngine on a TriangleBatch, split across the common fork-join pool
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int shapes;
+
+    List<Triangle> triangles;
+    TriangleBatch batch;
+    GeometryEngine sequential;
+    GeometryEngine parallel;
+    double[] areas;
+    double[] perimeters;
+    double[] centroidX;
+    double[] centroidY;
+
+    @Setup
+    public void createTriangles() {
+        Random random = new Random(42);
+        triangles = new ArrayList<Triangle>(shapes);
+        batch = new TriangleBatch(shapes);
+        for (int i = 0; i < shapes; i++) {
+            Triangle triangle = new Triangle(point(random), point(random), point(random));
+            triangles.add(triangle);
+            batch.add(triangle);
+        }
+        sequential = new GeometryEngine(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        parallel = new GeometryEngine(ForkJoinPool.commonPool(), 8192);
+        areas = new double[shapes];
+        perimeters = new double[shapes];
+        centroidX = new double[shapes];
+        centroidY = new double[shapes];
+    }
+
+    private static Point point(Random random) {
+        Point point = new Point();
+        point.setX(random.nextInt(2000) - 1000);
+        point.setY(random.nextInt(2000) - 1000);
+        return point;
+    }
+
+    // Reported by JMH as an extra "shapes" result, in triangles per second
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ShapeCounter {
+        public long shapes;
+    }
+
+    @Benchmark
+    public void naive(ShapeCounter counter, Blackhole blackhole) {
+        for (Triangle triangle : triangles) {
+            Point p1 = triangle.getP1();
+            Point p2 = triangle.getP2();
+            Point p3 = triangle.getP3();
+            double area = Math.abs((p2.getX() - p1.getX()) * (p3.getY() - p1.getY())
+                    - (p3.getX() - p1.getX()) * (p2.getY() - p1.getY())) / 2.0;
+            double perimeter = Math.hypot(p2.getX() - p1.getX(), p2.getY() - p1.getY())
+                    + Math.hypot(p3.getX() - p2.getX(), p3.getY() - p2.getY())
+                    + Math.hypot(p1.getX() - p3.getX(), p1.getY() - p3.getY());
+            double[] centroid = {(p1.getX() + p2.getX() + p3.getX()) / 3.0, (p1.getY() + p2.getY() + p3.getY()) / 3.0};
+            blackhole.consume(area);
+            blackhole.consume(perimeter);
+            blackhole.consume(centroid);
+        }
+        counter.shapes += shapes;
+    }
+
+    @Benchmark
+    public double[] batch(ShapeCounter counter) {
+        counter.shapes += shapes;
+        sequential.areas(batch, areas);
+        sequential.perimeters(batch, perimeters);
+        sequential.centroids(batch, centroidX, centroidY);
+        return centroidY;
+    }
+
+    @Benchmark
+    public double[] parallel(ShapeCounter counter) {
+        counter.shapes += shapes;
+        parallel.areas(batch, areas);
+        parallel.perimeters(batch, perimeters);
+        parallel.centroids(batch, centroidX, centroidY);
+        return centroidY;
+    }
+}
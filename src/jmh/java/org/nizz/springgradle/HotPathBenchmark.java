@@ -0,0 +1,82 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The calls Main makes over and over once the context is up, on the context built from springApplicationContext.xml
+ *
+ * 1. singletonGetBean / prototypeGetBean : getBean("pointOne") (singleton) versus getBean("pointTwo") (prototype)
+ * 2. createDynamicBeans : Triangle.createDynamicBeans() - two singleton and one prototype lookups
+ * 3. circleDraw : Circle.draw(), which prints and publishes a DrawEvent (delivered by AsyncDrawEventMulticaster)
+ * 4. circleBeanMessage : Circle.getBeanMessage(), the localized message of the circle
+ *
+ * Run with the gc profiler (configured in build.gradle) to see the bytes allocated per call. The beans print to the
+ * console - it is replaced with a stream that drops everything, so only the formatting is measured, not the terminal
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+    ClassPathXmlApplicationContext context;
+    Triangle triangle;
+    Circle circle;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        QuietConsole.silence();
+        context = new ClassPathXmlApplicationContext("springApplicationContext.xml");
+        triangle = (Triangle) context.getBean("triangle");
+        circle = (Circle) context.getBean("circle");
+    }
+
+    @Benchmark
+    public Object singletonGetBean() {
+        return context.getBean("pointOne");
+    }
+
+    @Benchmark
+    public Object prototypeGetBean() {
+        return context.getBean("pointTwo");
+    }
+
+    @Benchmark
+    public Triangle createDynamicBeans() {
+        triangle.createDynamicBeans();
+        return triangle;
+    }
+
+    @Benchmark
+    public Circle circleDraw() {
+        circle.draw();
+        return circle;
+    }
+
+    @Benchmark
+    public Circle circleBeanMessage() {
+        circle.getBeanMessage();
+        return circle;
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+        QuietConsole.restore();
+    }
+}
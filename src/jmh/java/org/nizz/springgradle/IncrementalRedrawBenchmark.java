@@ -0,0 +1,85 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One frame of a scene where `changedPercent` of the points moved since the previous frame :
+ * 1. redrawAll : every shape is rendered again, as with draw() on everything
+ * 2. redrawDirty : only the shapes using a moved point are rendered (check ShapeScene class)
+ *
+ * Every point is shared by two triangles, like zeroPoint in the XML file
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalRedrawBenchmark {
+    @Param({"10000"})
+    int shapes;
+
+    @Param({"1", "10", "100"})
+    int changedPercent;
+
+    ShapeScene scene;
+    List<Point> points;
+    ShapeRenderer renderer;
+    ShapeRenderer.MemorySink sink;
+    int frame;
+
+    @Setup(Level.Trial)
+    public void createScene() {
+        scene = new ShapeScene();
+        points = new ArrayList<Point>();
+        for (int i = 0; i <= shapes; i++) {
+            points.add(new Point(i, i));
+        }
+        for (int i = 0; i < shapes; i++) {
+            Triangle triangle = new Triangle(points.get(i), points.get(i + 1), new Point(i, 0));
+            triangle.setType("Scalene");
+            scene.add(triangle);
+        }
+        sink = new ShapeRenderer.MemorySink();
+        renderer = new ShapeRenderer(sink);
+        scene.markAllClean();
+    }
+
+    @Setup(Level.Invocation)
+    public void movePoints() {
+        sink.reset();
+        frame++;
+        int step = 100 / changedPercent;
+        for (int i = frame % step; i < points.size(); i += step) {
+            Point point = points.get(i);
+            point.setY(point.getY() + 1);
+        }
+    }
+
+    @Benchmark
+    public int redrawAll() {
+        renderer.drawAll(scene.getShapes());
+        scene.markAllClean();
+        return sink.size();
+    }
+
+    @Benchmark
+    public int redrawDirty() {
+        return scene.redrawDirty(renderer);
+    }
+}
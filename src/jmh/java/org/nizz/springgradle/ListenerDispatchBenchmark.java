@@ -0,0 +1,124 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Publish cost of one DrawEvent as the number of registered listeners grows
+ *
+ * One listener in four is interested in DrawEvents, the rest listen to context events:
+ * 1. rawFanOut : every listener is a raw ApplicationListener that gets the event and checks the type itself
+ * 2. springTyped : typed listeners behind Spring's SimpleApplicationEventMulticaster
+ * 3. dispatchTable : typed listeners looked up through EventDispatchTable
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerDispatchBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    int listenerCount;
+
+    SimpleApplicationEventMulticaster rawFanOut;
+    SimpleApplicationEventMulticaster springTyped;
+    EventDispatchTable dispatchTable;
+    DrawEvent drawEvent;
+
+    @Setup
+    public void setUp() {
+        rawFanOut = new SimpleApplicationEventMulticaster();
+        springTyped = new SimpleApplicationEventMulticaster();
+        List<ApplicationListener> typedListeners = new ArrayList<ApplicationListener>();
+        for (int i = 0; i < listenerCount; i++) {
+            rawFanOut.addApplicationListener(new RawListener(i % 4 == 0 ? DrawEvent.class
+                    : i % 4 == 1 ? ContextRefreshedEvent.class : ContextClosedEvent.class));
+            ApplicationListener typed = i % 4 == 0 ? new DrawListener()
+                    : i % 4 == 1 ? new RefreshedListener() : new ClosedListener();
+            springTyped.addApplicationListener(typed);
+            typedListeners.add(typed);
+        }
+        dispatchTable = new EventDispatchTable(typedListeners);
+        drawEvent = new DrawEvent(new Circle(new Point(1, 2)));
+    }
+
+    @Benchmark
+    public void rawFanOut() {
+        rawFanOut.multicastEvent(drawEvent);
+    }
+
+    @Benchmark
+    public void springTyped() {
+        springTyped.multicastEvent(drawEvent);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void dispatchTable() {
+        for (ApplicationListener listener : dispatchTable.listenersFor(drawEvent.getClass())) {
+            listener.onApplicationEvent(drawEvent);
+        }
+    }
+
+    static class RawListener implements ApplicationListener {
+        final Class<?> interestedIn;
+        long handled;
+
+        RawListener(Class<?> interestedIn) {
+            this.interestedIn = interestedIn;
+        }
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            if (interestedIn.isInstance(event)) {
+                handled++;
+            }
+        }
+    }
+
+    static class DrawListener implements ApplicationListener<DrawEvent> {
+        long handled;
+
+        @Override
+        public void onApplicationEvent(DrawEvent event) {
+            handled++;
+        }
+    }
+
+    static class RefreshedListener implements ApplicationListener<ContextRefreshedEvent> {
+        long handled;
+
+        @Override
+        public void onApplicationEvent(ContextRefreshedEvent event) {
+            handled++;
+        }
+    }
+
+    static class ClosedListener implements ApplicationListener<ContextClosedEvent> {
+        long handled;
+
+        @Override
+        public void onApplicationEvent(ContextClosedEvent event) {
+            handled++;
+        }
+    }
+}
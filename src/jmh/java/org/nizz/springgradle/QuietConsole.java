@@ -0,0 +1,46 @@
+package org.nizz.springgradle;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/*
+ * The beans print to the console (lifecycle callbacks, draw, etc.) - the benchmarks call silence() in their setup so
+ * that only the formatting is measured, not the terminal, and restore() in their tear down
+ *
+ * silence() replaces System.out with a stream that drops everything and turns off LifecycleLog. restore() puts back
+ * the console and the LifecycleLog setting that were there before - calling silence() twice keeps the first ones
+ * */
+final class QuietConsole {
+    private static PrintStream console;
+    private static boolean lifecycleLog;
+
+    private QuietConsole() {
+    }
+
+    static synchronized void silence() {
+        if (console != null) {
+            return;
+        }
+        console = System.out;
+        lifecycleLog = LifecycleLog.isEnabled();
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+            }
+        }));
+        LifecycleLog.setEnabled(false);
+    }
+
+    static synchronized void restore() {
+        if (console == null) {
+            return;
+        }
+        System.setOut(console);
+        LifecycleLog.setEnabled(lifecycleLog);
+        console = null;
+    }
+}
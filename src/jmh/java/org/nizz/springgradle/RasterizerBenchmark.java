@@ -0,0 +1,88 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One frame of `shapes` shapes (half circles, half triangles, spread over a 4096 x 4096 scene) rasterized into a
+ * `size` x `size` framebuffer through a viewport : the score is in frames per second, and the extra "pixels" result in
+ * shape pixels filled per second
+ *
+ * `threads` is the parallelism of the fork-join pool filling the tiles - 0 for one thread per core
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterizerBenchmark {
+    private static final int SCENE_SIZE = 4096;
+
+    @Param({"10000", "100000", "1000000"})
+    int shapes;
+
+    @Param({"1024"})
+    int size;
+
+    @Param({"1", "0"})
+    int threads;
+
+    CircleBatch circles;
+    TriangleBatch triangles;
+    Framebuffer framebuffer;
+    ForkJoinPool pool;
+    Rasterizer rasterizer;
+
+    @Setup
+    public void createScene() {
+        Random random = new Random(42);
+        circles = new CircleBatch(shapes / 2);
+        triangles = new TriangleBatch(shapes - shapes / 2);
+        for (int i = 0; i < shapes / 2; i++) {
+            circles.add(random.nextInt(SCENE_SIZE), random.nextInt(SCENE_SIZE), 1 + random.nextInt(16));
+        }
+        for (int i = shapes / 2; i < shapes; i++) {
+            int x = random.nextInt(SCENE_SIZE);
+            int y = random.nextInt(SCENE_SIZE);
+            triangles.add(x, y, x + random.nextInt(33) - 16, y + random.nextInt(33) - 16,
+                    x + random.nextInt(33) - 16, y + random.nextInt(33) - 16);
+        }
+        framebuffer = new Framebuffer(size, size);
+        pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        rasterizer = new Rasterizer(pool, 64);
+        rasterizer.setViewport(0, 0, SCENE_SIZE - 1, SCENE_SIZE - 1, size, size);
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PixelCounter {
+        public long pixels;
+    }
+
+    @Benchmark
+    public Framebuffer frame(PixelCounter counter) {
+        counter.pixels += rasterizer.render(circles, triangles, framebuffer);
+        return framebuffer;
+    }
+}
@@ -0,0 +1,283 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Writing and reloading a scene of circles and triangles (with types, heights and angles) :
+ * 1. snapshot : SceneSnapshotWriter / MappedSceneSnapshot
+ * 2. serialization : the same values written with an ObjectOutputStream, one object per shape (Circle and Triangle
+ *    are not Serializable - they hold their ApplicationContext - so plain copies of their values are used)
+ *
+ * reload*Scan opens the file and reads every coordinate, reload*Shapes builds the Circle and Triangle objects. The
+ * setup checks that the shapes read back from the snapshot are equal to the ones written (the round trip), and
+ * every result reports the size of both files in megabytes
+ *
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SceneSnapshotBenchmark {
+    private static final String[] TYPES = {"Equilateral", "Isosceles", "Scalene"};
+
+    @Param({"100000", "1000000"})
+    int shapes;
+
+    List<Shape> scene;
+    Path snapshotFile;
+    Path serializedFile;
+    // The write benchmarks write new files : replacing a large file costs more than writing it (the old one has to
+    // be freed by the file system)
+    Path writtenSnapshot;
+    Path writtenSerialized;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FileSizes {
+        public double snapshotMB;
+        public double serializedMB;
+    }
+
+    static class SerializedCircle implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int centerX;
+        int centerY;
+        int radius;
+    }
+
+    static class SerializedTriangle implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int x1, y1, x2, y2, x3, y3;
+        int height;
+        String type;
+        int[] angles;
+    }
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        Random random = new Random(42);
+        scene = new ArrayList<Shape>(shapes);
+        for (int i = 0; i < shapes; i++) {
+            int x = random.nextInt(100000);
+            int y = random.nextInt(100000);
+            if (i % 2 == 0) {
+                Circle circle = new Circle(new Point(x, y));
+                circle.setRadius(1 + random.nextInt(50));
+                scene.add(circle);
+            } else {
+                Triangle triangle = new Triangle(new Point(x, y), new Point(x + random.nextInt(50), y),
+                        new Point(x, y + random.nextInt(50)));
+                triangle.setType(TYPES[random.nextInt(TYPES.length)]);
+                triangle.setHeight(random.nextInt(50));
+                triangle.setAngleValues(new int[] {90, 45, 45});
+                scene.add(triangle);
+            }
+        }
+        snapshotFile = Files.createTempFile("scene", ".snapshot");
+        serializedFile = Files.createTempFile("scene", ".ser");
+        SceneSnapshotWriter.write(snapshotFile, scene);
+        writeSerialized(serializedFile);
+        checkRoundTrip(scene, MappedSceneSnapshot.open(snapshotFile).toShapes());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(serializedFile);
+    }
+
+    @Setup(Level.Invocation)
+    public void createWrittenFiles() throws IOException {
+        writtenSnapshot = Files.createTempFile("scene", ".snapshot");
+        writtenSerialized = Files.createTempFile("scene", ".ser");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteWrittenFiles() throws IOException {
+        Files.deleteIfExists(writtenSnapshot);
+        Files.deleteIfExists(writtenSerialized);
+    }
+
+    private static void checkRoundTrip(List<Shape> written, List<Shape> read) {
+        // The snapshot keeps the circles first, then the triangles
+        List<Shape> expected = new ArrayList<Shape>(written.size());
+        for (Shape shape : written) {
+            if (shape instanceof Circle) {
+                expected.add(shape);
+            }
+        }
+        for (Shape shape : written) {
+            if (shape instanceof Triangle) {
+                expected.add(shape);
+            }
+        }
+        if (expected.size() != read.size()) {
+            throw new IllegalStateException("Round trip: " + read.size() + " shapes instead of " + expected.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (!describe(expected.get(i)).equals(describe(read.get(i)))) {
+                throw new IllegalStateException("Round trip: shape " + i + " is " + describe(read.get(i))
+                        + " instead of " + describe(expected.get(i)));
+            }
+        }
+    }
+
+    private static String describe(Shape shape) {
+        if (shape instanceof Circle) {
+            Circle circle = (Circle) shape;
+            return "circle " + circle.getCenter().getCoordinates() + " " + circle.getRadius();
+        }
+        Triangle triangle = (Triangle) shape;
+        return "triangle " + triangle.getP1().getCoordinates() + triangle.getP2().getCoordinates()
+                + triangle.getP3().getCoordinates() + " " + triangle.getType() + " " + triangle.getHeight() + " "
+                + Arrays.toString(triangle.getAngleValues());
+    }
+
+    @Benchmark
+    public long writeSnapshot() throws IOException {
+        return SceneSnapshotWriter.write(writtenSnapshot, scene);
+    }
+
+    @Benchmark
+    public long writeSerialized() throws IOException {
+        return writeSerialized(writtenSerialized);
+    }
+
+    private long writeSerialized(Path file) throws IOException {
+        List<Object> values = new ArrayList<Object>(scene.size());
+        for (Shape shape : scene) {
+            if (shape instanceof Circle) {
+                Circle circle = (Circle) shape;
+                SerializedCircle serialized = new SerializedCircle();
+                serialized.centerX = circle.getCenter().getX();
+                serialized.centerY = circle.getCenter().getY();
+                serialized.radius = circle.getRadius();
+                values.add(serialized);
+            } else {
+                Triangle triangle = (Triangle) shape;
+                SerializedTriangle serialized = new SerializedTriangle();
+                serialized.x1 = triangle.getP1().getX();
+                serialized.y1 = triangle.getP1().getY();
+                serialized.x2 = triangle.getP2().getX();
+                serialized.y2 = triangle.getP2().getY();
+                serialized.x3 = triangle.getP3().getX();
+                serialized.y3 = triangle.getP3().getY();
+                serialized.height = triangle.getHeight();
+                serialized.type = triangle.getType();
+                serialized.angles = triangle.getAngleValues();
+                values.add(serialized);
+            }
+        }
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file), 64 * 1024))) {
+            out.writeObject(values);
+        }
+        return Files.size(file);
+    }
+
+    @Benchmark
+    public long reloadSnapshotScan(FileSizes sizes) throws IOException {
+        MappedSceneSnapshot snapshot = MappedSceneSnapshot.open(snapshotFile);
+        long sum = 0;
+        for (int i = 0; i < snapshot.circleCount(); i++) {
+            sum += snapshot.circleCenterX(i) + snapshot.circleCenterY(i) + snapshot.circleRadius(i);
+        }
+        for (int i = 0; i < snapshot.triangleCount(); i++) {
+            for (int vertex = 0; vertex < 3; vertex++) {
+                sum += snapshot.triangleX(i, vertex) + snapshot.triangleY(i, vertex);
+            }
+            sum += snapshot.triangleHeight(i) + snapshot.triangleAngle(i, 0);
+        }
+        report(sizes);
+        return sum;
+    }
+
+    @Benchmark
+    public List<Shape> reloadSnapshotShapes(FileSizes sizes) throws IOException {
+        report(sizes);
+        return MappedSceneSnapshot.open(snapshotFile).toShapes();
+    }
+
+    @Benchmark
+    public long reloadSerializedScan(FileSizes sizes) throws IOException, ClassNotFoundException {
+        long sum = 0;
+        for (Object value : readSerialized()) {
+            if (value instanceof SerializedCircle) {
+                SerializedCircle circle = (SerializedCircle) value;
+                sum += circle.centerX + circle.centerY + circle.radius;
+            } else {
+                SerializedTriangle triangle = (SerializedTriangle) value;
+                sum += triangle.x1 + triangle.y1 + triangle.x2 + triangle.y2 + triangle.x3 + triangle.y3
+                        + triangle.height + triangle.angles[0];
+            }
+        }
+        report(sizes);
+        return sum;
+    }
+
+    @Benchmark
+    public List<Shape> reloadSerializedShapes(FileSizes sizes) throws IOException, ClassNotFoundException {
+        List<Object> values = readSerialized();
+        List<Shape> shapes = new ArrayList<Shape>(values.size());
+        for (Object value : values) {
+            if (value instanceof SerializedCircle) {
+                SerializedCircle serialized = (SerializedCircle) value;
+                Circle circle = new Circle(new Point(serialized.centerX, serialized.centerY));
+                circle.setRadius(serialized.radius);
+                shapes.add(circle);
+            } else {
+                SerializedTriangle serialized = (SerializedTriangle) value;
+                Triangle triangle = new Triangle(new Point(serialized.x1, serialized.y1),
+                        new Point(serialized.x2, serialized.y2), new Point(serialized.x3, serialized.y3));
+                triangle.setType(serialized.type);
+                triangle.setHeight(serialized.height);
+                triangle.setAngleValues(serialized.angles);
+                shapes.add(triangle);
+            }
+        }
+        report(sizes);
+        return shapes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> readSerialized() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                Files.newInputStream(serializedFile), 64 * 1024))) {
+            return (List<Object>) in.readObject();
+        }
+    }
+
+    private void report(FileSizes sizes) throws IOException {
+        sizes.snapshotMB = Files.size(snapshotFile) / (1024.0 * 1024.0);
+        sizes.serializedMB = Files.size(serializedFile) / (1024.0 * 1024.0);
+    }
+}
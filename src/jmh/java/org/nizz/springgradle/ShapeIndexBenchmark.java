@@ -0,0 +1,135 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Latency of one query as the scene grows : half circles, half triangles, spread over a square whose area grows with
+ * the number of shapes (same density at every size), every shape a few dozen units wide
+ *
+ * 1. index* : ShapeIndex with 64 x 64 cells
+ * 2. linear* : checking every shape with ShapeBounds, like a scan over getBean results
+ * 3. move : setCenter on an indexed circle, which moves it to its new cells
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeIndexBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "10000", "100000", "500000"})
+    int shapes;
+
+    List<Shape> scene;
+    ShapeIndex index;
+    int[] queryX;
+    int[] queryY;
+    Circle[] circles;
+    Point[] centers;
+    int next;
+    List<Shape> found = new ArrayList<Shape>();
+
+    @Setup
+    public void createScene() {
+        Random random = new Random(42);
+        int world = (int) Math.sqrt(shapes * 2000.0);
+        scene = new ArrayList<Shape>(shapes);
+        List<Circle> circleList = new ArrayList<Circle>();
+        for (int i = 0; i < shapes; i++) {
+            int x = random.nextInt(world);
+            int y = random.nextInt(world);
+            if (i % 2 == 0) {
+                Circle circle = new Circle(point(x, y));
+                circle.setRadius(5 + random.nextInt(20));
+                scene.add(circle);
+                circleList.add(circle);
+            } else {
+                scene.add(new Triangle(point(x, y), point(x + random.nextInt(40), y + random.nextInt(10)),
+                        point(x + random.nextInt(20), y + 10 + random.nextInt(30))));
+            }
+        }
+        index = new ShapeIndex(64);
+        for (Shape shape : scene) {
+            index.add(shape);
+        }
+        queryX = new int[QUERIES];
+        queryY = new int[QUERIES];
+        centers = new Point[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryX[i] = random.nextInt(world);
+            queryY[i] = random.nextInt(world);
+            centers[i] = point(queryX[i], queryY[i]);
+        }
+        circles = circleList.toArray(new Circle[circleList.size()]);
+    }
+
+    private static Point point(int x, int y) {
+        Point point = new Point();
+        point.setX(x);
+        point.setY(y);
+        return point;
+    }
+
+    @Benchmark
+    public int indexPoint() {
+        int i = next++ & (QUERIES - 1);
+        found.clear();
+        return index.shapesAt(queryX[i], queryY[i], found);
+    }
+
+    @Benchmark
+    public int linearPoint() {
+        int i = next++ & (QUERIES - 1);
+        int hits = 0;
+        for (Shape shape : scene) {
+            if (ShapeBounds.contains(shape, queryX[i], queryY[i])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int indexRectangle() {
+        int i = next++ & (QUERIES - 1);
+        found.clear();
+        return index.shapesIntersecting(queryX[i], queryY[i], queryX[i] + 200, queryY[i] + 200, found);
+    }
+
+    @Benchmark
+    public int linearRectangle() {
+        int i = next++ & (QUERIES - 1);
+        int hits = 0;
+        for (Shape shape : scene) {
+            if (ShapeBounds.intersects(shape, queryX[i], queryY[i], queryX[i] + 200, queryY[i] + 200)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public Circle move() {
+        int i = next++;
+        Circle circle = circles[i % circles.length];
+        circle.setCenter(centers[i & (QUERIES - 1)]);
+        return circle;
+    }
+}
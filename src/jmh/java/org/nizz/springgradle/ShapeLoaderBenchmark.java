@@ -0,0 +1,109 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Loading a whole shape file into a Scene through SceneFactoryBean, in a fresh JVM every time : the file is written
+ * once per fork (half circles, half triangles), then loaded once
+ *
+ * Besides the load time, two extra results are reported in megabytes :
+ * 1. peakHeapMB : the highest heap usage during the load (sum of the peaks of the heap memory pools)
+ * 2. retainedHeapMB : heap still used by the loaded scene after a full GC
+ *
+ * 10 million shapes : ./gradlew jmh -PjmhIncludes=ShapeLoader (the files take about 300MB in the temp directory)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 3, jvmArgsAppend = "-Xmx4g")
+public class ShapeLoaderBenchmark {
+    @Param({"10000000"})
+    int shapes;
+
+    @Param({"csv", "binary"})
+    String format;
+
+    Path file;
+    Scene scene;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapUsage {
+        public double peakHeapMB;
+        public double retainedHeapMB;
+    }
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("shapes", "csv".equals(format) ? ".csv" : ".shp");
+        Random random = new Random(42);
+        try (ShapeFileWriter writer = "csv".equals(format) ? ShapeFileWriter.csv(file) : ShapeFileWriter.binary(file)) {
+            for (int i = 0; i < shapes; i++) {
+                int x = random.nextInt(100000);
+                int y = random.nextInt(100000);
+                if (i % 2 == 0) {
+                    writer.circle(x, y, 1 + random.nextInt(50));
+                } else {
+                    writer.triangle(x, y, x + random.nextInt(50), y, x, y + random.nextInt(50));
+                }
+            }
+        }
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    @Benchmark
+    public Scene load(HeapUsage heapUsage) throws IOException {
+        SceneFactoryBean factoryBean = new SceneFactoryBean();
+        factoryBean.setLocation(new FileSystemResource(file.toFile()));
+        scene = factoryBean.getObject();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.gc();
+        long retained = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                retained += pool.getUsage().getUsed();
+            }
+        }
+        heapUsage.peakHeapMB = peak / (1024.0 * 1024.0);
+        heapUsage.retainedHeapMB = retained / (1024.0 * 1024.0);
+        return scene;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,85 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Refresh time as the number of bean definitions grows : every group of four definitions is three Points and a
+ * Triangle referring to them, so the Points of a group are independent from each other and from the other groups
+ *
+ * 1. serial : DefaultListableBeanFactory, singletons created one by one
+ * 2. parallel : ParallelBeanFactory, independent singletons created on a fork-join pool
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingletonPreInstantiationBenchmark {
+    @Param({"100", "1000", "10000"})
+    int definitions;
+
+    @Param({"serial", "parallel"})
+    String factory;
+
+    GenericApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void silenceConsole() {
+        // Triangle prints its lifecycle callbacks - keep it out of the measurement
+        QuietConsole.silence();
+    }
+
+    @Benchmark
+    public GenericApplicationContext refresh() {
+        DefaultListableBeanFactory beanFactory = "parallel".equals(factory) ? new ParallelBeanFactory()
+                : new DefaultListableBeanFactory();
+        for (int group = 0; group < definitions / 4; group++) {
+            for (int i = 1; i <= 3; i++) {
+                GenericBeanDefinition point = new GenericBeanDefinition();
+                point.setBeanClass(Point.class);
+                point.getPropertyValues().addPropertyValue("x", group);
+                point.getPropertyValues().addPropertyValue("y", i);
+                beanFactory.registerBeanDefinition("point-" + group + "-" + i, point);
+            }
+            GenericBeanDefinition triangle = new GenericBeanDefinition();
+            triangle.setBeanClass(Triangle.class);
+            for (int i = 1; i <= 3; i++) {
+                triangle.getPropertyValues().addPropertyValue("p" + i,
+                        new RuntimeBeanReference("point-" + group + "-" + i));
+            }
+            beanFactory.registerBeanDefinition("triangle-" + group, triangle);
+        }
+        context = new GenericApplicationContext(beanFactory);
+        context.refresh();
+        return context;
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeContext() {
+        context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        QuietConsole.restore();
+    }
+}
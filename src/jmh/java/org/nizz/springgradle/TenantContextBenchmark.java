@@ -0,0 +1,80 @@
+package org.nizz.springgradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Creation of 1, 100 and 1000 tenant contexts, all kept open until the end of the iteration (check TenantContextFactory
+ * class) :
+ * 1. shared : children of the shared parent context, from the bean definitions of the tenant file parsed once
+ * 2. standalone : every tenant parses sharedGeometryContext.xml and tenantApplicationContext.xml on its own
+ *
+ * The shared parent is created once per trial, outside of the measurement. For the memory allocated, run with
+ * -prof gc - the heap the contexts keep is printed by ./gradlew tenantFootprint
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TenantContextBenchmark {
+    @Param({"1", "100", "1000"})
+    int tenants;
+
+    @Param({"shared", "standalone"})
+    String layout;
+
+    TenantContextFactory factory;
+    List<ConfigurableApplicationContext> contexts;
+
+    @Setup(Level.Trial)
+    public void createFactory() {
+        QuietConsole.silence();
+        factory = new TenantContextFactory();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearContexts() {
+        contexts = new ArrayList<ConfigurableApplicationContext>(tenants);
+    }
+
+    @Benchmark
+    public List<ConfigurableApplicationContext> createTenants() {
+        boolean shared = "shared".equals(layout);
+        for (int i = 0; i < tenants; i++) {
+            String tenantName = "tenant-" + i;
+            contexts.add(shared ? factory.createTenant(tenantName) : factory.createStandaloneTenant(tenantName));
+        }
+        return contexts;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeContexts() {
+        for (ConfigurableApplicationContext context : contexts) {
+            context.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeFactory() {
+        factory.close();
+        QuietConsole.restore();
+    }
+}
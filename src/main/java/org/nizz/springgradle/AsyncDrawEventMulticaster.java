@@ -0,0 +1,393 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.AbstractApplicationEventMulticaster;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * =================================
+ *   APPLICATION EVENT MULTICASTER
+ * =================================
+ * The multicaster is what the Application Context uses to hand a published event to the listeners. By default,
+ * Spring uses SimpleApplicationEventMulticaster, which calls every listener on the publishing thread - thus,
+ * Circle.draw() has to wait for CustomEventListener to finish before it returns.
+ *
+ * If a bean named "applicationEventMulticaster" is present, the Application Context uses it instead of the default
+ * one (check springApplicationContext.xml).
+ *
+ * This multicaster puts DrawEvents into a bounded ring buffer and returns immediately - a small pool of worker
+ * threads takes the events out of the buffer and delivers them to the listeners. Every other event (context
+ * refreshed, context closed, etc.) is still delivered synchronously, since the context relies on that ordering.
+ *
+ * When the buffer is full, the backpressure policy decides what happens to a new DrawEvent:
+ * 1. BLOCK : the publisher waits until a worker frees a slot
+ * 2. DROP : the new event is discarded
+ * 3. COALESCE : if an event for the same shape is still waiting in the buffer, it is replaced by the new one,
+ * otherwise the publisher waits like in BLOCK
+ *
+ * With batchSize > 1, a worker takes up to batchSize events at once - DrawEventBatchListeners get the whole batch
+ * in one call, other listeners get the events one by one.
+ *
+ * Listeners are looked up through an EventDispatchTable (event class -> interested listeners) that is built once
+ * when the context is refreshed - publishing a DrawEvent only touches the listeners typed for DrawEvent. The table is
+ * rebuilt whenever a listener is added or removed after the refresh
+ *
+ * A listener that throws does not keep the other listeners from getting the event (or the batch) : the failure is
+ * reported on stderr, and the event is counted as failed instead of delivered. Once the multicaster is destroyed,
+ * DrawEvents are delivered on the publishing thread, like every other event
+ *
+ * NOTE: With more than one worker, listeners can see DrawEvents in a different order than they were published
+ *
+ * */
+public class AsyncDrawEventMulticaster extends AbstractApplicationEventMulticaster
+        implements InitializingBean, DisposableBean {
+
+    public enum Backpressure {
+        BLOCK, DROP, COALESCE
+    }
+
+    private int capacity = 1024;
+    private int workers = 1;
+    private int batchSize = 1;
+    private Backpressure backpressure = Backpressure.BLOCK;
+
+    private DrawEvent[] ring;
+    private long[] enqueuedAt;
+    private int head;
+    private int tail;
+    private int count;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private Thread[] workerThreads;
+    private volatile boolean running;
+    private volatile boolean refreshed;
+    private volatile EventDispatchTable dispatchTable;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private volatile long lastLagNanos;
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setBackpressure(Backpressure backpressure) {
+        this.backpressure = backpressure;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (capacity < 1 || workers < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("capacity, workers and batchSize must all be positive");
+        }
+        ring = new DrawEvent[capacity];
+        enqueuedAt = new long[capacity];
+        running = true;
+        workerThreads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            // Anonymous class instead of a lambda - the ASM version used by component-scan in Spring 3.0 cannot
+            // read class files that contain invokedynamic
+            workerThreads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runWorker();
+                }
+            }, "draw-event-worker-" + (i + 1));
+            workerThreads[i].setDaemon(true);
+            workerThreads[i].start();
+        }
+    }
+
+    @Override
+    public void addApplicationListener(ApplicationListener listener) {
+        super.addApplicationListener(listener);
+        rebuildDispatchTable();
+    }
+
+    @Override
+    public void addApplicationListenerBean(String listenerBeanName) {
+        super.addApplicationListenerBean(listenerBeanName);
+        rebuildDispatchTable();
+    }
+
+    @Override
+    public void removeApplicationListener(ApplicationListener listener) {
+        super.removeApplicationListener(listener);
+        rebuildDispatchTable();
+    }
+
+    @Override
+    public void removeApplicationListenerBean(String listenerBeanName) {
+        super.removeApplicationListenerBean(listenerBeanName);
+        rebuildDispatchTable();
+    }
+
+    @Override
+    public void removeAllListeners() {
+        super.removeAllListeners();
+        rebuildDispatchTable();
+    }
+
+    // Before the refresh, listener beans may not exist yet - the table is left empty and Spring's own lookup is used
+    private void rebuildDispatchTable() {
+        dispatchTable = refreshed ? new EventDispatchTable(getApplicationListeners()) : null;
+    }
+
+    private ApplicationListener[] listenersFor(ApplicationEvent event) {
+        EventDispatchTable table = dispatchTable;
+        if (table != null) {
+            return table.listenersFor(event.getClass());
+        }
+        Collection<ApplicationListener> listeners = getApplicationListeners(event);
+        return listeners.toArray(new ApplicationListener[listeners.size()]);
+    }
+
+    @Override
+    public void multicastEvent(ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent) {
+            refreshed = true;
+            rebuildDispatchTable();
+        }
+        if (!(event instanceof DrawEvent)) {
+            invokeListeners(event);
+            return;
+        }
+        publishedCount.incrementAndGet();
+        if (!enqueue((DrawEvent) event)) {
+            // Not running (yet or any more) : delivered on the publishing thread
+            deliverAndCount(Collections.singletonList((DrawEvent) event), new boolean[1]);
+        }
+    }
+
+    // false if the multicaster is not running - checked under the lock, so that no event is left in the buffer after
+    // the workers are gone
+    private boolean enqueue(DrawEvent event) {
+        lock.lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            while (count == ring.length) {
+                if (backpressure == Backpressure.DROP) {
+                    droppedCount.incrementAndGet();
+                    return true;
+                }
+                if (backpressure == Backpressure.COALESCE && coalesce(event)) {
+                    return true;
+                }
+                try {
+                    notFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return true;
+                }
+                if (!running) {
+                    return false;
+                }
+            }
+            ring[tail] = event;
+            enqueuedAt[tail] = System.nanoTime();
+            tail = (tail + 1) % ring.length;
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replaces a waiting event for the same shape - the replaced event keeps its place (and its enqueue time)
+    private boolean coalesce(DrawEvent event) {
+        for (int i = 0, slot = head; i < count; i++, slot = (slot + 1) % ring.length) {
+            if (ring[slot].getSource() == event.getSource()) {
+                ring[slot] = event;
+                coalescedCount.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWorker() {
+        List<DrawEvent> batch = new ArrayList<DrawEvent>(batchSize);
+        boolean[] failed = new boolean[batchSize];
+        while (true) {
+            lock.lock();
+            try {
+                while (count == 0) {
+                    if (!running) {
+                        return;
+                    }
+                    notEmpty.await();
+                }
+                long now = System.nanoTime();
+                int taken = Math.min(count, batchSize);
+                for (int i = 0; i < taken; i++) {
+                    batch.add(ring[head]);
+                    recordLag(now - enqueuedAt[head]);
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                }
+                count -= taken;
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            deliverAndCount(batch, failed);
+            batch.clear();
+        }
+    }
+
+    private void recordLag(long lagNanos) {
+        lastLagNanos = lagNanos;
+        long max;
+        while (lagNanos > (max = maxLagNanos.get())) {
+            if (maxLagNanos.compareAndSet(max, lagNanos)) {
+                break;
+            }
+        }
+    }
+
+    // Every event of the batch is counted once : delivered if every listener handled it, failed otherwise
+    private void deliverAndCount(List<DrawEvent> batch, boolean[] failed) {
+        int failures = deliver(batch, failed);
+        failedCount.addAndGet(failures);
+        deliveredCount.addAndGet(batch.size() - failures);
+    }
+
+    // Every listener gets the batch, whatever the listeners before it did - returns the number of events that at least
+    // one listener failed on (marked in failed)
+    @SuppressWarnings("unchecked")
+    private int deliver(List<DrawEvent> batch, boolean[] failed) {
+        Arrays.fill(failed, 0, batch.size(), false);
+        for (ApplicationListener listener : listenersFor(batch.get(0))) {
+            if (batch.size() > 1 && listener instanceof DrawEventBatchListener) {
+                try {
+                    ((DrawEventBatchListener) listener).onDrawEvents(batch);
+                } catch (RuntimeException e) {
+                    reportFailure(listener, e);
+                    Arrays.fill(failed, 0, batch.size(), true);
+                }
+            } else {
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        listener.onApplicationEvent(batch.get(i));
+                    } catch (RuntimeException e) {
+                        reportFailure(listener, e);
+                        failed[i] = true;
+                    }
+                }
+            }
+        }
+        int failures = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (failed[i]) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    private static void reportFailure(ApplicationListener listener, RuntimeException e) {
+        System.err.println("Listener " + listener.getClass().getName() + " failed while handling DrawEvents: " + e);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invokeListeners(ApplicationEvent event) {
+        for (ApplicationListener listener : listenersFor(event)) {
+            listener.onApplicationEvent(event);
+        }
+    }
+
+    // Stops accepting new DrawEvents and lets the workers deliver what is left in the buffer
+    @Override
+    public void destroy() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            // Publishers waiting for a free slot deliver their events themselves
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (workerThreads != null) {
+            for (Thread workerThread : workerThreads) {
+                workerThread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    // DrawEvents that at least one listener threw an exception on
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    // Time the most recently delivered event spent waiting in the buffer
+    public long getLastLagNanos() {
+        return lastLagNanos;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos.get();
+    }
+}
@@ -0,0 +1,258 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/*
+ * =================================
+ *   BEAN DEFINITION CODE GENERATOR
+ * =================================
+ * Run at build time by the generateBeanDefinitions Gradle task (check build.gradle) :
+ *
+ *     BeanDefinitionCodeGenerator <xml file on the classpath> <output source directory>
+ *
+ * Reads the XML file exactly like ClassPathXmlApplicationContext does (including <context:component-scan>, which
+ * scans the compiled @Component classes) but does not create any bean - it only writes Java code that registers
+ * the resulting bean definitions (check PrecompiledApplicationContext class)
+ *
+ * Definitions using features that cannot be expressed as plain values (lookup-method, replaced-method, qualifiers)
+ * fail the build instead of being silently dropped
+ *
+ * */
+public class BeanDefinitionCodeGenerator {
+    private final StringBuilder methods = new StringBuilder();
+    private int definitionCount;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: BeanDefinitionCodeGenerator <xml on classpath> <output dir>");
+        }
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        new XmlBeanDefinitionReader(registry).loadBeanDefinitions("classpath:" + args[0]);
+
+        String className = PrecompiledBeanDefinitions.GENERATED_CLASS_NAME;
+        int lastDot = className.lastIndexOf('.');
+        Path output = Paths.get(args[1], className.substring(0, lastDot).replace('.', '/'),
+                className.substring(lastDot + 1) + ".java");
+        Files.createDirectories(output.getParent());
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(new BeanDefinitionCodeGenerator().generate(registry, args[0],
+                    className.substring(0, lastDot), className.substring(lastDot + 1)));
+        }
+        System.out.println("Generated " + registry.getBeanDefinitionCount() + " bean definitions into " + output);
+    }
+
+    public String generate(DefaultListableBeanFactory registry, String sourceDescription, String packageName,
+                           String simpleName) {
+        StringBuilder register = new StringBuilder();
+        for (String beanName : registry.getBeanDefinitionNames()) {
+            String method = definitionMethod(registry.getBeanDefinition(beanName));
+            register.append("        registry.registerBeanDefinition(").append(literal(beanName)).append(", ")
+                    .append(method).append("());\n");
+        }
+        for (String beanName : registry.getBeanDefinitionNames()) {
+            for (String alias : registry.getAliases(beanName)) {
+                register.append("        registry.registerAlias(").append(literal(beanName)).append(", ")
+                        .append(literal(alias)).append(");\n");
+            }
+        }
+
+        return "package " + packageName + ";\n\n"
+                + "import org.springframework.beans.factory.support.BeanDefinitionRegistry;\n"
+                + "import org.springframework.beans.factory.support.GenericBeanDefinition;\n\n"
+                + "// GENERATED by BeanDefinitionCodeGenerator from " + sourceDescription + " - do not edit\n"
+                + "public class " + simpleName + " extends PrecompiledBeanDefinitions {\n"
+                + "    @Override\n"
+                + "    public void registerBeanDefinitions(BeanDefinitionRegistry registry) {\n"
+                + register
+                + "    }\n"
+                + methods
+                + "}\n";
+    }
+
+    // Writes a method that builds the given definition and returns the method name
+    private String definitionMethod(BeanDefinition beanDefinition) {
+        if (!(beanDefinition instanceof AbstractBeanDefinition)) {
+            throw new IllegalStateException("Unsupported bean definition type: " + beanDefinition.getClass());
+        }
+        AbstractBeanDefinition definition = (AbstractBeanDefinition) beanDefinition;
+        if (!definition.getMethodOverrides().isEmpty() || !definition.getQualifiers().isEmpty()) {
+            throw new IllegalStateException("Method overrides and qualifiers cannot be precompiled: " + definition);
+        }
+        String method = "definition" + (++definitionCount);
+        StringBuilder body = new StringBuilder();
+
+        // Inner definitions and values are rendered first, since they may add methods of their own
+        for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry :
+                definition.getConstructorArgumentValues().getIndexedArgumentValues().entrySet()) {
+            body.append("        definition.getConstructorArgumentValues().addIndexedArgumentValue(")
+                    .append(entry.getKey()).append(", ").append(argument(entry.getValue())).append(");\n");
+        }
+        for (ConstructorArgumentValues.ValueHolder holder :
+                definition.getConstructorArgumentValues().getGenericArgumentValues()) {
+            body.append("        definition.getConstructorArgumentValues().addGenericArgumentValue(")
+                    .append(argument(holder)).append(");\n");
+        }
+        for (PropertyValue propertyValue : definition.getPropertyValues().getPropertyValues()) {
+            body.append("        definition.getPropertyValues().addPropertyValue(")
+                    .append(literal(propertyValue.getName())).append(", ").append(value(propertyValue.getValue()))
+                    .append(");\n");
+        }
+
+        StringBuilder code = new StringBuilder();
+        code.append("\n    private static GenericBeanDefinition ").append(method).append("() {\n");
+        code.append("        GenericBeanDefinition definition = new GenericBeanDefinition();\n");
+        setter(code, "setBeanClassName", literal(definition.getBeanClassName()), definition.getBeanClassName() != null);
+        setter(code, "setParentName", literal(definition.getParentName()), definition.getParentName() != null);
+        setter(code, "setScope", literal(definition.getScope()),
+                definition.getScope() != null && definition.getScope().length() > 0);
+        setter(code, "setAbstract", "true", definition.isAbstract());
+        setter(code, "setLazyInit", "true", definition.isLazyInit());
+        setter(code, "setAutowireMode", String.valueOf(definition.getAutowireMode()),
+                definition.getAutowireMode() != AbstractBeanDefinition.AUTOWIRE_NO);
+        setter(code, "setDependencyCheck", String.valueOf(definition.getDependencyCheck()),
+                definition.getDependencyCheck() != AbstractBeanDefinition.DEPENDENCY_CHECK_NONE);
+        if (definition.getDependsOn() != null) {
+            StringBuilder dependsOn = new StringBuilder("new String[] {");
+            for (int i = 0; i < definition.getDependsOn().length; i++) {
+                dependsOn.append(i > 0 ? ", " : "").append(literal(definition.getDependsOn()[i]));
+            }
+            setter(code, "setDependsOn", dependsOn.append("}").toString(), true);
+        }
+        setter(code, "setAutowireCandidate", "false", !definition.isAutowireCandidate());
+        setter(code, "setPrimary", "true", definition.isPrimary());
+        setter(code, "setNonPublicAccessAllowed", "false", !definition.isNonPublicAccessAllowed());
+        setter(code, "setLenientConstructorResolution", "false", !definition.isLenientConstructorResolution());
+        setter(code, "setFactoryBeanName", literal(definition.getFactoryBeanName()),
+                definition.getFactoryBeanName() != null);
+        setter(code, "setFactoryMethodName", literal(definition.getFactoryMethodName()),
+                definition.getFactoryMethodName() != null);
+        setter(code, "setInitMethodName", literal(definition.getInitMethodName()),
+                definition.getInitMethodName() != null);
+        setter(code, "setEnforceInitMethod", "false", !definition.isEnforceInitMethod());
+        setter(code, "setDestroyMethodName", literal(definition.getDestroyMethodName()),
+                definition.getDestroyMethodName() != null);
+        setter(code, "setEnforceDestroyMethod", "false", !definition.isEnforceDestroyMethod());
+        setter(code, "setSynthetic", "true", definition.isSynthetic());
+        setter(code, "setRole", String.valueOf(definition.getRole()),
+                definition.getRole() != BeanDefinition.ROLE_APPLICATION);
+        code.append(body);
+        code.append("        return definition;\n");
+        code.append("    }\n");
+        methods.append(code);
+        return method;
+    }
+
+    private static void setter(StringBuilder code, String setter, String argument, boolean needed) {
+        if (needed) {
+            code.append("        definition.").append(setter).append("(").append(argument).append(");\n");
+        }
+    }
+
+    private String argument(ConstructorArgumentValues.ValueHolder holder) {
+        return "arg(" + value(holder.getValue()) + ", " + literal(holder.getType()) + ", "
+                + literal(holder.getName()) + ")";
+    }
+
+    private String value(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof TypedStringValue) {
+            TypedStringValue typedValue = (TypedStringValue) value;
+            return "value(" + literal(typedValue.getValue()) + ", " + literal(typedValue.getTargetTypeName()) + ")";
+        }
+        if (value instanceof RuntimeBeanReference) {
+            RuntimeBeanReference reference = (RuntimeBeanReference) value;
+            return "ref(" + literal(reference.getBeanName()) + ", " + reference.isToParent() + ")";
+        }
+        if (value instanceof RuntimeBeanNameReference) {
+            return "idref(" + literal(((RuntimeBeanNameReference) value).getBeanName()) + ")";
+        }
+        if (value instanceof BeanDefinitionHolder) {
+            BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+            StringBuilder inner = new StringBuilder("inner(").append(definitionMethod(holder.getBeanDefinition()))
+                    .append("(), ").append(literal(holder.getBeanName()));
+            if (holder.getAliases() != null) {
+                for (String alias : holder.getAliases()) {
+                    inner.append(", ").append(literal(alias));
+                }
+            }
+            return inner.append(")").toString();
+        }
+        if (value instanceof String) {
+            return literal((String) value);
+        }
+        if (value instanceof ManagedList && value.getClass() == ManagedList.class) {
+            ManagedList<?> list = (ManagedList<?>) value;
+            return collection("list", list.isMergeEnabled(), list.getElementTypeName(), list);
+        }
+        if (value instanceof ManagedSet) {
+            ManagedSet<?> set = (ManagedSet<?>) value;
+            return collection("set", set.isMergeEnabled(), set.getElementTypeName(), set);
+        }
+        if (value instanceof ManagedMap) {
+            ManagedMap<?, ?> map = (ManagedMap<?, ?>) value;
+            StringBuilder code = new StringBuilder("map(").append(map.isMergeEnabled()).append(", ")
+                    .append(literal(map.getKeyTypeName())).append(", ").append(literal(map.getValueTypeName()));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                code.append(", ").append(value(entry.getKey())).append(", ").append(value(entry.getValue()));
+            }
+            return code.append(")").toString();
+        }
+        throw new IllegalStateException("Value of type " + value.getClass().getName() + " cannot be precompiled: "
+                + value);
+    }
+
+    private String collection(String helper, boolean mergeEnabled, String elementTypeName, Iterable<?> elements) {
+        StringBuilder code = new StringBuilder(helper).append("(").append(mergeEnabled).append(", ")
+                .append(literal(elementTypeName));
+        for (Object element : elements) {
+            code.append(", ").append(value(element));
+        }
+        return code.append(")").toString();
+    }
+
+    static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': literal.append("\\\""); break;
+                case '\\': literal.append("\\\\"); break;
+                case '\n': literal.append("\\n"); break;
+                case '\r': literal.append("\\r"); break;
+                case '\t': literal.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c > 0x7E) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append("\"").toString();
+    }
+}
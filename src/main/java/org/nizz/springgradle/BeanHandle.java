@@ -0,0 +1,103 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.SimpleAliasRegistry;
+
+/*
+ * =================================
+ *           BEAN HANDLE
+ * =================================
+ * A typed, cached replacement for (Point) applicationContext.getBean("zeroPoint") on paths that run over and over.
+ * Every getBean(name) on the context:
+ * 1. goes through the context to its bean factory (a synchronized method in ClassPathXmlApplicationContext)
+ * 2. resolves the name : strips '&', follows the aliases
+ * 3. looks up the singleton cache, then the merged bean definition, and checks its scope
+ * 4. and the caller still has to cast the result
+ *
+ * A handle does steps 1 and 2 once, the first time get() is called, and keeps the bean factory and the real name of
+ * the bean. Then:
+ * - for a singleton (checked once through isSingleton, so FactoryBeans are handled too), the bean itself is kept :
+ * get() is a field read
+ * - for any other scope (prototype, pooled, etc.), get() calls the bean factory directly with the real name - the
+ * scope still decides whether a new bean is created, and every post processor still sees it
+ *
+ * Created by the beans that look other beans up (check Triangle.createDynamicBeans) - a handle is cheap to create and
+ * resolves nothing until it is used, so it can be created in setApplicationContext while the context is still
+ * starting
+ *
+ * NOTE: A handle belongs to one context - if the context is refreshed, the beans holding handles are created again
+ * with new handles, but a handle kept elsewhere still returns the singleton of the old context
+ *
+ * */
+public final class BeanHandle<T> {
+    private final ApplicationContext context;
+    private final String name;
+    private final Class<T> type;
+    // Set once by resolve()
+    private volatile ConfigurableListableBeanFactory beanFactory;
+    private volatile String beanName;
+    private volatile T singleton;
+
+    private BeanHandle(ApplicationContext context, String name, Class<T> type) {
+        this.context = context;
+        this.name = name;
+        this.type = type;
+    }
+
+    public static <T> BeanHandle<T> of(ApplicationContext context, String name, Class<T> type) {
+        if (context == null || name == null || type == null) {
+            throw new IllegalArgumentException("A bean handle needs a context, a bean name and a type");
+        }
+        return new BeanHandle<T>(context, name, type);
+    }
+
+    public T get() throws BeansException {
+        T bean = singleton;
+        if (bean != null) {
+            return bean;
+        }
+        ConfigurableListableBeanFactory factory = beanFactory;
+        if (factory == null) {
+            return resolve();
+        }
+        return factory.getBean(beanName, type);
+    }
+
+    private synchronized T resolve() {
+        if (singleton != null) {
+            return singleton;
+        }
+        AutowireCapableBeanFactory autowireCapableBeanFactory = context.getAutowireCapableBeanFactory();
+        if (!(autowireCapableBeanFactory instanceof ConfigurableListableBeanFactory)) {
+            // Not a context created from bean definitions : nothing can be resolved ahead, every get() asks it
+            return context.getBean(name, type);
+        }
+        ConfigurableListableBeanFactory factory = (ConfigurableListableBeanFactory) autowireCapableBeanFactory;
+        String resolvedName = factory instanceof SimpleAliasRegistry
+                ? ((SimpleAliasRegistry) factory).canonicalName(name) : name;
+        T bean = factory.getBean(resolvedName, type);
+        if (factory.isSingleton(resolvedName)) {
+            singleton = bean;
+        } else {
+            beanName = resolvedName;
+            beanFactory = factory;
+        }
+        return bean;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "BeanHandle(" + name + " : " + type.getSimpleName() + ")";
+    }
+}
@@ -0,0 +1,284 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * =================================
+ *     BEAN LIFECYCLE PROFILER
+ * =================================
+ * A post processor that measures how long every bean spends in each phase of its lifecycle instead of printing that
+ * the phase happened:
+ * 1. instantiate : resolving the constructor arguments and calling the constructor
+ * 2. populate : setting the properties and the Aware callbacks (setBeanName, etc.)
+ * 3. init : every init callback - @PostConstruct, afterPropertiesSet, init-method (and the other post processors'
+ * postProcessBeforeInitialization)
+ * 4. destroy : @PreDestroy, destroy, destroy-method
+ *
+ * Beans created while another bean is being created (refs, inner beans) are measured on their own and their time is
+ * not counted again in the phase of the bean that needed them. Prototypes are measured every time they are created,
+ * so every phase is a LatencyHistogram per bean name
+ *
+ * Being PriorityOrdered with the highest precedence, this post processor runs before every other one. Being also a
+ * BeanFactoryPostProcessor, it is created before the other post processors and can measure their creation as well
+ *
+ * A report of the slowest beans is printed once the context is refreshed and again when it is closed
+ *
+ * NOTE: Spring has no hook after a bean is destroyed, so the destruction of a bean is measured until the next bean
+ * starts to be destroyed (or until this profiler itself is destroyed)
+ *
+ * */
+public class BeanLifecycleProfiler implements BeanFactoryPostProcessor, InstantiationAwareBeanPostProcessor,
+        DestructionAwareBeanPostProcessor, ApplicationListener<ContextRefreshedEvent>, PriorityOrdered,
+        DisposableBean {
+
+    private final ConcurrentMap<String, BeanTimings> timings = new ConcurrentHashMap<String, BeanTimings>();
+    private final ThreadLocal<Deque<Frame>> creations = new ThreadLocal<Deque<Frame>>() {
+        @Override
+        protected Deque<Frame> initialValue() {
+            return new ArrayDeque<Frame>();
+        }
+    };
+    private int reportSize = 10;
+    private String destroyingBean;
+    private long destroyStart;
+
+    public void setReportSize(int reportSize) {
+        this.reportSize = reportSize;
+    }
+
+    // false turns off the console messages of the lifecycle callbacks (check LifecycleLog class) - ignored when
+    // -Dspringgradle.lifecycleLog is set : the command line overrides the XML file, not the other way around
+    public void setLifecycleLog(boolean lifecycleLog) {
+        if (System.getProperty(LifecycleLog.SYSTEM_PROPERTY) == null) {
+            LifecycleLog.setEnabled(lifecycleLog);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        timings.clear();
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+        creations.get().push(new Frame(beanName, System.nanoTime()));
+        return null;
+    }
+
+    @Override
+    public boolean postProcessAfterInstantiation(Object bean, String beanName) throws BeansException {
+        Frame frame = current(beanName);
+        if (frame != null) {
+            timingsOf(beanName).instantiate.record(frame.lap(System.nanoTime()));
+        }
+        return true;
+    }
+
+    @Override
+    public PropertyValues postProcessPropertyValues(PropertyValues propertyValues, PropertyDescriptor[] descriptors,
+                                                    Object bean, String beanName) throws BeansException {
+        return propertyValues;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        Frame frame = current(beanName);
+        if (frame != null) {
+            timingsOf(beanName).populate.record(frame.lap(System.nanoTime()));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        Frame frame = current(beanName);
+        if (frame != null) {
+            long now = System.nanoTime();
+            timingsOf(beanName).init.record(frame.lap(now));
+            Deque<Frame> stack = creations.get();
+            stack.pop();
+            // The bean that needed this one should not count this time in its own phases
+            if (!stack.isEmpty()) {
+                stack.peek().nested += now - frame.start;
+            }
+        }
+        return bean;
+    }
+
+    // The frame of the bean being created on this thread, or null if the bean was not seen being instantiated
+    // (e.g. objects returned by FactoryBeans only go through postProcessAfterInitialization)
+    // Frames above it belong to beans whose creation threw after they were pushed (the exception caught by the bean
+    // that needed them) : they never reach postProcessAfterInitialization, so they are dropped here
+    private Frame current(String beanName) {
+        Deque<Frame> stack = creations.get();
+        for (Frame frame : stack) {
+            if (frame.beanName.equals(beanName)) {
+                while (stack.peek() != frame) {
+                    stack.pop();
+                }
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    // Singletons are destroyed one by one on the thread closing the context
+    @Override
+    public synchronized void postProcessBeforeDestruction(Object bean, String beanName) throws BeansException {
+        long now = System.nanoTime();
+        finishDestruction(now);
+        destroyingBean = beanName;
+        destroyStart = now;
+    }
+
+    private void finishDestruction(long now) {
+        if (destroyingBean != null) {
+            timingsOf(destroyingBean).destroy.record(now - destroyStart);
+            destroyingBean = null;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent contextRefreshedEvent) {
+        // What is left on the stack of the refreshing thread is from beans that failed to be created
+        creations.remove();
+        printReport("after refresh");
+    }
+
+    @Override
+    public synchronized void destroy() {
+        finishDestruction(System.nanoTime());
+        printReport("on shutdown");
+    }
+
+    private BeanTimings timingsOf(String beanName) {
+        BeanTimings beanTimings = timings.get(beanName);
+        if (beanTimings == null) {
+            BeanTimings created = new BeanTimings(beanName);
+            beanTimings = timings.putIfAbsent(beanName, created);
+            if (beanTimings == null) {
+                beanTimings = created;
+            }
+        }
+        return beanTimings;
+    }
+
+    public BeanTimings getTimings(String beanName) {
+        return timings.get(beanName);
+    }
+
+    // The slowest beans first, by the total time spent in all their phases
+    public List<BeanTimings> getSlowestBeans(int limit) {
+        List<BeanTimings> sorted = new ArrayList<BeanTimings>(timings.values());
+        Collections.sort(sorted, new Comparator<BeanTimings>() {
+            @Override
+            public int compare(BeanTimings first, BeanTimings second) {
+                return Long.compare(second.getTotalNanos(), first.getTotalNanos());
+            }
+        });
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    public void printReport(String when) {
+        StringBuilder report = new StringBuilder();
+        report.append("Slowest beans ").append(when).append(" (total / mean per phase in microseconds, n = times")
+                .append(" created)\n");
+        report.append(String.format("%-45s %5s %10s %12s %10s %10s %10s%n",
+                "bean", "n", "total", "instantiate", "populate", "init", "destroy"));
+        for (BeanTimings beanTimings : getSlowestBeans(reportSize)) {
+            report.append(String.format("%-45s %5d %10.1f %12.1f %10.1f %10.1f %10.1f%n",
+                    beanTimings.getBeanName(), beanTimings.instantiate.getCount(),
+                    micros(beanTimings.getTotalNanos()), micros(beanTimings.instantiate.getMeanNanos()),
+                    micros(beanTimings.populate.getMeanNanos()), micros(beanTimings.init.getMeanNanos()),
+                    micros(beanTimings.destroy.getMeanNanos())));
+        }
+        System.out.print(report);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static class Frame {
+        final String beanName;
+        final long start;
+        long mark;
+        long nested;
+
+        Frame(String beanName, long start) {
+            this.beanName = beanName;
+            this.start = start;
+            this.mark = start;
+        }
+
+        // Time since the previous phase ended, without the beans created in between
+        long lap(long now) {
+            long elapsed = now - mark - nested;
+            mark = now;
+            nested = 0;
+            return elapsed;
+        }
+    }
+
+    public static class BeanTimings {
+        private final String beanName;
+        final LatencyHistogram instantiate = new LatencyHistogram();
+        final LatencyHistogram populate = new LatencyHistogram();
+        final LatencyHistogram init = new LatencyHistogram();
+        final LatencyHistogram destroy = new LatencyHistogram();
+
+        BeanTimings(String beanName) {
+            this.beanName = beanName;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public LatencyHistogram getInstantiate() {
+            return instantiate;
+        }
+
+        public LatencyHistogram getPopulate() {
+            return populate;
+        }
+
+        public LatencyHistogram getInit() {
+            return init;
+        }
+
+        public LatencyHistogram getDestroy() {
+            return destroy;
+        }
+
+        public long getTotalNanos() {
+            return instantiate.getTotalNanos() + populate.getTotalNanos() + init.getTotalNanos()
+                    + destroy.getTotalNanos();
+        }
+    }
+}
@@ -23,6 +23,8 @@ import java.util.Locale;
 // ApplicationEventPublisherAware tells Spring that the class wants access to an ApplicationEventPublisher,
 // which it can use to publish events.
 public class Circle implements Shape, ApplicationEventPublisherAware, ApplicationContextAware {
+    private static final Locale FRENCH = Locale.forLanguageTag("fr");
+
     // @Autowired : Used to inject dependencies in the bean - also a bean post processor method
     // It first searches for beans based on type, if multiple beans exist from the same type, it searches by name
     // If bean with the mentioned property name does not exist, it then searches based on @Qualifier (not applicable
@@ -55,6 +57,13 @@ public class Circle implements Shape, ApplicationEventPublisherAware, Applicatio
     private MessageSource messageSource;
     private ApplicationEventPublisher eventPublisher;
     private ApplicationContext applicationContext;
+    private final ShapeChangeSupport changeSupport = new ShapeChangeSupport();
+    // Set by setCenter(PointStore, int) : the center is read from the store by its index, and center is null
+    private PointStore centerStore;
+    private int centerIndex;
+    // Set by the setters, cleared by markClean - with the version of the center at that time (check Shape.isDirty)
+    private boolean dirty = true;
+    private int centerVersion;
 
     // @Autowired is recommended to be used here - allows to mark fields as final (field injection throws error of
     // needing default constructor), if dependencies are missing, it fails fast, and we have a single point of
@@ -64,8 +73,22 @@ public class Circle implements Shape, ApplicationEventPublisherAware, Applicatio
         this.center = center;
     }
 
+    // A center kept in a PointStore is returned as a new view on every call - getCenterLocation reads it without
+    // creating anything
     public Point getCenter() {
-        return center;
+        return centerStore != null ? centerStore.view(centerIndex) : center;
+    }
+
+    public boolean hasCenter() {
+        return centerStore != null || center != null;
+    }
+
+    // x and y of the center packed in one long (check Point.getLocation)
+    public long getCenterLocation() {
+        if (centerStore != null) {
+            return Point.location(centerStore.getX(centerIndex), centerStore.getY(centerIndex));
+        }
+        return center.getLocation();
     }
 
     // @Autowired is NOT recommended to be used here - does not allow to mark fields as final,
@@ -83,6 +106,20 @@ public class Circle implements Shape, ApplicationEventPublisherAware, Applicatio
 //    @Resource(name = "circleCenter")
     public void setCenter(Point center) {
         this.center = center;
+        this.centerStore = null;
+        dirty = true;
+        changeSupport.fire(this);
+    }
+
+    // References the center by its index in a PointStore (check PointStore class) : only the store and the index are
+    // kept, so the circle moves with the store and costs no Point object
+    public void setCenter(PointStore pointStore, int centerIndex) {
+        pointStore.checkIndex(centerIndex);
+        this.center = null;
+        this.centerStore = pointStore;
+        this.centerIndex = centerIndex;
+        dirty = true;
+        changeSupport.fire(this);
     }
 
     public int getRadius() {
@@ -96,7 +133,11 @@ public class Circle implements Shape, ApplicationEventPublisherAware, Applicatio
     // Any bean that is missing a required field will cause an error during initialization
 //    @Required
     public void setRadius(int radius) {
+        if (this.radius != radius) {
+            dirty = true;
+        }
         this.radius = radius;
+        changeSupport.fire(this);
     }
 
     public MessageSource getMessageSource() {
@@ -112,17 +153,19 @@ public class Circle implements Shape, ApplicationEventPublisherAware, Applicatio
     // This runs after the initialization of beans (hence, after @Autowired annotation as well)
     @PostConstruct
     public void initializeCircle() {
-        System.out.println("Init, PostConstruct, method called for Circle class");
+        LifecycleLog.println("Init, PostConstruct, method called for Circle class");
     }
 
     @PreDestroy
     public void destroyCircle() {
-        System.out.println("Destroy, PreDestroy, method called for Circle class");
+        LifecycleLog.println("Destroy, PreDestroy, method called for Circle class");
     }
 
     @Override
     public void draw() {
-        System.out.println("The center of circle is: " + center.getCoordinates() + " and the radius is: " + radius);
+        long location = getCenterLocation();
+        System.out.println("The center of circle is: (" + Point.locationX(location) + ", " + Point.locationY(location)
+                + ") and the radius is: " + radius);
         // ApplicationEvent requires the class as the parameter
         ApplicationEvent drawEvent = new DrawEvent(this);
         // ApplicationContext implements ApplicationEventPublisher - so we could also use context.publishEvent - but this is
@@ -131,11 +174,52 @@ public class Circle implements Shape, ApplicationEventPublisherAware, Applicatio
         eventPublisher.publishEvent(drawEvent);
     }
 
+    @Override
+    public void addShapeChangeListener(ShapeChangeListener listener) {
+        changeSupport.add(listener);
+    }
+
+    @Override
+    public void removeShapeChangeListener(ShapeChangeListener listener) {
+        changeSupport.remove(listener);
+    }
+
+    @Override
+    public boolean isDirty() {
+        return dirty || hasCenter() && centerVersion() != centerVersion;
+    }
+
+    @Override
+    public void markClean() {
+        dirty = false;
+        centerVersion = hasCenter() ? centerVersion() : 0;
+    }
+
+    private int centerVersion() {
+        return centerStore != null ? centerStore.getVersion() : center.getVersion();
+    }
+
+    @Override
+    public void render(ShapeRenderer renderer) {
+        // One read of the center : x and y always come from the same position (check LivePoint class)
+        long location = getCenterLocation();
+        renderer.append("The center of circle is: (").append(Point.locationX(location)).append(", ")
+                .append(Point.locationY(location)).append(") and the radius is: ").append(radius).newLine();
+    }
+
     public void getBeanMessage() {
         // Since french locale is provided, Spring first searches in circlemessages_fr, if it does not find in it,
         // it searches in circlemessages, and if the key is absent in both files, it uses the default message
+        // CompiledMessageSource formats the int arguments without boxing them or re-parsing the message pattern
+        long location = getCenterLocation();
+        int x = Point.locationX(location), y = Point.locationY(location);
+        if (messageSource instanceof CompiledMessageSource) {
+            System.out.println(((CompiledMessageSource) messageSource).getMessage("circlemotivation",
+                    radius, x, y, "You get ice cream!", FRENCH));
+            return;
+        }
         System.out.println(messageSource.getMessage("circlemotivation",
-                new Object[] {radius, center.getX(), center.getY()}, "You get ice cream!", Locale.forLanguageTag("fr")));
+                new Object[] {radius, x, y}, "You get ice cream!", FRENCH));
     }
 
     @Override
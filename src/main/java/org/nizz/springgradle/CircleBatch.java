@@ -0,0 +1,56 @@
+package org.nizz.springgradle;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Many circles stored column by column (structure of arrays) - check TriangleBatch and GeometryEngine classes
+public class CircleBatch {
+    int[] centerX;
+    int[] centerY;
+    int[] radius;
+    int size;
+
+    public CircleBatch() {
+        this(16);
+    }
+
+    public CircleBatch(int capacity) {
+        centerX = new int[capacity];
+        centerY = new int[capacity];
+        radius = new int[capacity];
+    }
+
+    public static CircleBatch of(Collection<Circle> circles) {
+        CircleBatch batch = new CircleBatch(Math.max(1, circles.size()));
+        for (Circle circle : circles) {
+            batch.add(circle);
+        }
+        return batch;
+    }
+
+    public int add(Circle circle) {
+        long center = circle.getCenterLocation();
+        return add(Point.locationX(center), Point.locationY(center), circle.getRadius());
+    }
+
+    public int add(int centerX, int centerY, int radius) {
+        if (size == this.centerX.length) {
+            int capacity = Math.max(16, size * 2);
+            this.centerX = Arrays.copyOf(this.centerX, capacity);
+            this.centerY = Arrays.copyOf(this.centerY, capacity);
+            this.radius = Arrays.copyOf(this.radius, capacity);
+        }
+        this.centerX[size] = centerX;
+        this.centerY[size] = centerY;
+        this.radius[size] = radius;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,568 @@
+package org.nizz.springgradle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * =================================
+ *        COLLISION DETECTOR
+ * =================================
+ * Finds every pair of overlapping shapes of a frame : circle / circle, circle / triangle and triangle / triangle. Two
+ * shapes that only touch (an edge on an edge, a point on an edge) overlap - the same rule as ShapeBounds
+ *
+ * 1. Broad phase (sweep and prune) : the bounding box of every shape (center and radius, or p1, p2 and p3), the
+ * shapes sorted by the left side of their box. Sweeping from left to right, a shape can only overlap the shapes that
+ * come after it in that order until one starts to the right of its box - of those, the ones whose boxes also overlap
+ * on y are the candidates
+ * 2. Narrow phase : the exact test of every candidate pair
+ * - circle / circle : distance between the centers against the sum of the radii
+ * - circle / triangle : the center inside the triangle, or an edge of the triangle within the radius of the center
+ * - triangle / triangle : separating axis test on the normals of the six edges (the boxes already overlap)
+ *
+ * Sweeping a whole scene along x makes every shape look at all the shapes of a full-height column of the scene - the
+ * work grows faster than the number of shapes. So the scene is cut into horizontal bands, each shape belongs to every
+ * band its box overlaps, and every band is sorted and swept on its own. A pair overlapping in several bands is only
+ * reported by the first band both shapes are in. The bands are chosen for a few thousand shapes each (and a few
+ * shapes high), when the number of shapes changes
+ *
+ * Between frames, every band keeps its shapes in order : shapes move a little from one frame to the next, so last
+ * frame's order is almost sorted and an insertion sort puts it back in order in about one pass. The shapes that left
+ * the band are taken out and the ones that entered it are sorted in. A band whose shapes moved too much is sorted
+ * again from scratch
+ *
+ * Frames of more than threshold shapes are processed in parallel : the bands are sorted and swept on a fork-join
+ * pool, every band only reads the shared arrays and collects its own pairs, and the pairs of the bands are put back
+ * together in order - the same pairs, in the same order, whatever the number of threads
+ *
+ * Shapes are numbered by frame : for detect(circles, triangles), circle i is shape i and triangle i is shape
+ * circles.size() + i. Keep the shapes in the same order from one frame to the next for the incremental sort to help
+ *
+ * NOTE: A detector keeps the state of one scene - detect is synchronized, use one detector per scene
+ *
+ * */
+public class CollisionDetector {
+    // Shapes per band, and band height in shapes (average box height), when the bands are chosen
+    private static final int SHAPES_PER_BAND = 4096;
+    private static final int SHAPES_PER_BAND_HEIGHT = 4;
+    // Insertion sort moves allowed per shape of a band before sorting it from scratch instead
+    private static final int MAX_MOVES_PER_SHAPE = 4;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    // Bounding boxes by shape number, with the first and last band of every shape - this frame and the previous one
+    private int shapeCount = -1;
+    private int[] minX = new int[0];
+    private int[] minY = new int[0];
+    private int[] maxX = new int[0];
+    private int[] maxY = new int[0];
+    private int[] firstBand = new int[0];
+    private int[] lastBand = new int[0];
+    private int[] previousFirstBand = new int[0];
+    private int[] previousLastBand = new int[0];
+    private long bandOrigin;
+    private long bandHeight;
+    private Band[] bands = new Band[0];
+
+    // Reused by detect(Collection) - the position in the collection of every circle and triangle
+    private final CircleBatch shapeCircles = new CircleBatch();
+    private final TriangleBatch shapeTriangles = new TriangleBatch();
+    private int[] circlePositions = new int[16];
+    private int[] trianglePositions = new int[16];
+
+    public CollisionDetector() {
+        this(ForkJoinPool.commonPool(), 16384);
+    }
+
+    public CollisionDetector(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    public Pairs detect(Scene scene) {
+        return detect(scene.getCircles(), scene.getTriangles());
+    }
+
+    public synchronized Pairs detect(CircleBatch circles, TriangleBatch triangles) {
+        int count = circles.size + triangles.size;
+        if (minX.length < count) {
+            int capacity = Math.max(16, Math.max(count, minX.length * 2));
+            minX = new int[capacity];
+            minY = new int[capacity];
+            maxX = new int[capacity];
+            maxY = new int[capacity];
+            firstBand = new int[capacity];
+            lastBand = new int[capacity];
+            previousFirstBand = new int[capacity];
+            previousLastBand = new int[capacity];
+        }
+        computeBounds(circles, triangles);
+        boolean incremental = count == shapeCount;
+        if (!incremental) {
+            chooseBands(count);
+        }
+        shapeCount = count;
+        assignBands(count);
+        Frame frame = new Frame(circles, triangles, minX, minY, maxX, maxY, firstBand, lastBand);
+        Pairs pairs;
+        if (count <= threshold || pool.getParallelism() == 1) {
+            pairs = new Pairs();
+            for (int band = 0; band < bands.length; band++) {
+                pairs.addAll(bands[band].update(frame, band));
+            }
+        } else {
+            pairs = pool.invoke(new BandTask(frame, bands, 0, bands.length));
+        }
+        pairs.incremental = incremental;
+        return pairs;
+    }
+
+    // The overlapping pairs of Circle and Triangle objects - the shapes without geometry (no center, a point not set)
+    // and the other kinds of shapes never collide
+    public synchronized List<Shape[]> detect(Collection<? extends Shape> shapes) {
+        List<Shape> positions = new ArrayList<Shape>(shapes);
+        shapeCircles.clear();
+        shapeTriangles.clear();
+        int[] bounds = new int[4];
+        for (int i = 0; i < positions.size(); i++) {
+            Shape shape = positions.get(i);
+            if (!(shape instanceof Circle || shape instanceof Triangle) || !ShapeBounds.bounds(shape, bounds)) {
+                continue;
+            }
+            if (shape instanceof Circle) {
+                circlePositions = grow(circlePositions, shapeCircles.size);
+                circlePositions[shapeCircles.add((Circle) shape)] = i;
+            } else {
+                trianglePositions = grow(trianglePositions, shapeTriangles.size);
+                trianglePositions[shapeTriangles.add((Triangle) shape)] = i;
+            }
+        }
+        Pairs pairs = detect(shapeCircles, shapeTriangles);
+        List<Shape[]> collisions = new ArrayList<Shape[]>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            collisions.add(new Shape[]{positions.get(position(pairs.first(i))),
+                    positions.get(position(pairs.second(i)))});
+        }
+        return collisions;
+    }
+
+    private int position(int shape) {
+        return shape < shapeCircles.size ? circlePositions[shape] : trianglePositions[shape - shapeCircles.size];
+    }
+
+    private static int[] grow(int[] array, int index) {
+        return index < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    private void computeBounds(CircleBatch circles, TriangleBatch triangles) {
+        for (int i = 0; i < circles.size; i++) {
+            // Clamped to the int range : no other shape reaches past it, so the box still finds every overlap
+            long radius = Math.abs((long) circles.radius[i]);
+            minX[i] = clamp(circles.centerX[i] - radius);
+            minY[i] = clamp(circles.centerY[i] - radius);
+            maxX[i] = clamp(circles.centerX[i] + radius);
+            maxY[i] = clamp(circles.centerY[i] + radius);
+        }
+        int[] x1 = triangles.x1, y1 = triangles.y1, x2 = triangles.x2, y2 = triangles.y2, x3 = triangles.x3,
+                y3 = triangles.y3;
+        for (int i = 0, shape = circles.size; i < triangles.size; i++, shape++) {
+            minX[shape] = Math.min(x1[i], Math.min(x2[i], x3[i]));
+            minY[shape] = Math.min(y1[i], Math.min(y2[i], y3[i]));
+            maxX[shape] = Math.max(x1[i], Math.max(x2[i], x3[i]));
+            maxY[shape] = Math.max(y1[i], Math.max(y2[i], y3[i]));
+        }
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    // New bands over the height of the scene, all empty : every shape enters its bands in assignBands
+    private void chooseBands(int count) {
+        long top = Long.MAX_VALUE;
+        long bottom = Long.MIN_VALUE;
+        long heights = 0;
+        for (int i = 0; i < count; i++) {
+            top = Math.min(top, minY[i]);
+            bottom = Math.max(bottom, maxY[i]);
+            heights += (long) maxY[i] - minY[i] + 1;
+        }
+        long sceneHeight = count == 0 ? 1 : bottom - top + 1;
+        long bandShapeHeight = Math.max(1, SHAPES_PER_BAND_HEIGHT * (count == 0 ? 1 : heights / count));
+        int bandCount = (int) Math.max(1, Math.min(count / SHAPES_PER_BAND, sceneHeight / bandShapeHeight));
+        bandOrigin = count == 0 ? 0 : top;
+        bandHeight = (sceneHeight + bandCount - 1) / bandCount;
+        bands = new Band[bandCount];
+        for (int band = 0; band < bandCount; band++) {
+            bands[band] = new Band();
+        }
+        Arrays.fill(firstBand, 0, count, 0);
+        Arrays.fill(lastBand, 0, count, -1);
+    }
+
+    // The bands of every shape this frame (shapes outside of the bands go to the first or the last one) - a shape
+    // whose bands changed enters the bands it was not in
+    private void assignBands(int count) {
+        int[] swap = previousFirstBand;
+        previousFirstBand = firstBand;
+        firstBand = swap;
+        swap = previousLastBand;
+        previousLastBand = lastBand;
+        lastBand = swap;
+        int last = bands.length - 1;
+        for (int i = 0; i < count; i++) {
+            int first = (int) Math.max(0, Math.min(last, (minY[i] - bandOrigin) / bandHeight));
+            int end = (int) Math.max(0, Math.min(last, (maxY[i] - bandOrigin) / bandHeight));
+            firstBand[i] = first;
+            lastBand[i] = end;
+            int previousFirst = previousFirstBand[i];
+            int previousLast = previousLastBand[i];
+            if (first != previousFirst || end != previousLast) {
+                for (int band = first; band <= end; band++) {
+                    if (band < previousFirst || band > previousLast) {
+                        bands[band].enter(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /* ===== SWEEP ===== */
+
+    // The shapes and their boxes of one frame - only read while the bands are sorted and swept
+    private static class Frame {
+        final CircleBatch circles;
+        final TriangleBatch triangles;
+        final int[] minX;
+        final int[] minY;
+        final int[] maxX;
+        final int[] maxY;
+        final int[] firstBand;
+        final int[] lastBand;
+
+        Frame(CircleBatch circles, TriangleBatch triangles, int[] minX, int[] minY, int[] maxX, int[] maxY,
+              int[] firstBand, int[] lastBand) {
+            this.circles = circles;
+            this.triangles = triangles;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.firstBand = firstBand;
+            this.lastBand = lastBand;
+        }
+
+        // a < b : circles come first
+        boolean overlap(int a, int b) {
+            int circleCount = circles.size;
+            if (b < circleCount) {
+                return circlesOverlap(circles.centerX[a], circles.centerY[a], circles.radius[a], circles.centerX[b],
+                        circles.centerY[b], circles.radius[b]);
+            }
+            TriangleBatch t = triangles;
+            int j = b - circleCount;
+            if (a < circleCount) {
+                return circleTriangleOverlap(circles.centerX[a], circles.centerY[a], circles.radius[a], t.x1[j],
+                        t.y1[j], t.x2[j], t.y2[j], t.x3[j], t.y3[j]);
+            }
+            int i = a - circleCount;
+            return trianglesOverlap(t.x1[i], t.y1[i], t.x2[i], t.y2[i], t.x3[i], t.y3[i],
+                    t.x1[j], t.y1[j], t.x2[j], t.y2[j], t.x3[j], t.y3[j]);
+        }
+    }
+
+    // The shapes of one band, sorted by minX - kept from one frame to the next
+    private static class Band {
+        int[] shapes = new int[16];
+        int size;
+        // Shapes that entered the band since the last update
+        int[] entered = new int[16];
+        int enteredSize;
+        // The boxes copied in sorted order, so that the sweep reads them one after the other
+        int[] sortedMinX = new int[16];
+        int[] sortedMinY = new int[16];
+        int[] sortedMaxX = new int[16];
+        int[] sortedMaxY = new int[16];
+        long[] keys = new long[0];
+
+        void enter(int shape) {
+            entered = grow(entered, enteredSize);
+            entered[enteredSize++] = shape;
+        }
+
+        // Takes out the shapes that left the band, adds the ones that entered it, sorts and sweeps it
+        Pairs update(Frame frame, int band) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int shape = shapes[i];
+                if (frame.firstBand[shape] <= band && band <= frame.lastBand[shape]) {
+                    shapes[kept++] = shape;
+                }
+            }
+            if (kept + enteredSize > shapes.length) {
+                shapes = Arrays.copyOf(shapes, Math.max(kept + enteredSize, shapes.length * 2));
+            }
+            System.arraycopy(entered, 0, shapes, kept, enteredSize);
+            size = kept + enteredSize;
+            long moves = (long) MAX_MOVES_PER_SHAPE * size + (long) enteredSize * size;
+            enteredSize = 0;
+            if (!insertionSort(frame.minX, moves)) {
+                sort(frame.minX);
+            }
+            return sweep(frame, band);
+        }
+
+        // Last frame's order sorted again on the new boxes - false, with the order left unsorted, when the shapes
+        // moved too much for it to be worth it
+        private boolean insertionSort(int[] minX, long moves) {
+            int[] shapes = this.shapes;
+            for (int i = 1; i < size; i++) {
+                int shape = shapes[i];
+                int key = minX[shape];
+                int j = i - 1;
+                while (j >= 0 && minX[shapes[j]] > key) {
+                    if (--moves < 0) {
+                        shapes[j + 1] = shape;
+                        return false;
+                    }
+                    shapes[j + 1] = shapes[j];
+                    j--;
+                }
+                shapes[j + 1] = shape;
+            }
+            return true;
+        }
+
+        // Sorted from scratch : minX in the high half of a long and the shape number in the low half, so that one
+        // sort of primitives orders the shapes
+        private void sort(int[] minX) {
+            if (keys.length < size) {
+                keys = new long[shapes.length];
+            }
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) minX[shapes[i]] << 32 | shapes[i];
+            }
+            Arrays.sort(keys, 0, size);
+            for (int i = 0; i < size; i++) {
+                shapes[i] = (int) keys[i];
+            }
+        }
+
+        // The pairs of the band - a pair of shapes that are both in other bands too is only kept by the first one
+        private Pairs sweep(Frame frame, int band) {
+            if (sortedMinX.length < size) {
+                sortedMinX = new int[shapes.length];
+                sortedMinY = new int[shapes.length];
+                sortedMaxX = new int[shapes.length];
+                sortedMaxY = new int[shapes.length];
+            }
+            int[] shapes = this.shapes, minX = sortedMinX, minY = sortedMinY, maxX = sortedMaxX, maxY = sortedMaxY;
+            for (int i = 0; i < size; i++) {
+                int shape = shapes[i];
+                minX[i] = frame.minX[shape];
+                minY[i] = frame.minY[shape];
+                maxX[i] = frame.maxX[shape];
+                maxY[i] = frame.maxY[shape];
+            }
+            int[] firstBand = frame.firstBand;
+            Pairs pairs = new Pairs();
+            for (int i = 0; i < size; i++) {
+                int right = maxX[i], bottom = minY[i], top = maxY[i];
+                for (int j = i + 1; j < size && minX[j] <= right; j++) {
+                    if (minY[j] > top || maxY[j] < bottom) {
+                        continue;
+                    }
+                    int a = Math.min(shapes[i], shapes[j]);
+                    int b = Math.max(shapes[i], shapes[j]);
+                    if (Math.max(firstBand[a], firstBand[b]) != band) {
+                        continue;
+                    }
+                    pairs.candidates++;
+                    if (frame.overlap(a, b)) {
+                        pairs.add(a, b);
+                    }
+                }
+            }
+            return pairs;
+        }
+    }
+
+    // Splits the bands in halves until there is one left to update on one thread - the pairs of the first half come
+    // first
+    private static class BandTask extends RecursiveTask<Pairs> {
+        private final Frame frame;
+        private final Band[] bands;
+        private final int from;
+        private final int to;
+
+        BandTask(Frame frame, Band[] bands, int from, int to) {
+            this.frame = frame;
+            this.bands = bands;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Pairs compute() {
+            if (to - from == 1) {
+                return bands[from].update(frame, from);
+            }
+            int middle = (from + to) >>> 1;
+            BandTask first = new BandTask(frame, bands, from, middle);
+            BandTask second = new BandTask(frame, bands, middle, to);
+            invokeAll(first, second);
+            Pairs pairs = first.join();
+            pairs.addAll(second.join());
+            return pairs;
+        }
+    }
+
+    /* ===== NARROW PHASE ===== */
+
+    // Differences of int co-ordinates take up to 33 bits and their products up to 66 : every test below only needs the
+    // sign of such products, taken with ExactSign so that shapes far apart (or huge) never overflow a long
+
+    static boolean circlesOverlap(long x1, long y1, long radius1, long x2, long y2, long radius2) {
+        long dx = x2 - x1;
+        long dy = y2 - y1;
+        long radii = Math.abs(radius1) + Math.abs(radius2);
+        return ExactSign.of((double) dx * dx + (double) dy * dy - (double) radii * radii,
+                dx * dx + dy * dy - radii * radii) <= 0;
+    }
+
+    static boolean circleTriangleOverlap(long cx, long cy, long radius, long x1, long y1, long x2, long y2, long x3,
+                                         long y3) {
+        int d1 = side(cx, cy, x1, y1, x2, y2);
+        int d2 = side(cx, cy, x2, y2, x3, y3);
+        int d3 = side(cx, cy, x3, y3, x1, y1);
+        boolean negative = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean positive = d1 > 0 || d2 > 0 || d3 > 0;
+        if (negative != positive) {
+            // The center is inside the triangle (a flat triangle is left to the edges)
+            return true;
+        }
+        radius = Math.abs(radius);
+        return edgeWithin(cx, cy, radius, x1, y1, x2, y2) || edgeWithin(cx, cy, radius, x2, y2, x3, y3)
+                || edgeWithin(cx, cy, radius, x3, y3, x1, y1);
+    }
+
+    // Whether the closest point of the edge a-b is at most radius away from (x, y)
+    private static boolean edgeWithin(long x, long y, long radius, long ax, long ay, long bx, long by) {
+        long ex = bx - ax, ey = by - ay;
+        long wx = x - ax, wy = y - ay;
+        // Before a : the dot product of the edge and (point - a) is not positive
+        if ((ex == 0 && ey == 0) || ExactSign.of((double) ex * wx + (double) ey * wy, ex * wx + ey * wy) <= 0) {
+            return distanceWithin(wx, wy, radius);
+        }
+        // Past b : the dot product of the edge and (point - b) is not negative
+        long vx = x - bx, vy = y - by;
+        if (ExactSign.of((double) ex * vx + (double) ey * vy, ex * vx + ey * vy) >= 0) {
+            return distanceWithin(vx, vy, radius);
+        }
+        // Distance to the line : cross / |edge| <= radius, squared to stay away from square roots
+        double cross = (double) ex * wy - (double) ey * wx;
+        return cross * cross <= (double) radius * radius * ((double) ex * ex + (double) ey * ey);
+    }
+
+    private static boolean distanceWithin(long dx, long dy, long radius) {
+        return ExactSign.of((double) dx * dx + (double) dy * dy - (double) radius * radius,
+                dx * dx + dy * dy - radius * radius) <= 0;
+    }
+
+    static boolean trianglesOverlap(long ax1, long ay1, long ax2, long ay2, long ax3, long ay3,
+                                    long bx1, long by1, long bx2, long by2, long bx3, long by3) {
+        return !separates(ax1, ay1, ax2, ay2, ax3, ay3, bx1, by1, bx2, by2, bx3, by3)
+                && !separates(ax2, ay2, ax3, ay3, ax1, ay1, bx1, by1, bx2, by2, bx3, by3)
+                && !separates(ax3, ay3, ax1, ay1, ax2, ay2, bx1, by1, bx2, by2, bx3, by3)
+                && !separates(bx1, by1, bx2, by2, bx3, by3, ax1, ay1, ax2, ay2, ax3, ay3)
+                && !separates(bx2, by2, bx3, by3, bx1, by1, ax1, ay1, ax2, ay2, ax3, ay3)
+                && !separates(bx3, by3, bx1, by1, bx2, by2, ax1, ay1, ax2, ay2, ax3, ay3);
+    }
+
+    // Whether the normal of the edge a-b separates its triangle (a, b and the opposite point o) from the other
+    // triangle (p1, p2, p3) : the other triangle is strictly on one side of the edge, and strictly past o as well when
+    // o is on that side too (the distance of p past o is the side of p relative to the parallel to a-b through o)
+    private static boolean separates(long ax, long ay, long bx, long by, long ox, long oy,
+                                     long x1, long y1, long x2, long y2, long x3, long y3) {
+        int c1 = side(x1, y1, ax, ay, bx, by);
+        int c2 = side(x2, y2, ax, ay, bx, by);
+        int c3 = side(x3, y3, ax, ay, bx, by);
+        int direction;
+        if (c1 > 0 && c2 > 0 && c3 > 0) {
+            direction = 1;
+        } else if (c1 < 0 && c2 < 0 && c3 < 0) {
+            direction = -1;
+        } else {
+            return false;
+        }
+        if (side(ox, oy, ax, ay, bx, by) * direction <= 0) {
+            return true;
+        }
+        long ex = bx - ax, ey = by - ay;
+        return ExactSign.cross(ex, y1 - oy, ey, x1 - ox) == direction
+                && ExactSign.cross(ex, y2 - oy, ey, x2 - ox) == direction
+                && ExactSign.cross(ex, y3 - oy, ey, x3 - ox) == direction;
+    }
+
+    // Sign of the cross product of (b - a) and (point - a) : which side of the line a-b the point is on
+    private static int side(long x, long y, long ax, long ay, long bx, long by) {
+        return ExactSign.cross(bx - ax, y - ay, by - ay, x - ax);
+    }
+
+    /* ===== PAIRS ===== */
+
+    // The overlapping pairs of a frame, as shape numbers - first(i) < second(i)
+    public static class Pairs {
+        private long[] pairs = new long[16];
+        private int size;
+        long candidates;
+        boolean incremental;
+
+        void add(int first, int second) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+            }
+            pairs[size++] = (long) first << 32 | second;
+        }
+
+        void addAll(Pairs other) {
+            if (size + other.size > pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.pairs, 0, pairs, size, other.size);
+            size += other.size;
+            candidates += other.candidates;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int first(int index) {
+            return (int) (pairs[index] >>> 32);
+        }
+
+        public int second(int index) {
+            return (int) pairs[index];
+        }
+
+        // Pairs whose bounding boxes overlap, all tested by the narrow phase
+        public long getCandidates() {
+            return candidates;
+        }
+
+        // Whether the order of the previous frame was reused (insertion sort) instead of sorting from scratch
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        @Override
+        public String toString() {
+            return size + " overlapping pairs out of " + candidates + " candidates";
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.nizz.springgradle;
+
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * =================================
+ *     COMPILED MESSAGE SOURCE
+ * =================================
+ * getMessage(code, new Object[] {...}, locale) looks the message up in the properties files, then formats it with a
+ * MessageFormat - which is not thread-safe, so Spring locks it for every call - and the arguments have to be boxed
+ * into an Object array.
+ *
+ * This message source keeps, per locale and code, the message pattern compiled into its literal parts and argument
+ * positions. The getMessage overloads taking int arguments fill the pattern directly: no boxing, no lock and no
+ * MessageFormat involved. The numbers are written the way MessageFormat writes them for the locale (grouping
+ * separator, minus sign, etc.), so the result is the same as the regular getMessage
+ *
+ * Patterns that use anything other than {n} and {n,number} / {n,number,integer} (dates, choices, custom number
+ * styles) are still formatted by a MessageFormat, compiled once and cached as well
+ *
+ * With cacheSeconds set, the properties files are checked for changes every cacheSeconds (check
+ * ReloadableResourceBundleMessageSource) - when a file changed, every compiled message is thrown away
+ *
+ * */
+public class CompiledMessageSource extends ReloadableResourceBundleMessageSource {
+    // No message for the code - the default message (or the parent message source) is used
+    private static final CompiledMessage MISSING = new CompiledMessage(null, new Object[0], null, null);
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final ConcurrentMap<Locale, ConcurrentMap<String, CompiledMessage>> compiledMessages =
+            new ConcurrentHashMap<Locale, ConcurrentMap<String, CompiledMessage>>();
+    private final ConcurrentMap<Locale, IntFormat> intFormats = new ConcurrentHashMap<Locale, IntFormat>();
+    private volatile long cacheMillis = -1;
+
+    @Override
+    public void setCacheSeconds(int cacheSeconds) {
+        super.setCacheSeconds(cacheSeconds);
+        this.cacheMillis = cacheSeconds * 1000L;
+    }
+
+    public String getMessage(String code, int arg0, String defaultMessage, Locale locale) {
+        return format(code, 1, arg0, 0, 0, defaultMessage, locale);
+    }
+
+    public String getMessage(String code, int arg0, int arg1, String defaultMessage, Locale locale) {
+        return format(code, 2, arg0, arg1, 0, defaultMessage, locale);
+    }
+
+    public String getMessage(String code, int arg0, int arg1, int arg2, String defaultMessage, Locale locale) {
+        return format(code, 3, arg0, arg1, arg2, defaultMessage, locale);
+    }
+
+    private String format(String code, int argCount, int arg0, int arg1, int arg2, String defaultMessage,
+                          Locale locale) {
+        if (locale == null) {
+            locale = Locale.getDefault();
+        }
+        CompiledMessage message = lookup(code, locale);
+        if (message == MISSING) {
+            // Let Spring deal with the parent message source, useCodeAsDefaultMessage, etc. - the slow path
+            Object[] args = argCount == 1 ? new Object[] {arg0}
+                    : argCount == 2 ? new Object[] {arg0, arg1} : new Object[] {arg0, arg1, arg2};
+            return getMessage(code, args, defaultMessage, locale);
+        }
+        return message.format(argCount, arg0, arg1, arg2);
+    }
+
+    private CompiledMessage lookup(String code, Locale locale) {
+        ConcurrentMap<String, CompiledMessage> messages = compiledMessages.get(locale);
+        if (messages == null) {
+            ConcurrentMap<String, CompiledMessage> created = new ConcurrentHashMap<String, CompiledMessage>();
+            messages = compiledMessages.putIfAbsent(locale, created);
+            if (messages == null) {
+                messages = created;
+            }
+        }
+        CompiledMessage message = messages.get(code);
+        if (message != null && (cacheMillis < 0 || System.currentTimeMillis() < message.revalidateAt)) {
+            return message;
+        }
+        // Not compiled yet, or time to check the files again : going through the properties lets the parent class
+        // reload the files that changed (which clears compiledMessages, see refreshProperties)
+        String pattern = resolveCodeWithoutArguments(code, locale);
+        long revalidateAt = cacheMillis < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + cacheMillis;
+        if (message != null && message != MISSING && message.pattern.equals(pattern)) {
+            message.revalidateAt = revalidateAt;
+            return message;
+        }
+        message = pattern == null ? MISSING : compile(pattern, locale);
+        if (message != MISSING) {
+            message.revalidateAt = revalidateAt;
+        }
+        messages.put(code, message);
+        return message;
+    }
+
+    @Override
+    protected PropertiesHolder refreshProperties(String filename, PropertiesHolder propHolder) {
+        PropertiesHolder refreshed = super.refreshProperties(filename, propHolder);
+        if (propHolder != null && refreshed.getFileTimestamp() != propHolder.getFileTimestamp()) {
+            compiledMessages.clear();
+        }
+        return refreshed;
+    }
+
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        compiledMessages.clear();
+    }
+
+    private CompiledMessage compile(String pattern, Locale locale) {
+        IntFormat intFormat = intFormatFor(locale);
+        Object[] parts = intFormat != null ? parse(pattern) : null;
+        if (parts == null) {
+            MessageFormat messageFormat = new MessageFormat("");
+            messageFormat.setLocale(locale);
+            messageFormat.applyPattern(pattern);
+            return new CompiledMessage(pattern, null, null, messageFormat);
+        }
+        return new CompiledMessage(pattern, parts, intFormat, null);
+    }
+
+    // Splits the pattern into literal Strings and Integer argument indexes, following the MessageFormat quoting rules
+    // - returns null if the pattern needs a real MessageFormat
+    private static Object[] parse(String pattern) {
+        List<Object> parts = new ArrayList<Object>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                    literal.append('\'');
+                    i += 2;
+                    continue;
+                }
+                // Quoted text runs until the next single quote ('' inside it is a quote as well)
+                i++;
+                while (i < pattern.length()) {
+                    if (pattern.charAt(i) == '\'') {
+                        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                            literal.append('\'');
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(pattern.charAt(i++));
+                }
+                i++;
+            } else if (c == '{') {
+                int end = pattern.indexOf('}', i);
+                if (end < 0 || pattern.indexOf('{', i + 1) >= 0 && pattern.indexOf('{', i + 1) < end) {
+                    return null;
+                }
+                String[] element = pattern.substring(i + 1, end).split(",", -1);
+                String type = element.length > 1 ? element[1].trim() : null;
+                String style = element.length > 2 ? element[2].trim() : null;
+                if (element.length > 3 || type != null && !("number".equals(type)
+                        && (style == null || "integer".equals(style)))) {
+                    return null;
+                }
+                int index;
+                try {
+                    index = Integer.parseInt(element[0].trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (literal.length() > 0) {
+                    parts.add(literal.toString());
+                    literal.setLength(0);
+                }
+                parts.add(index);
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+        }
+        return parts.toArray();
+    }
+
+    // How MessageFormat writes an integer for the locale - null if the locale does not use a DecimalFormat
+    private IntFormat intFormatFor(Locale locale) {
+        IntFormat intFormat = intFormats.get(locale);
+        if (intFormat == null) {
+            NumberFormat numberFormat = NumberFormat.getInstance(locale);
+            if (!(numberFormat instanceof DecimalFormat)) {
+                return null;
+            }
+            intFormat = new IntFormat((DecimalFormat) numberFormat);
+            intFormats.putIfAbsent(locale, intFormat);
+        }
+        return intFormat;
+    }
+
+    private static class CompiledMessage {
+        final String pattern;
+        // String literals and Integer argument indexes, or null if messageFormat is used
+        final Object[] parts;
+        final IntFormat intFormat;
+        final MessageFormat messageFormat;
+        volatile long revalidateAt;
+
+        CompiledMessage(String pattern, Object[] parts, IntFormat intFormat, MessageFormat messageFormat) {
+            this.pattern = pattern;
+            this.parts = parts;
+            this.intFormat = intFormat;
+            this.messageFormat = messageFormat;
+        }
+
+        String format(int argCount, int arg0, int arg1, int arg2) {
+            if (messageFormat != null) {
+                Object[] args = argCount == 1 ? new Object[] {arg0}
+                        : argCount == 2 ? new Object[] {arg0, arg1} : new Object[] {arg0, arg1, arg2};
+                synchronized (messageFormat) {
+                    return messageFormat.format(args);
+                }
+            }
+            StringBuilder out = new StringBuilder(pattern.length() + 16);
+            for (Object part : parts) {
+                if (part instanceof String) {
+                    out.append((String) part);
+                    continue;
+                }
+                int index = (Integer) part;
+                if (index >= argCount) {
+                    // Same as MessageFormat : an argument that was not given stays as it is
+                    out.append('{').append(index).append('}');
+                } else {
+                    intFormat.append(out, index == 0 ? arg0 : index == 1 ? arg1 : arg2);
+                }
+            }
+            return out.toString();
+        }
+    }
+
+    private static class IntFormat {
+        final String positivePrefix;
+        final String positiveSuffix;
+        final String negativePrefix;
+        final String negativeSuffix;
+        final boolean grouping;
+        final int groupingSize;
+        final char groupingSeparator;
+        final char zeroDigit;
+
+        IntFormat(DecimalFormat decimalFormat) {
+            DecimalFormatSymbols symbols = decimalFormat.getDecimalFormatSymbols();
+            positivePrefix = decimalFormat.getPositivePrefix();
+            positiveSuffix = decimalFormat.getPositiveSuffix();
+            negativePrefix = decimalFormat.getNegativePrefix();
+            negativeSuffix = decimalFormat.getNegativeSuffix();
+            grouping = decimalFormat.isGroupingUsed() && decimalFormat.getGroupingSize() > 0;
+            groupingSize = decimalFormat.getGroupingSize();
+            groupingSeparator = symbols.getGroupingSeparator();
+            zeroDigit = symbols.getZeroDigit();
+        }
+
+        void append(StringBuilder out, int value) {
+            long magnitude = Math.abs((long) value);
+            out.append(value < 0 ? negativePrefix : positivePrefix);
+            int digits = 1;
+            while (digits < POWERS_OF_TEN.length && magnitude >= POWERS_OF_TEN[digits]) {
+                digits++;
+            }
+            for (int i = digits - 1; i >= 0; i--) {
+                out.append((char) (zeroDigit + (magnitude / POWERS_OF_TEN[i]) % 10));
+                if (grouping && i > 0 && i % groupingSize == 0) {
+                    out.append(groupingSeparator);
+                }
+            }
+            out.append(value < 0 ? negativeSuffix : positiveSuffix);
+        }
+    }
+}
@@ -1,8 +1,32 @@
 package org.nizz.springgradle;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /*
  * =================================
@@ -11,10 +35,267 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
  * Runs during bean factory initialization - before the beans are initialized
  * This is called even if we use Application Context because it is ultimately a bean-factory with additional features
  *
+ * Since it can change the bean definitions before any singleton is created, this one also works as a lazy-init
+ * optimizer : every singleton in springApplicationContext.xml is created when the context starts, even the ones Main
+ * never asks for. With -Dspringgradle.lazyInit (or the mode property):
+ * 1. OFF : nothing changes (the default)
+ * 2. RECORD : every singleton is made lazy, so only the beans the application actually uses get created. When the
+ * context is closed, the beans that were used are written to the access profile - the ones that were not are then
+ * created one by one, only to measure how long they take and how much they allocate, and written as well
+ * 3. OPTIMIZE : the singletons that are neither in the access profile of a previous run nor in eagerBeans (the
+ * allow-list) are marked lazy-init. A report of what was deferred and what it saves is printed after the refresh
+ *
+ * A deferred bean is still created the first time something asks for it - getBean, or another bean that needs it -
+ * so a profile that misses a bean only moves its creation later, it never breaks the application
+ *
+ * Post processors are never deferred (Spring creates them before the other beans whatever their lazy-init)
+ *
+ * NOTE: The heap saved is what the beans allocated while they were created (HotSpot counts the bytes allocated by
+ * each thread) - the memory they keep afterwards can only be less
+ *
  * */
-public class CustomBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+public class CustomBeanFactoryPostProcessor implements BeanFactoryPostProcessor,
+        ApplicationListener<ApplicationContextEvent> {
+
+    public enum Mode {
+        OFF, RECORD, OPTIMIZE
+    }
+
+    private static final String USED = "used";
+    private static final String UNUSED = "unused";
+
+    private Mode mode = modeProperty();
+    private Path profile = Paths.get("build", "bean-access.profile");
+    private Set<String> eagerBeans = Collections.emptySet();
+    private ConfigurableListableBeanFactory beanFactory;
+    // Singletons made lazy by this post processor, in the order of their definitions
+    private final List<String> deferred = new ArrayList<String>();
+    private long postProcessedAt;
+
+    // -Dspringgradle.lazyInit, in any case - a misspelled mode names the property and the valid ones instead of
+    // failing with a bare "No enum constant"
+    private static Mode modeProperty() {
+        String value = System.getProperty("springgradle.lazyInit", "off");
+        for (Mode candidate : Mode.values()) {
+            if (candidate.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Invalid -Dspringgradle.lazyInit=" + value + ", expected off, record or "
+                + "optimize");
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = Paths.get(profile);
+    }
+
+    public void setEagerBeans(List<String> eagerBeans) {
+        this.eagerBeans = new HashSet<String>(eagerBeans);
+    }
+
+    public List<String> getDeferredBeans() {
+        return Collections.unmodifiableList(deferred);
+    }
+
     @Override
     public void postProcessBeanFactory(ConfigurableListableBeanFactory configurableListableBeanFactory) throws BeansException {
-        System.out.println("Inside postProcessBeanFactory -----");
+        LifecycleLog.println("Inside postProcessBeanFactory -----");
+        this.beanFactory = configurableListableBeanFactory;
+        this.postProcessedAt = System.nanoTime();
+        deferred.clear();
+        if (mode == Mode.OFF) {
+            return;
+        }
+        Set<String> keep = new HashSet<String>(eagerBeans);
+        if (mode == Mode.OPTIMIZE) {
+            Map<String, Cost> recorded = readProfile();
+            if (recorded == null && eagerBeans.isEmpty()) {
+                System.out.println("Lazy-init optimizer: no access profile at " + profile + " and no eagerBeans - "
+                        + "nothing deferred (run once with -Dspringgradle.lazyInit=record)");
+                return;
+            }
+            if (recorded != null) {
+                for (Map.Entry<String, Cost> entry : recorded.entrySet()) {
+                    if (entry.getValue() == null) {
+                        keep.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (definition.isAbstract() || !definition.isSingleton() || definition.isLazyInit()
+                    || keep.contains(beanName) || beanFactory.containsSingleton(beanName)
+                    || isPostProcessor(beanName)) {
+                continue;
+            }
+            definition.setLazyInit(true);
+            deferred.add(beanName);
+        }
+    }
+
+    private boolean isPostProcessor(String beanName) {
+        String className = beanFactory.getMergedBeanDefinition(beanName).getBeanClassName();
+        if (className == null) {
+            return false;
+        }
+        try {
+            Class<?> beanClass = ClassUtils.forName(className, beanFactory.getBeanClassLoader());
+            return BeanFactoryPostProcessor.class.isAssignableFrom(beanClass)
+                    || BeanPostProcessor.class.isAssignableFrom(beanClass);
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        if (mode == Mode.OPTIMIZE && event instanceof ContextRefreshedEvent) {
+            printReport();
+        } else if (mode == Mode.RECORD && event instanceof ContextClosedEvent) {
+            // Before the singletons are destroyed : the beans never used can still be created to measure them
+            writeProfile();
+        }
+    }
+
+    /* ===== RECORD ===== */
+
+    private void writeProfile() {
+        Map<String, Cost> costs = new LinkedHashMap<String, Cost>();
+        List<String> unused = new ArrayList<String>();
+        for (String beanName : deferred) {
+            if (beanFactory.containsSingleton(beanName)) {
+                costs.put(beanName, null);
+            } else {
+                unused.add(beanName);
+            }
+        }
+        // A bean also creates the unused beans it depends on - they are counted in its cost and cost nothing after
+        for (String beanName : unused) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            try {
+                beanFactory.getBean(beanName);
+            } catch (BeansException e) {
+                System.out.println("Lazy-init optimizer: could not measure " + beanName + ": " + e.getMessage());
+                continue;
+            }
+            long nanos = System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes();
+            costs.put(beanName, new Cost(nanos, allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore));
+        }
+        try {
+            if (profile.getParent() != null) {
+                Files.createDirectories(profile.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(profile, StandardCharsets.UTF_8)) {
+                writer.write("# Bean access profile written by CustomBeanFactoryPostProcessor (RECORD mode)\n");
+                writer.write("# used <bean> | unused <bean> <creation nanos> <allocated bytes>\n");
+                for (Map.Entry<String, Cost> entry : costs.entrySet()) {
+                    Cost cost = entry.getValue();
+                    writer.write(cost == null ? USED + " " + entry.getKey()
+                            : UNUSED + " " + entry.getKey() + " " + cost.nanos + " " + cost.bytes);
+                    writer.write('\n');
+                }
+            }
+            System.out.println("Lazy-init optimizer: recorded " + (costs.size() - unused.size()) + " used and "
+                    + unused.size() + " unused singleton beans in " + profile);
+        } catch (IOException e) {
+            System.out.println("Lazy-init optimizer: could not write " + profile + ": " + e.getMessage());
+        }
+    }
+
+    /* ===== OPTIMIZE ===== */
+
+    // Bean name -> null for a used bean, its cost for an unused one - or null if there is no profile to read
+    private Map<String, Cost> readProfile() {
+        if (!Files.isRegularFile(profile)) {
+            return null;
+        }
+        Map<String, Cost> recorded = new LinkedHashMap<String, Cost>();
+        try {
+            for (String line : Files.readAllLines(profile, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields[0].isEmpty() || fields[0].startsWith("#")) {
+                    continue;
+                }
+                if (USED.equals(fields[0]) && fields.length == 2) {
+                    recorded.put(fields[1], null);
+                } else if (UNUSED.equals(fields[0]) && fields.length == 4) {
+                    recorded.put(fields[1], new Cost(Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+                } else {
+                    throw new IOException("invalid line \"" + line + "\"");
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Lazy-init optimizer: ignored " + profile + ": " + e.getMessage());
+            return null;
+        }
+        return recorded;
+    }
+
+    private void printReport() {
+        long refreshNanos = System.nanoTime() - postProcessedAt;
+        Map<String, Cost> recorded = readProfile();
+        int createdAnyway = 0;
+        int measured = 0;
+        long savedNanos = 0;
+        long savedBytes = 0;
+        for (String beanName : deferred) {
+            if (beanFactory.containsSingleton(beanName)) {
+                createdAnyway++;
+                continue;
+            }
+            Cost cost = recorded == null ? null : recorded.get(beanName);
+            if (cost != null) {
+                measured++;
+                savedNanos += cost.nanos;
+                savedBytes += Math.max(0, cost.bytes);
+            }
+        }
+        int singletons = 0;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (!definition.isAbstract() && definition.isSingleton()) {
+                singletons++;
+            }
+        }
+        System.out.println(String.format("Lazy-init optimizer: deferred %d of %d singleton beans (%d created during "
+                        + "refresh anyway) - startup saved %.1f ms and %.1f KB allocated for the %d measured by the "
+                        + "recorded run; the refresh took %.1f ms after the bean definitions were loaded",
+                deferred.size(), singletons, createdAnyway, savedNanos / 1e6, savedBytes / 1024.0, measured,
+                refreshNanos / 1e6));
+    }
+
+    // Bytes allocated so far by the current thread, or -1 if the JVM does not count them
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static class Cost {
+        final long nanos;
+        final long bytes;
+
+        Cost(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
     }
 }
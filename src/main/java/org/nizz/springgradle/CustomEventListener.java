@@ -1,14 +1,14 @@
 package org.nizz.springgradle;
 
-import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
 
-// Listens to every event in the application
+// Listens only to DrawEvents - the generic type argument tells the multicaster which events to deliver, so the
+// listener does not have to check the type of the event itself (a raw ApplicationListener gets every event)
 @Component
-public class CustomEventListener implements ApplicationListener {
+public class CustomEventListener implements ApplicationListener<DrawEvent> {
     @Override
-    public void onApplicationEvent(ApplicationEvent applicationEvent) {
-        System.out.println("Listened to event: " + applicationEvent.toString() + "\n");
+    public void onApplicationEvent(DrawEvent drawEvent) {
+        System.out.println("Listened to event: " + drawEvent.toString() + "\n");
     }
 }
@@ -14,13 +14,13 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
 public class DisplayBeanNamePostProcessor implements BeanPostProcessor {
     @Override
     public Object postProcessBeforeInitialization(Object beanObject, String beanName) throws BeansException {
-        System.out.println("Inside postProcessBeforeInitialization for bean : " + beanName);
+        LifecycleLog.println("Inside postProcessBeforeInitialization for bean : " + beanName);
         return beanObject;
     }
 
     @Override
     public Object postProcessAfterInitialization(Object beanObject, String beanName) throws BeansException {
-        System.out.println("Inside postProcessAfterInitialization for bean : " + beanName + "\n");
+        LifecycleLog.println("Inside postProcessAfterInitialization for bean : " + beanName + "\n");
         return beanObject;
     }
 }
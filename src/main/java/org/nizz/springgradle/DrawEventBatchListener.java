@@ -0,0 +1,11 @@
+package org.nizz.springgradle;
+
+import org.springframework.context.ApplicationListener;
+
+import java.util.List;
+
+// Listener that can take several DrawEvents at once - when AsyncDrawEventMulticaster delivers a batch of events, it
+// calls onDrawEvents once instead of calling onApplicationEvent for every event in the batch
+public interface DrawEventBatchListener extends ApplicationListener<DrawEvent> {
+    public void onDrawEvents(List<DrawEvent> drawEvents);
+}
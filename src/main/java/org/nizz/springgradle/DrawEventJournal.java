@@ -0,0 +1,381 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * =================================
+ *        DRAW EVENT JOURNAL
+ * =================================
+ * A DrawEvent is forgotten once the listeners have seen it - this listener keeps an audit trail of what was drawn, in
+ * an append-only log that DrawEventReplayer can publish again later
+ *
+ * Every event is one binary record (little-endian), its kind written last so that a reader never sees half a record :
+ * - circle : kind 1, timestamp (long, ms), center x, center y, radius - 21 bytes
+ * - triangle : kind 2, timestamp, x1, y1, x2, y2, x3, y3, height - 37 bytes
+ * - any other source : kind 3, timestamp - 9 bytes
+ * A kind of 0 marks the end of the records
+ *
+ * The records go to segments of segmentSize bytes (drawevents-00000000.journal, drawevents-00000001.journal, etc.)
+ * created full size and memory-mapped : appending a record is a few writes to memory, no system call. When a record
+ * does not fit in the current segment, the next one is started. A journal opened on a directory that already has
+ * segments continues after the last record
+ *
+ * Group commit : the mapped pages reach the disk when the operating system decides, unless they are forced - forcing
+ * them after every record would cost a disk write per event, so they are forced once groupCommitSize records are
+ * waiting, at most groupCommitMillis after the first of them (by a background thread), once per batch delivered by
+ * AsyncDrawEventMulticaster, and when the journal is closed
+ *
+ * The shape is read when the event reaches the journal - with an asynchronous multicaster, a shape moved in between is
+ * recorded where it is, not where it was drawn
+ *
+ * */
+public class DrawEventJournal implements DrawEventBatchListener, InitializingBean, DisposableBean {
+    static final int MAGIC = 0x314A4544; // "DEJ1" in little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final byte END = 0;
+    static final byte CIRCLE = 1;
+    static final byte TRIANGLE = 2;
+    static final byte OTHER = 3;
+    private static final int MAX_RECORD_BYTES = 37;
+    private static final String PREFIX = "drawevents-";
+    private static final String SUFFIX = ".journal";
+
+    private Path directory = Paths.get("build", "draw-journal");
+    private int segmentSize = 16 * 1024 * 1024;
+    private int groupCommitSize = 256;
+    private long groupCommitMillis = 10;
+
+    private int segmentIndex;
+    private MappedByteBuffer segment;
+    private int pending;
+    private long firstPendingNanos;
+    private long recordCount;
+    private long commitCount;
+    private Thread committer;
+    private boolean closed;
+
+    public DrawEventJournal() {
+    }
+
+    public DrawEventJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        if (segmentSize < HEADER_BYTES + MAX_RECORD_BYTES + 1) {
+            throw new IllegalArgumentException("segmentSize is too small : " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    public void setGroupCommitSize(int groupCommitSize) {
+        this.groupCommitSize = Math.max(1, groupCommitSize);
+    }
+
+    // 0 : no background commit - only by count, per batch and on close
+    public void setGroupCommitMillis(long groupCommitMillis) {
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    @Override
+    public synchronized void afterPropertiesSet() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            // Continue after the last record of the last segment
+            Path last = segments.get(segments.size() - 1);
+            segmentIndex = segmentIndex(last);
+            try (FileChannel channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            checkHeader(segment, last);
+            segment.position(HEADER_BYTES);
+            while (skipRecord(segment)) {
+                // move to the end of the records
+            }
+        }
+        if (groupCommitMillis > 0) {
+            committer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    commitLoop();
+                }
+            }, "draw-event-journal");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        segmentIndex = index;
+        Path path = directory.resolve(String.format("%s%08d%s", PREFIX, index, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC).putInt(VERSION);
+    }
+
+    @Override
+    public void onApplicationEvent(DrawEvent drawEvent) {
+        synchronized (this) {
+            append(drawEvent);
+            if (pending >= groupCommitSize) {
+                commit();
+            }
+        }
+    }
+
+    // A batch from AsyncDrawEventMulticaster : one commit for all of it
+    @Override
+    public void onDrawEvents(List<DrawEvent> drawEvents) {
+        synchronized (this) {
+            for (DrawEvent drawEvent : drawEvents) {
+                append(drawEvent);
+            }
+            commit();
+        }
+    }
+
+    private void append(DrawEvent drawEvent) {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        if (segment.remaining() < MAX_RECORD_BYTES + 1) {
+            roll();
+        }
+        MappedByteBuffer segment = this.segment;
+        int start = segment.position();
+        segment.position(start + 1);
+        segment.putLong(drawEvent.getTimestamp());
+        Object source = drawEvent.getSource();
+        byte kind;
+        if (source instanceof Circle && ((Circle) source).hasCenter()) {
+            Circle circle = (Circle) source;
+            long center = circle.getCenterLocation();
+            segment.putInt(Point.locationX(center)).putInt(Point.locationY(center)).putInt(circle.getRadius());
+            kind = CIRCLE;
+        } else if (source instanceof Triangle && ((Triangle) source).hasPoints()) {
+            Triangle triangle = (Triangle) source;
+            putPoint(triangle.getLocation(0));
+            putPoint(triangle.getLocation(1));
+            putPoint(triangle.getLocation(2));
+            segment.putInt(triangle.getHeight());
+            kind = TRIANGLE;
+        } else {
+            kind = OTHER;
+        }
+        segment.put(start, kind);
+        if (pending++ == 0) {
+            firstPendingNanos = System.nanoTime();
+        }
+        recordCount++;
+    }
+
+    private void putPoint(long location) {
+        segment.putInt(Point.locationX(location)).putInt(Point.locationY(location));
+    }
+
+    // The current segment is complete : forced to the disk before writing to the next one
+    private void roll() {
+        segment.force();
+        try {
+            openSegment(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start segment " + (segmentIndex + 1) + " of " + directory, e);
+        }
+    }
+
+    // Forces the waiting records to the disk
+    public synchronized void commit() {
+        if (pending > 0 && segment != null) {
+            segment.force();
+            pending = 0;
+            commitCount++;
+        }
+    }
+
+    private void commitLoop() {
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        try {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    waitNanos = pending == 0 ? periodNanos : firstPendingNanos + periodNanos - System.nanoTime();
+                    if (pending > 0 && waitNanos <= 0) {
+                        commit();
+                        waitNanos = periodNanos;
+                    }
+                }
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        } catch (InterruptedException e) {
+            // close()
+        }
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    // Number of times the records were forced to the disk
+    public synchronized long getCommitCount() {
+        return commitCount;
+    }
+
+    public void close() {
+        Thread committer;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            commit();
+            closed = true;
+            committer = this.committer;
+        }
+        if (committer != null) {
+            committer.interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        close();
+    }
+
+    /* ===== READING ===== */
+
+    // Called for every record of a journal, in the order they were written
+    public interface RecordVisitor {
+        void circle(long timestamp, int centerX, int centerY, int radius);
+
+        void triangle(long timestamp, int x1, int y1, int x2, int y2, int x3, int y3, int height);
+
+        void other(long timestamp);
+    }
+
+    // Reads every segment of the directory - returns the number of records
+    // The records read are the ones there when read is called, counted before the first one is visited : records a
+    // journal appends in the meantime (a replay into a context that journals its own events) are left for the next read
+    public static long read(Path directory, RecordVisitor visitor) throws IOException {
+        List<Path> paths = segments(directory);
+        MappedByteBuffer[] segments = new MappedByteBuffer[paths.size()];
+        int[] records = new int[paths.size()];
+        for (int s = 0; s < segments.length; s++) {
+            Path path = paths.get(s);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            MappedByteBuffer segment = segments[s];
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            checkHeader(segment, path);
+            segment.position(HEADER_BYTES);
+            // A record cut off by the end of the file (a segment copied or truncated by hand) is not counted : the
+            // records before it are complete, this one is not
+            while (skipRecord(segment)) {
+                records[s]++;
+            }
+            if (segment.remaining() > 0 && segment.get(segment.position()) != END
+                    && recordSize(segment.get(segment.position())) == 0) {
+                throw new IOException("Corrupted record at " + segment.position() + " in " + path);
+            }
+        }
+        long count = 0;
+        for (int s = 0; s < segments.length; s++) {
+            MappedByteBuffer segment = segments[s];
+            segment.position(HEADER_BYTES);
+            for (int i = 0; i < records[s]; i++) {
+                byte kind = segment.get();
+                long timestamp = segment.getLong();
+                if (kind == CIRCLE) {
+                    visitor.circle(timestamp, segment.getInt(), segment.getInt(), segment.getInt());
+                } else if (kind == TRIANGLE) {
+                    visitor.triangle(timestamp, segment.getInt(), segment.getInt(), segment.getInt(), segment.getInt(),
+                            segment.getInt(), segment.getInt(), segment.getInt());
+                } else {
+                    visitor.other(timestamp);
+                }
+            }
+            count += records[s];
+        }
+        return count;
+    }
+
+    // Moves past one record - false at the end of the records (the position is then on the end marker)
+    private static boolean skipRecord(MappedByteBuffer segment) {
+        if (segment.remaining() == 0) {
+            return false;
+        }
+        int size = recordSize(segment.get(segment.position()));
+        if (size == 0 || segment.remaining() < size) {
+            return false;
+        }
+        segment.position(segment.position() + size);
+        return true;
+    }
+
+    // Bytes of a record of that kind, kind included - 0 for the end marker or an unknown kind
+    private static int recordSize(byte kind) {
+        return kind == CIRCLE ? 21 : kind == TRIANGLE ? 37 : kind == OTHER ? 9 : 0;
+    }
+
+    private static void checkHeader(MappedByteBuffer segment, Path path) throws IOException {
+        if (segment.capacity() < HEADER_BYTES || segment.getInt(0) != MAGIC) {
+            throw new IOException("Not a draw event journal segment : " + path);
+        }
+        if (segment.getInt(4) != VERSION) {
+            throw new IOException("Unsupported journal version " + segment.getInt(4) + " in " + path);
+        }
+    }
+
+    // The segments of the directory, in the order they were written
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<Path>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static int segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,204 @@
+package org.nizz.springgradle;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * =================================
+ *       DRAW EVENT REPLAYER
+ * =================================
+ * Publishes the events of a DrawEventJournal again, through ApplicationEventPublisher.publishEvent - the listeners get
+ * the same kind of DrawEvents as when the shapes were drawn, which makes a journal a ready-made load test:
+ * - speed 1 : at the recorded pace (the time between two events is the time between their timestamps)
+ * - speed 2, 10, etc. : that many times faster
+ * - speed 0 : as fast as the publisher accepts them
+ *
+ * Every record becomes a new Circle or Triangle (not a bean - the listeners only read them) with the recorded
+ * co-ordinates, so the events carry the shapes as they were when they were journaled
+ *
+ * With AsyncDrawEventMulticaster, publishEvent returns before the listeners run : the replay waits until the listeners
+ * got every event it published before it stops the clock, so the events per second are events delivered, not queued
+ *
+ * A context with a DrawEventJournal journals the replayed events too : replaying the directory that journal writes to
+ * is refused, it would read its own output (replay into a context without the journal, or from a copy of the directory)
+ *
+ * From the command line : DrawEventReplayer <journal directory> [speed] publishes into the context of
+ * springApplicationContext.xml (./gradlew replayDrawEvents -Pjournal=build/draw-journal -Pspeed=0)
+ *
+ * */
+public class DrawEventReplayer {
+    private final ApplicationEventPublisher publisher;
+    private final AsyncDrawEventMulticaster multicaster;
+    // Directories written to by the journals of the target context
+    private final List<Path> journalDirectories = new ArrayList<Path>();
+
+    public DrawEventReplayer(ApplicationEventPublisher publisher) {
+        this(publisher, null);
+    }
+
+    // The multicaster is waited for at the end of the replay (null : nothing to wait for)
+    public DrawEventReplayer(ApplicationEventPublisher publisher, AsyncDrawEventMulticaster multicaster) {
+        this.publisher = publisher;
+        this.multicaster = multicaster;
+    }
+
+    // The replayer of a context, waiting for its multicaster if it is asynchronous
+    public static DrawEventReplayer of(ApplicationContext context) {
+        Object multicaster = context.containsBean("applicationEventMulticaster")
+                ? context.getBean("applicationEventMulticaster") : null;
+        DrawEventReplayer replayer = new DrawEventReplayer(context, multicaster instanceof AsyncDrawEventMulticaster
+                ? (AsyncDrawEventMulticaster) multicaster : null);
+        Collection<DrawEventJournal> journals = context.getBeansOfType(DrawEventJournal.class).values();
+        for (DrawEventJournal journal : journals) {
+            replayer.journalDirectories.add(journal.getDirectory().toAbsolutePath().normalize());
+        }
+        return replayer;
+    }
+
+    public Result replay(Path journal, final double speed) throws IOException, InterruptedException {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must be 0 (as fast as possible) or positive");
+        }
+        if (journalDirectories.contains(journal.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("A DrawEventJournal of the context writes to " + journal
+                    + " : the replay would read the events it publishes - replay a copy of the directory");
+        }
+        final long start = System.nanoTime();
+        ReplayVisitor visitor = new ReplayVisitor(start, speed);
+        long events;
+        try {
+            events = DrawEventJournal.read(journal, visitor);
+        } catch (ReplayInterruptedException e) {
+            throw (InterruptedException) e.getCause();
+        }
+        if (multicaster != null) {
+            long published = multicaster.getPublishedCount();
+            while (multicaster.getDeliveredCount() + multicaster.getFailedCount() + multicaster.getDroppedCount()
+                    + multicaster.getCoalescedCount() < published) {
+                Thread.sleep(1);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long recorded = visitor.firstTimestamp < 0 ? 0 : visitor.lastTimestamp - visitor.firstTimestamp;
+        return new Result(events, elapsed, TimeUnit.MILLISECONDS.toNanos(recorded));
+    }
+
+    // Publishes every record - waiting, at a recorded pace, until it is time for it
+    private class ReplayVisitor implements DrawEventJournal.RecordVisitor {
+        final long start;
+        final double speed;
+        long firstTimestamp = -1;
+        long lastTimestamp;
+
+        ReplayVisitor(long start, double speed) {
+            this.start = start;
+            this.speed = speed;
+        }
+
+        @Override
+        public void circle(long timestamp, int centerX, int centerY, int radius) {
+            waitFor(timestamp);
+            Circle circle = new Circle(new Point(centerX, centerY));
+            circle.setRadius(radius);
+            publisher.publishEvent(new DrawEvent(circle));
+        }
+
+        @Override
+        public void triangle(long timestamp, int x1, int y1, int x2, int y2, int x3, int y3, int height) {
+            waitFor(timestamp);
+            Triangle triangle = new Triangle(new Point(x1, y1), new Point(x2, y2), new Point(x3, y3));
+            triangle.setHeight(height);
+            publisher.publishEvent(new DrawEvent(triangle));
+        }
+
+        @Override
+        public void other(long timestamp) {
+            waitFor(timestamp);
+            publisher.publishEvent(new DrawEvent(DrawEventReplayer.this));
+        }
+
+        private void waitFor(long timestamp) {
+            if (firstTimestamp < 0) {
+                firstTimestamp = timestamp;
+            }
+            lastTimestamp = timestamp;
+            if (speed == 0) {
+                return;
+            }
+            long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp) / speed);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    throw new ReplayInterruptedException(e);
+                }
+            }
+        }
+    }
+
+    // Carries an interruption out of the visitor, which cannot throw checked exceptions
+    private static class ReplayInterruptedException extends RuntimeException {
+        ReplayInterruptedException(InterruptedException cause) {
+            super(cause);
+        }
+    }
+
+    public static class Result {
+        private final long events;
+        private final long elapsedNanos;
+        private final long recordedNanos;
+
+        Result(long events, long elapsedNanos, long recordedNanos) {
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            this.recordedNanos = recordedNanos;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // Time between the first and the last recorded event
+        public long getRecordedNanos() {
+            return recordedNanos;
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedNanos == 0 ? 0 : events * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %d draw events in %.1f ms (recorded over %.1f ms) - %.0f events per second",
+                    events, elapsedNanos / 1e6, recordedNanos / 1e6, getEventsPerSecond());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: DrawEventReplayer <journal directory> [speed - 1 recorded pace, 0 maximum]");
+            return;
+        }
+        double speed = args.length == 2 ? Double.parseDouble(args[1]) : 1;
+        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("springApplicationContext.xml");
+        try {
+            System.out.println(of(context).replay(Paths.get(args[0]), speed));
+        } finally {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.nizz.springgradle;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.OrderComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * =================================
+ *       EVENT DISPATCH TABLE
+ * =================================
+ * Maps an event class to the listeners that are interested in it, so that publishing an event only touches those
+ * listeners instead of calling every listener and letting each one check the type itself
+ *
+ * The event type of a listener is taken from its generic type argument (ApplicationListener<DrawEvent> listens to
+ * DrawEvents and its subclasses only) - a raw ApplicationListener listens to every event. SmartApplicationListeners
+ * are asked through supportsEventType()
+ *
+ * The table is immutable once built - AsyncDrawEventMulticaster builds a new one when the context is refreshed or
+ * the set of listeners changes. Event classes seen for the first time are resolved once and then cached
+ *
+ * NOTE: Only the event class is used as the key - SmartApplicationListener.supportsSourceType() is not consulted
+ *
+ * */
+public class EventDispatchTable {
+    private static final ApplicationListener[] NO_LISTENERS = new ApplicationListener[0];
+
+    private final ApplicationListener[] listeners;
+    private final Class<?>[] listenedTypes;
+    private final ConcurrentMap<Class<?>, ApplicationListener[]> table =
+            new ConcurrentHashMap<Class<?>, ApplicationListener[]>();
+
+    public EventDispatchTable(Collection<ApplicationListener> listeners) {
+        List<ApplicationListener> sorted = new ArrayList<ApplicationListener>(listeners);
+        OrderComparator.sort(sorted);
+        this.listeners = sorted.toArray(new ApplicationListener[sorted.size()]);
+        this.listenedTypes = new Class<?>[this.listeners.length];
+        for (int i = 0; i < this.listeners.length; i++) {
+            listenedTypes[i] = resolveListenedType(this.listeners[i]);
+        }
+    }
+
+    private static Class<?> resolveListenedType(ApplicationListener listener) {
+        if (listener instanceof SmartApplicationListener) {
+            return null;
+        }
+        Class<?> type = GenericTypeResolver.resolveTypeArgument(listener.getClass(), ApplicationListener.class);
+        return type != null ? type : ApplicationEvent.class;
+    }
+
+    public ApplicationListener[] listenersFor(Class<? extends ApplicationEvent> eventClass) {
+        ApplicationListener[] interested = table.get(eventClass);
+        if (interested == null) {
+            interested = resolve(eventClass);
+            table.putIfAbsent(eventClass, interested);
+        }
+        return interested;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ApplicationListener[] resolve(Class<? extends ApplicationEvent> eventClass) {
+        List<ApplicationListener> interested = new ArrayList<ApplicationListener>();
+        for (int i = 0; i < listeners.length; i++) {
+            boolean supported = listenedTypes[i] != null ? listenedTypes[i].isAssignableFrom(eventClass)
+                    : ((SmartApplicationListener) listeners[i]).supportsEventType(eventClass);
+            if (supported) {
+                interested.add(listeners[i]);
+            }
+        }
+        return interested.isEmpty() ? NO_LISTENERS : interested.toArray(new ApplicationListener[interested.size()]);
+    }
+
+    public int getListenerCount() {
+        return listeners.length;
+    }
+}
@@ -0,0 +1,41 @@
+package org.nizz.springgradle;
+
+/*
+ * =================================
+ *            EXACT SIGN
+ * =================================
+ * The geometry tests (inside a triangle, which side of an edge, distance against a radius) multiply differences of
+ * int co-ordinates : a difference takes up to 33 bits, so a cross product or a squared distance takes up to 66 bits -
+ * more than a long holds. Only the sign of those values is needed, so every value is computed twice :
+ * 1. as a long : it wraps around for large values, but it is exact modulo 2^64
+ * 2. as a double : it never overflows, but it is rounded (an error far below MARGIN for a few products of 33 bits)
+ * When the double is further than MARGIN from zero, its sign is right. When it is not, the real value is small - the
+ * long did not wrap around and is the exact value
+ *
+ * Both are a few multiplications without branches, so the loops of GeometryEngine, CollisionDetector and Rasterizer
+ * stay as they were for co-ordinates of any size
+ *
+ * */
+final class ExactSign {
+    // Above the rounding error of a sum of up to four products of 33 bits (a few 2^15), far below 2^63
+    private static final double MARGIN = 0x1p24;
+
+    private ExactSign() {
+    }
+
+    // -1, 0 or 1 : the sign of a value computed both ways from the same int co-ordinates
+    static int of(double approximate, long wrapped) {
+        if (approximate > MARGIN) {
+            return 1;
+        }
+        if (approximate < -MARGIN) {
+            return -1;
+        }
+        return Long.signum(wrapped);
+    }
+
+    // Sign of a * b - c * d, for differences of two ints
+    static int cross(long a, long b, long c, long d) {
+        return of((double) a * b - (double) c * d, a * b - c * d);
+    }
+}
@@ -0,0 +1,184 @@
+package org.nizz.springgradle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * Pixels drawn by the Rasterizer : one ARGB int per pixel (0xAARRGGBB), row by row, in a direct buffer outside the
+ * Java heap - a 4096 x 4096 image is 64MB the GC never has to scan or copy
+ *
+ * Written as PPM (P6, the simplest format there is - no alpha) or PNG (RGBA, compressed) through a channel
+ *
+ * NOTE: Writing pixels is not synchronized - the Rasterizer gives every thread its own tiles, so no pixel is written
+ * by two threads
+ *
+ * */
+public class Framebuffer {
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final int width;
+    private final int height;
+    private final IntBuffer pixels;
+
+    public Framebuffer(int width, int height) {
+        if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE / 4) {
+            throw new IllegalArgumentException("Invalid framebuffer size " + width + " x " + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPixel(int x, int y) {
+        return pixels.get(y * width + x);
+    }
+
+    public void setPixel(int x, int y, int argb) {
+        pixels.put(y * width + x, argb);
+    }
+
+    // Pixels [fromX, toX] of row y (both included, already inside the framebuffer)
+    public void fillSpan(int y, int fromX, int toX, int argb) {
+        IntBuffer pixels = this.pixels;
+        for (int i = y * width + fromX, end = y * width + toX; i <= end; i++) {
+            pixels.put(i, argb);
+        }
+    }
+
+    // The rectangle [fromX, toX) x [fromY, toY)
+    public void fill(int fromX, int fromY, int toX, int toY, int argb) {
+        for (int y = fromY; y < toY; y++) {
+            fillSpan(y, fromX, toX - 1, argb);
+        }
+    }
+
+    public void clear(int argb) {
+        fill(0, 0, width, height, argb);
+    }
+
+    /* ===== PPM ===== */
+
+    public void writePpm(Path path) throws IOException {
+        try (FileChannel channel = open(path)) {
+            writePpm(channel);
+        }
+    }
+
+    public void writePpm(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        buffer.put(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0, count = width * height; i < count; i++) {
+            if (buffer.remaining() < 3) {
+                write(channel, buffer);
+            }
+            int argb = pixels.get(i);
+            buffer.put((byte) (argb >> 16)).put((byte) (argb >> 8)).put((byte) argb);
+        }
+        write(channel, buffer);
+    }
+
+    /* ===== PNG ===== */
+
+    public void writePng(Path path) throws IOException {
+        try (FileChannel channel = open(path)) {
+            writePng(channel);
+        }
+    }
+
+    // Signature, IHDR (8 bit RGBA), the compressed rows in IDAT chunks of at most 64KB, IEND
+    public void writePng(WritableByteChannel channel) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024 + 12).order(ByteOrder.BIG_ENDIAN);
+        CRC32 crc = new CRC32();
+        chunk.put(PNG_SIGNATURE);
+        write(channel, chunk);
+
+        startChunk(chunk, "IHDR");
+        chunk.putInt(width).putInt(height).put((byte) 8).put((byte) 6).put((byte) 0).put((byte) 0).put((byte) 0);
+        endChunk(channel, chunk, crc);
+
+        // Every row starts with its filter type - 0, the bytes are compressed as they are
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] row = new byte[1 + width * 4];
+        byte[] compressed = new byte[64 * 1024];
+        try {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0, i = y * width, offset = 1; x < width; x++, i++, offset += 4) {
+                    int argb = pixels.get(i);
+                    row[offset] = (byte) (argb >> 16);
+                    row[offset + 1] = (byte) (argb >> 8);
+                    row[offset + 2] = (byte) argb;
+                    row[offset + 3] = (byte) (argb >>> 24);
+                }
+                boolean last = y == height - 1;
+                deflater.setInput(row);
+                if (last) {
+                    deflater.finish();
+                }
+                // The deflater keeps what it cannot compress yet - a chunk is written whenever it gives bytes out
+                while (true) {
+                    int length = deflater.deflate(compressed);
+                    if (length > 0) {
+                        startChunk(chunk, "IDAT");
+                        chunk.put(compressed, 0, length);
+                        endChunk(channel, chunk, crc);
+                    }
+                    if (last ? deflater.finished() : deflater.needsInput()) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+
+        startChunk(chunk, "IEND");
+        endChunk(channel, chunk, crc);
+    }
+
+    // Leaves 4 bytes for the length, written by endChunk once the data is known
+    private static void startChunk(ByteBuffer chunk, String type) {
+        chunk.clear();
+        chunk.putInt(0);
+        chunk.put(type.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // The CRC covers the type and the data, not the length
+    private static void endChunk(WritableByteChannel channel, ByteBuffer chunk, CRC32 crc) throws IOException {
+        int length = chunk.position() - 8;
+        chunk.putInt(0, length);
+        crc.reset();
+        crc.update(chunk.array(), 4, length + 4);
+        chunk.putInt((int) crc.getValue());
+        write(channel, chunk);
+    }
+
+    private static void write(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
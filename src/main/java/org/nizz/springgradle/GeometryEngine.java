@@ -0,0 +1,273 @@
+package org.nizz.springgradle;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * =================================
+ *         GEOMETRY ENGINE
+ * =================================
+ * Computes the metrics of many shapes at once : area, perimeter, centroid and angles of triangles, whether the
+ * triangles are valid (not flat), area and perimeter of circles, and which shapes contain a given point
+ *
+ * The shapes are read from a TriangleBatch or CircleBatch (one int array per coordinate) and every metric is one
+ * plain loop over those arrays writing into a result array - no objects, no method calls inside the loop and no
+ * branches where they can be avoided, which is the kind of loop the JIT can turn into SIMD instructions
+ *
+ * Batches larger than the threshold are split into ranges that run on a fork-join pool - every range writes to its
+ * own part of the result arrays, so nothing is shared between the threads
+ *
+ * The results are written into arrays given by the caller (at least batch.size() long) so that they can be reused
+ * between calls - the overloads without them allocate new ones
+ *
+ * Co-ordinates can be any int : the tests that only need a sign (validate, contains) go through ExactSign, since the
+ * products of two differences of co-ordinates do not always fit in a long, and the metrics are computed in double
+ *
+ * */
+public class GeometryEngine {
+    // A range of shapes [from, to) to compute
+    private interface Kernel {
+        void run(int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public GeometryEngine() {
+        this(ForkJoinPool.commonPool(), 8192);
+    }
+
+    public GeometryEngine(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    /* ===== TRIANGLES ===== */
+
+    public double[] areas(TriangleBatch batch) {
+        double[] areas = new double[batch.size];
+        areas(batch, areas);
+        return areas;
+    }
+
+    // Half the absolute cross product of (p2 - p1) and (p3 - p1)
+    public void areas(final TriangleBatch batch, final double[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] x1 = batch.x1, y1 = batch.y1, x2 = batch.x2, y2 = batch.y2, x3 = batch.x3, y3 = batch.y3;
+                for (int i = from; i < to; i++) {
+                    double cross = ((double) x2[i] - x1[i]) * ((double) y3[i] - y1[i])
+                            - ((double) x3[i] - x1[i]) * ((double) y2[i] - y1[i]);
+                    out[i] = Math.abs(cross) * 0.5;
+                }
+            }
+        });
+    }
+
+    public double[] perimeters(TriangleBatch batch) {
+        double[] perimeters = new double[batch.size];
+        perimeters(batch, perimeters);
+        return perimeters;
+    }
+
+    public void perimeters(final TriangleBatch batch, final double[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] x1 = batch.x1, y1 = batch.y1, x2 = batch.x2, y2 = batch.y2, x3 = batch.x3, y3 = batch.y3;
+                for (int i = from; i < to; i++) {
+                    double dx12 = (double) x2[i] - x1[i], dy12 = (double) y2[i] - y1[i];
+                    double dx23 = (double) x3[i] - x2[i], dy23 = (double) y3[i] - y2[i];
+                    double dx31 = (double) x1[i] - x3[i], dy31 = (double) y1[i] - y3[i];
+                    out[i] = Math.sqrt(dx12 * dx12 + dy12 * dy12) + Math.sqrt(dx23 * dx23 + dy23 * dy23)
+                            + Math.sqrt(dx31 * dx31 + dy31 * dy31);
+                }
+            }
+        });
+    }
+
+    public void centroids(final TriangleBatch batch, final double[] outX, final double[] outY) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] x1 = batch.x1, y1 = batch.y1, x2 = batch.x2, y2 = batch.y2, x3 = batch.x3, y3 = batch.y3;
+                for (int i = from; i < to; i++) {
+                    outX[i] = ((double) x1[i] + x2[i] + x3[i]) / 3;
+                    outY[i] = ((double) y1[i] + y2[i] + y3[i]) / 3;
+                }
+            }
+        });
+    }
+
+    // Angles in degrees at p1, p2 and p3 (law of cosines) - NaN for a flat triangle with two identical points
+    public void angles(final TriangleBatch batch, final double[] outP1, final double[] outP2, final double[] outP3) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] x1 = batch.x1, y1 = batch.y1, x2 = batch.x2, y2 = batch.y2, x3 = batch.x3, y3 = batch.y3;
+                for (int i = from; i < to; i++) {
+                    // squared lengths of the sides opposite to p1, p2 and p3
+                    double dx23 = (double) x3[i] - x2[i], dy23 = (double) y3[i] - y2[i];
+                    double dx13 = (double) x3[i] - x1[i], dy13 = (double) y3[i] - y1[i];
+                    double dx12 = (double) x2[i] - x1[i], dy12 = (double) y2[i] - y1[i];
+                    double a2 = dx23 * dx23 + dy23 * dy23;
+                    double b2 = dx13 * dx13 + dy13 * dy13;
+                    double c2 = dx12 * dx12 + dy12 * dy12;
+                    double a = Math.sqrt(a2), b = Math.sqrt(b2), c = Math.sqrt(c2);
+                    outP1[i] = Math.toDegrees(Math.acos(clamp((b2 + c2 - a2) / (2 * b * c))));
+                    outP2[i] = Math.toDegrees(Math.acos(clamp((a2 + c2 - b2) / (2 * a * c))));
+                    outP3[i] = 180 - outP1[i] - outP2[i];
+                }
+            }
+        });
+    }
+
+    private static double clamp(double cosine) {
+        return Math.max(-1, Math.min(1, cosine));
+    }
+
+    // A triangle is valid when its points are not on the same line - then its angles are all positive and add up to
+    // 180 degrees. Returns the number of valid triangles
+    public int validate(final TriangleBatch batch, final boolean[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] x1 = batch.x1, y1 = batch.y1, x2 = batch.x2, y2 = batch.y2, x3 = batch.x3, y3 = batch.y3;
+                for (int i = from; i < to; i++) {
+                    // The products take up to 66 bits : compared through their exact sign (check ExactSign class)
+                    out[i] = ExactSign.cross((long) x2[i] - x1[i], (long) y3[i] - y1[i], (long) x3[i] - x1[i],
+                            (long) y2[i] - y1[i]) != 0;
+                }
+            }
+        });
+        return count(out, batch.size);
+    }
+
+    // Whether each triangle contains the point (edges included) - returns the number of triangles containing it
+    public int contains(final TriangleBatch batch, final int x, final int y, final boolean[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] x1 = batch.x1, y1 = batch.y1, x2 = batch.x2, y2 = batch.y2, x3 = batch.x3, y3 = batch.y3;
+                for (int i = from; i < to; i++) {
+                    // Side of the point relative to each edge : inside when it is never on both sides
+                    int d1 = ExactSign.cross((long) x - x2[i], (long) y1[i] - y2[i], (long) x1[i] - x2[i],
+                            (long) y - y2[i]);
+                    int d2 = ExactSign.cross((long) x - x3[i], (long) y2[i] - y3[i], (long) x2[i] - x3[i],
+                            (long) y - y3[i]);
+                    int d3 = ExactSign.cross((long) x - x1[i], (long) y3[i] - y1[i], (long) x3[i] - x1[i],
+                            (long) y - y1[i]);
+                    boolean negative = d1 < 0 | d2 < 0 | d3 < 0;
+                    boolean positive = d1 > 0 | d2 > 0 | d3 > 0;
+                    // Inside the bounding box as well - otherwise a flat triangle contains its whole line
+                    boolean inBox = x >= Math.min(x1[i], Math.min(x2[i], x3[i]))
+                            & x <= Math.max(x1[i], Math.max(x2[i], x3[i]))
+                            & y >= Math.min(y1[i], Math.min(y2[i], y3[i]))
+                            & y <= Math.max(y1[i], Math.max(y2[i], y3[i]));
+                    out[i] = !(negative & positive) & inBox;
+                }
+            }
+        });
+        return count(out, batch.size);
+    }
+
+    /* ===== CIRCLES ===== */
+
+    public double[] areas(CircleBatch batch) {
+        double[] areas = new double[batch.size];
+        areas(batch, areas);
+        return areas;
+    }
+
+    public void areas(final CircleBatch batch, final double[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] radius = batch.radius;
+                for (int i = from; i < to; i++) {
+                    double r = radius[i];
+                    out[i] = Math.PI * r * r;
+                }
+            }
+        });
+    }
+
+    public double[] perimeters(CircleBatch batch) {
+        double[] perimeters = new double[batch.size];
+        perimeters(batch, perimeters);
+        return perimeters;
+    }
+
+    public void perimeters(final CircleBatch batch, final double[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] radius = batch.radius;
+                for (int i = from; i < to; i++) {
+                    out[i] = 2 * Math.PI * radius[i];
+                }
+            }
+        });
+    }
+
+    // Whether each circle contains the point (boundary included) - returns the number of circles containing it
+    public int contains(final CircleBatch batch, final int x, final int y, final boolean[] out) {
+        run(batch.size, new Kernel() {
+            @Override
+            public void run(int from, int to) {
+                int[] centerX = batch.centerX, centerY = batch.centerY, radius = batch.radius;
+                for (int i = from; i < to; i++) {
+                    long dx = (long) x - centerX[i];
+                    long dy = (long) y - centerY[i];
+                    long r = radius[i];
+                    out[i] = dx * dx + dy * dy <= r * r;
+                }
+            }
+        });
+        return count(out, batch.size);
+    }
+
+    private static int count(boolean[] flags, int size) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (flags[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void run(int size, Kernel kernel) {
+        if (size <= threshold || pool.getParallelism() == 1) {
+            kernel.run(0, size);
+        } else {
+            pool.invoke(new RangeTask(kernel, 0, size, threshold));
+        }
+    }
+
+    // Splits the range in halves until it is small enough to be computed on one thread
+    private static class RangeTask extends RecursiveAction {
+        private final Kernel kernel;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        RangeTask(Kernel kernel, int from, int to, int threshold) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                kernel.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(kernel, from, middle, threshold), new RangeTask(kernel, middle, to, threshold));
+        }
+    }
+}
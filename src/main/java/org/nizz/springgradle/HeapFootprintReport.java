@@ -0,0 +1,349 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * =================================
+ *      HEAP FOOTPRINT REPORT
+ * =================================
+ * The bytes of heap held by the singletons of a context, per bean type : every bean counts its own object and the
+ * objects it owns - strings, arrays, collections, inner beans (the points of a triangle, etc.)
+ *
+ * 1. The objects are followed from each singleton through its fields, the way the GC would, but only into classes of
+ * this application, arrays, java.lang and java.util - the walk stops at Spring's own objects (the context, the bean
+ * factory), classes and threads, which are the container and not the beans
+ * 2. It also stops at the other singletons, which are counted for their own type
+ * 3. An object reached from several beans (a shared InternedPoint, the same String) is counted once, for the first
+ * bean that reaches it, in the order of the bean definitions
+ *
+ * The size of an object is computed from the offsets of its fields (with Unsafe, as HotSpot lays them out) rounded up
+ * to 8 bytes - the same size the GC copies
+ *
+ * main() compares the context of springApplicationContext.xml without and with PointInterner (./gradlew heapFootprint)
+ *
+ * */
+public class HeapFootprintReport {
+    // sun.misc.Unsafe, called through reflection so that the code compiles without it
+    private static final Object UNSAFE = unsafe();
+    private static final Method OBJECT_FIELD_OFFSET = unsafeMethod("objectFieldOffset", Field.class);
+    private static final Method ARRAY_BASE_OFFSET = unsafeMethod("arrayBaseOffset", Class.class);
+    private static final Method ARRAY_INDEX_SCALE = unsafeMethod("arrayIndexScale", Class.class);
+    private static final long OBJECT_HEADER = unsafeCall(OBJECT_FIELD_OFFSET, field(Probe.class, "value"));
+    private static final long REFERENCE_SIZE = unsafeCall(ARRAY_INDEX_SCALE, Object[].class);
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return new Layout(type);
+        }
+    };
+
+    private final String name;
+    // Bean type -> {beans, objects, bytes}, in the order the types were met
+    private final Map<String, long[]> types = new LinkedHashMap<String, long[]>();
+    private long totalBytes;
+    private long totalObjects;
+
+    private HeapFootprintReport(String name) {
+        this.name = name;
+    }
+
+    public static HeapFootprintReport measure(String name, ConfigurableListableBeanFactory beanFactory) {
+        HeapFootprintReport report = new HeapFootprintReport(name);
+        Set<String> beanNames = new LinkedHashSet<String>();
+        Collections.addAll(beanNames, beanFactory.getBeanDefinitionNames());
+        Collections.addAll(beanNames, beanFactory.getSingletonNames());
+        Map<Object, Boolean> singletons = new IdentityHashMap<Object, Boolean>();
+        List<Object> beans = new ArrayList<Object>();
+        for (String beanName : beanNames) {
+            Object bean = beanFactory.containsSingleton(beanName) ? beanFactory.getSingleton(beanName) : null;
+            if (bean != null) {
+                beans.add(bean);
+                singletons.put(bean, Boolean.TRUE);
+            }
+        }
+        Map<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+        for (Object bean : beans) {
+            if (!isFollowed(bean.getClass())) {
+                continue;
+            }
+            long[] row = report.types.get(bean.getClass().getSimpleName());
+            if (row == null) {
+                row = new long[3];
+                report.types.put(bean.getClass().getSimpleName(), row);
+            }
+            row[0]++;
+            if (!visited.containsKey(bean)) {
+                report.walk(bean, singletons, visited, row);
+            }
+        }
+        return report;
+    }
+
+    private void walk(Object bean, Map<Object, Boolean> singletons, Map<Object, Boolean> visited, long[] row) {
+        Deque<Object> pending = new ArrayDeque<Object>();
+        visited.put(bean, Boolean.TRUE);
+        pending.push(bean);
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            long size = sizeOf(object);
+            row[1]++;
+            row[2] += size;
+            totalObjects++;
+            totalBytes += size;
+            Class<?> type = object.getClass();
+            if (type.isArray()) {
+                if (!type.getComponentType().isPrimitive()) {
+                    for (Object element : (Object[]) object) {
+                        follow(element, singletons, visited, pending);
+                    }
+                }
+                continue;
+            }
+            for (Field field : LAYOUTS.get(type).references) {
+                try {
+                    follow(field.get(object), singletons, visited, pending);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static void follow(Object object, Map<Object, Boolean> singletons, Map<Object, Boolean> visited,
+                               Deque<Object> pending) {
+        if (object != null && !visited.containsKey(object) && !singletons.containsKey(object)
+                && isFollowed(object.getClass())) {
+            visited.put(object, Boolean.TRUE);
+            pending.push(object);
+        }
+    }
+
+    private static boolean isFollowed(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        String className = type.getName();
+        if (className.startsWith(HeapFootprintReport.class.getPackage().getName() + ".")) {
+            return true;
+        }
+        if (!className.startsWith("java.lang.") && !className.startsWith("java.util.")) {
+            return false;
+        }
+        return !Class.class.equals(type) && !ClassLoader.class.isAssignableFrom(type)
+                && !Thread.class.isAssignableFrom(type) && !ThreadLocal.class.isAssignableFrom(type)
+                && !className.startsWith("java.lang.ref.") && !className.startsWith("java.lang.reflect.");
+    }
+
+    // Shallow size : header and fields (or elements), rounded up to 8 bytes
+    public static long sizeOf(Object object) {
+        Class<?> type = object.getClass();
+        long size;
+        if (type.isArray()) {
+            Layout layout = LAYOUTS.get(type);
+            size = layout.size + layout.elementSize * Array.getLength(object);
+        } else {
+            size = LAYOUTS.get(type).size;
+        }
+        return (size + 7) & ~7L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getTotalObjects() {
+        return totalObjects;
+    }
+
+    // Bytes held by the beans of this type (their class simple name), 0 if there is none
+    public long getBytes(String beanType) {
+        long[] row = types.get(beanType);
+        return row == null ? 0 : row[2];
+    }
+
+    public void print() {
+        StringBuilder report = new StringBuilder();
+        report.append("Heap footprint of ").append(name).append('\n');
+        report.append(String.format("%-36s %6s %8s %10s%n", "bean type", "beans", "objects", "bytes"));
+        for (Map.Entry<String, long[]> entry : sortedRows(types, 2)) {
+            long[] row = entry.getValue();
+            report.append(String.format("%-36s %6d %8d %10d%n", entry.getKey(), row[0], row[1], row[2]));
+        }
+        report.append(String.format("%-36s %6s %8d %10d%n", "total", "", totalObjects, totalBytes));
+        System.out.print(report);
+    }
+
+    // The types of both reports, and how many bytes the second one saves on each
+    public static void printComparison(HeapFootprintReport before, HeapFootprintReport after) {
+        Map<String, long[]> rows = new LinkedHashMap<String, long[]>();
+        for (Map.Entry<String, long[]> entry : before.types.entrySet()) {
+            rows.put(entry.getKey(), new long[] {entry.getValue()[0], entry.getValue()[2], 0, 0});
+        }
+        for (Map.Entry<String, long[]> entry : after.types.entrySet()) {
+            long[] row = rows.get(entry.getKey());
+            if (row == null) {
+                row = new long[4];
+                rows.put(entry.getKey(), row);
+            }
+            row[2] = entry.getValue()[0];
+            row[3] = entry.getValue()[2];
+        }
+        StringBuilder report = new StringBuilder();
+        report.append("Heap footprint : ").append(before.name).append(" -> ").append(after.name).append('\n');
+        report.append(String.format("%-36s %13s %15s %10s%n", "bean type", "beans", "bytes", "saved"));
+        for (Map.Entry<String, long[]> entry : sortedRows(rows, 1)) {
+            long[] row = entry.getValue();
+            report.append(String.format("%-36s %6d %6d %7d %7d %10d%n", entry.getKey(), row[0], row[2], row[1], row[3],
+                    row[1] - row[3]));
+        }
+        report.append(String.format("%-36s %13s %7d %7d %10d (%.1f%%)%n", "total", "", before.totalBytes,
+                after.totalBytes, before.totalBytes - after.totalBytes,
+                before.totalBytes == 0 ? 0 : 100.0 * (before.totalBytes - after.totalBytes) / before.totalBytes));
+        System.out.print(report);
+    }
+
+    // Largest first, by the bytes at that index of the rows
+    private static List<Map.Entry<String, long[]>> sortedRows(Map<String, long[]> rows, final int bytes) {
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<Map.Entry<String, long[]>>(rows.entrySet());
+        Collections.sort(sorted, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(Map.Entry<String, long[]> first, Map.Entry<String, long[]> second) {
+                return Long.compare(second.getValue()[bytes], first.getValue()[bytes]);
+            }
+        });
+        return sorted;
+    }
+
+    /* ===== BEFORE / AFTER INTERNING ===== */
+
+    public static void main(String[] args) {
+        LifecycleLog.setEnabled(false);
+        HeapFootprintReport before = measureContext(false);
+        HeapFootprintReport after = measureContext(true);
+        before.print();
+        after.print();
+        printComparison(before, after);
+    }
+
+    private static HeapFootprintReport measureContext(boolean internPoints) {
+        System.setProperty("springgradle.internPoints", Boolean.toString(internPoints));
+        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("springApplicationContext.xml");
+        try {
+            return measure(internPoints ? "context with interned points" : "context", context.getBeanFactory());
+        } finally {
+            context.close();
+        }
+    }
+
+    /* ===== FIELD LAYOUT ===== */
+
+    // Size of the instances of a class and its fields holding references (its own and inherited) - for an array, the
+    // size without the elements and the size of an element
+    private static class Layout {
+        final long size;
+        final long elementSize;
+        final List<Field> references = new ArrayList<Field>();
+
+        Layout(Class<?> type) {
+            if (type.isArray()) {
+                this.size = unsafeCall(ARRAY_BASE_OFFSET, type);
+                this.elementSize = unsafeCall(ARRAY_INDEX_SCALE, type);
+                return;
+            }
+            long end = OBJECT_HEADER;
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    long offset = unsafeCall(OBJECT_FIELD_OFFSET, field);
+                    end = Math.max(end, offset + fieldSize(field.getType()));
+                    if (!field.getType().isPrimitive()) {
+                        field.setAccessible(true);
+                        references.add(field);
+                    }
+                }
+            }
+            this.size = end;
+            this.elementSize = 0;
+        }
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return (int) REFERENCE_SIZE;
+    }
+
+    private static class Probe {
+        int value;
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            return type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object unsafe() {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The heap footprint is measured with sun.misc.Unsafe (HotSpot)", e);
+        }
+    }
+
+    private static Method unsafeMethod(String name, Class<?> parameterType) {
+        try {
+            return UNSAFE.getClass().getMethod(name, parameterType);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long unsafeCall(Method method, Object argument) {
+        try {
+            return ((Number) method.invoke(UNSAFE, argument)).longValue();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
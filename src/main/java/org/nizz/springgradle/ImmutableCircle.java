@@ -0,0 +1,72 @@
+package org.nizz.springgradle;
+
+// Immutable variant of Circle (check ShapeValue interface)
+public final class ImmutableCircle implements ShapeValue {
+    private final ImmutablePoint center;
+    private final int radius;
+
+    public ImmutableCircle(ImmutablePoint center, int radius) {
+        if (center == null) {
+            throw new IllegalArgumentException("A circle needs a center");
+        }
+        this.center = center;
+        this.radius = radius;
+    }
+
+    public static ImmutableCircle of(Circle circle) {
+        return new ImmutableCircle(ImmutablePoint.of(circle.getCenter()), circle.getRadius());
+    }
+
+    public ImmutablePoint getCenter() {
+        return center;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public ImmutableCircle withCenter(ImmutablePoint center) {
+        return center.equals(this.center) ? this : new ImmutableCircle(center, radius);
+    }
+
+    public ImmutableCircle withRadius(int radius) {
+        return radius == this.radius ? this : new ImmutableCircle(center, radius);
+    }
+
+    @Override
+    public ImmutableCircle translate(int dx, int dy) {
+        return withCenter(center.translate(dx, dy));
+    }
+
+    @Override
+    public void render(ShapeRenderer renderer) {
+        renderer.append("The center of circle is: (").append(center.getX()).append(", ").append(center.getY())
+                .append(") and the radius is: ").append(radius).newLine();
+    }
+
+    @Override
+    public Circle toShape() {
+        Circle circle = new Circle(center.toPoint());
+        circle.setRadius(radius);
+        return circle;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ImmutableCircle)) {
+            return false;
+        }
+        ImmutableCircle circle = (ImmutableCircle) other;
+        return radius == circle.radius && center.equals(circle.center);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * center.hashCode() + radius;
+    }
+
+    @Override
+    public String toString() {
+        return "Circle " + center + " radius " + radius;
+    }
+}
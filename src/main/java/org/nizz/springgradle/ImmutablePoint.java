@@ -0,0 +1,72 @@
+package org.nizz.springgradle;
+
+// Immutable variant of Point : the co-ordinates are final, so a point can be read from any thread without locking.
+// withX, withY and translate return a new point (or the same one when nothing changes)
+public final class ImmutablePoint {
+    public static final ImmutablePoint ORIGIN = new ImmutablePoint(0, 0);
+
+    private final int x;
+    private final int y;
+
+    public ImmutablePoint(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public static ImmutablePoint of(int x, int y) {
+        return x == 0 && y == 0 ? ORIGIN : new ImmutablePoint(x, y);
+    }
+
+    // Reads the co-ordinates at once, in case the point is a LivePoint being moved (check Point.getLocation)
+    public static ImmutablePoint of(Point point) {
+        long location = point.getLocation();
+        return of(Point.locationX(location), Point.locationY(location));
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public ImmutablePoint withX(int x) {
+        return x == this.x ? this : new ImmutablePoint(x, y);
+    }
+
+    public ImmutablePoint withY(int y) {
+        return y == this.y ? this : new ImmutablePoint(x, y);
+    }
+
+    public ImmutablePoint translate(int dx, int dy) {
+        return dx == 0 && dy == 0 ? this : new ImmutablePoint(x + dx, y + dy);
+    }
+
+    public Point toPoint() {
+        return new Point(x, y);
+    }
+
+    public String getCoordinates() {
+        return "(" + x + ", " + y + ")";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ImmutablePoint)) {
+            return false;
+        }
+        ImmutablePoint point = (ImmutablePoint) other;
+        return x == point.x && y == point.y;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
+    @Override
+    public String toString() {
+        return getCoordinates();
+    }
+}
@@ -0,0 +1,162 @@
+package org.nizz.springgradle;
+
+import java.util.Arrays;
+
+// Immutable variant of Triangle (check ShapeValue interface) - the angles are copied in and out, so the array can
+// never be changed from outside
+public final class ImmutableTriangle implements ShapeValue {
+    private final ImmutablePoint p1;
+    private final ImmutablePoint p2;
+    private final ImmutablePoint p3;
+    private final String type;
+    private final int height;
+    private final int[] angles;
+
+    public ImmutableTriangle(ImmutablePoint p1, ImmutablePoint p2, ImmutablePoint p3) {
+        this(p1, p2, p3, null, 0, null);
+    }
+
+    public ImmutableTriangle(ImmutablePoint p1, ImmutablePoint p2, ImmutablePoint p3, String type, int height,
+                             int[] angles) {
+        this(angles == null ? null : angles.clone(), p1, p2, p3, type, height);
+    }
+
+    // The angles first only to tell it apart from the public constructor, which copies them - use sharingAngles
+    private ImmutableTriangle(int[] angles, ImmutablePoint p1, ImmutablePoint p2, ImmutablePoint p3, String type,
+                              int height) {
+        if (p1 == null || p2 == null || p3 == null) {
+            throw new IllegalArgumentException("A triangle needs its three points");
+        }
+        this.p1 = p1;
+        this.p2 = p2;
+        this.p3 = p3;
+        this.type = type;
+        this.height = height;
+        this.angles = angles;
+    }
+
+    // Takes the angles as they are, without copying them : the with* methods share the angles of the triangle they
+    // come from
+    private static ImmutableTriangle sharingAngles(ImmutablePoint p1, ImmutablePoint p2, ImmutablePoint p3,
+                                                   String type, int height, int[] angles) {
+        return new ImmutableTriangle(angles, p1, p2, p3, type, height);
+    }
+
+    // getAngleValues already returns a copy
+    public static ImmutableTriangle of(Triangle triangle) {
+        return sharingAngles(ImmutablePoint.of(triangle.getP1()), ImmutablePoint.of(triangle.getP2()),
+                ImmutablePoint.of(triangle.getP3()), triangle.getType(), triangle.getHeight(),
+                triangle.getAngleValues());
+    }
+
+    public ImmutablePoint getP1() {
+        return p1;
+    }
+
+    public ImmutablePoint getP2() {
+        return p2;
+    }
+
+    public ImmutablePoint getP3() {
+        return p3;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // A copy - null when the triangle has no angles
+    public int[] getAngles() {
+        return angles == null ? null : angles.clone();
+    }
+
+    public int getAngleCount() {
+        return angles == null ? 0 : angles.length;
+    }
+
+    public int getAngle(int index) {
+        return angles[index];
+    }
+
+    public ImmutableTriangle withP1(ImmutablePoint p1) {
+        return p1.equals(this.p1) ? this : sharingAngles(p1, p2, p3, type, height, angles);
+    }
+
+    public ImmutableTriangle withP2(ImmutablePoint p2) {
+        return p2.equals(this.p2) ? this : sharingAngles(p1, p2, p3, type, height, angles);
+    }
+
+    public ImmutableTriangle withP3(ImmutablePoint p3) {
+        return p3.equals(this.p3) ? this : sharingAngles(p1, p2, p3, type, height, angles);
+    }
+
+    public ImmutableTriangle withType(String type) {
+        return type == null ? this.type == null ? this : sharingAngles(p1, p2, p3, null, height, angles)
+                : type.equals(this.type) ? this : sharingAngles(p1, p2, p3, type, height, angles);
+    }
+
+    public ImmutableTriangle withHeight(int height) {
+        return height == this.height ? this : sharingAngles(p1, p2, p3, type, height, angles);
+    }
+
+    public ImmutableTriangle withAngles(int[] angles) {
+        return withAnglesShared(angles == null ? null : angles.clone());
+    }
+
+    private ImmutableTriangle withAnglesShared(int[] angles) {
+        return Arrays.equals(angles, this.angles) ? this : sharingAngles(p1, p2, p3, type, height, angles);
+    }
+
+    @Override
+    public ImmutableTriangle translate(int dx, int dy) {
+        if (dx == 0 && dy == 0) {
+            return this;
+        }
+        return sharingAngles(p1.translate(dx, dy), p2.translate(dx, dy), p3.translate(dx, dy), type, height, angles);
+    }
+
+    @Override
+    public void render(ShapeRenderer renderer) {
+        renderer.append("The type of triangle: ").append(type).append(" and the height is: ").append(height)
+                .newLine();
+    }
+
+    @Override
+    public Triangle toShape() {
+        Triangle triangle = new Triangle(p1.toPoint(), p2.toPoint(), p3.toPoint());
+        triangle.setType(type);
+        triangle.setHeight(height);
+        triangle.setAngleValues(angles);
+        return triangle;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ImmutableTriangle)) {
+            return false;
+        }
+        ImmutableTriangle triangle = (ImmutableTriangle) other;
+        return height == triangle.height && p1.equals(triangle.p1) && p2.equals(triangle.p2)
+                && p3.equals(triangle.p3) && (type == null ? triangle.type == null : type.equals(triangle.type))
+                && Arrays.equals(angles, triangle.angles);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = p1.hashCode();
+        hash = 31 * hash + p2.hashCode();
+        hash = 31 * hash + p3.hashCode();
+        hash = 31 * hash + (type == null ? 0 : type.hashCode());
+        hash = 31 * hash + height;
+        return 31 * hash + Arrays.hashCode(angles);
+    }
+
+    @Override
+    public String toString() {
+        return "Triangle " + p1 + p2 + p3 + " " + type + " height " + height + " angles " + Arrays.toString(angles);
+    }
+}
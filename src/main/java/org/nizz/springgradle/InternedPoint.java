@@ -0,0 +1,39 @@
+package org.nizz.springgradle;
+
+// A Point shared by every bean that has the same co-ordinates (check PointInterner class) - since any of them could
+// see a change, it cannot be moved : the setters throw instead of changing the point for all its users. It has no bean
+// name either, being no bean in particular
+public final class InternedPoint extends Point {
+
+    InternedPoint(int x, int y) {
+        super(x, y);
+    }
+
+    @Override
+    public void setX(int x) {
+        if (x != getX()) {
+            throw immutable();
+        }
+    }
+
+    @Override
+    public void setY(int y) {
+        if (y != getY()) {
+            throw immutable();
+        }
+    }
+
+    @Override
+    public void recycleFrom(Point template) {
+        throw immutable();
+    }
+
+    @Override
+    public void setBeanName(String beanName) {
+    }
+
+    private UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Point " + getCoordinates() + " is shared by several beans and cannot "
+                + "be moved - exclude its bean from PointInterner");
+    }
+}
@@ -0,0 +1,27 @@
+package org.nizz.springgradle;
+
+// Console messages printed by the lifecycle callbacks (init, destroy, post processors) - they show the order in which
+// Spring calls them, but are only noise once that is understood. Turn them off with -Dspringgradle.lifecycleLog=false
+// or through BeanLifecycleProfiler's lifecycleLog property (the system property wins when both are set)
+public final class LifecycleLog {
+    static final String SYSTEM_PROPERTY = "springgradle.lifecycleLog";
+
+    private static volatile boolean enabled = !"false".equals(System.getProperty(SYSTEM_PROPERTY));
+
+    private LifecycleLog() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        LifecycleLog.enabled = enabled;
+    }
+
+    public static void println(String message) {
+        if (enabled) {
+            System.out.println(message);
+        }
+    }
+}
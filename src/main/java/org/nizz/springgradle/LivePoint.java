@@ -0,0 +1,74 @@
+package org.nizz.springgradle;
+
+/*
+ * A Point that can be moved by one thread while others read it : x and y are kept together in one volatile long, so
+ * a reader sees either the old position or the new one, never the new x with the old y. getLocation() and
+ * getCoordinates() read the pair at once - reading getX() then getY() can still mix two positions
+ *
+ * Used for points whose values come from a file that is reloaded while the application runs (check
+ * PointsConfigWatcher class)
+ *
+ * */
+public class LivePoint extends Point {
+    private volatile long location;
+    private volatile int version;
+
+    public LivePoint() {
+    }
+
+    public LivePoint(int x, int y) {
+        this.location = location(x, y);
+    }
+
+    // Both co-ordinates in one write - the writers are synchronized so that setX and setY do not lose each other's
+    // update, the readers never lock
+    public synchronized void setLocation(int x, int y) {
+        long updated = location(x, y);
+        if (updated != location) {
+            location = updated;
+            version++;
+        }
+    }
+
+    @Override
+    public synchronized void setX(int x) {
+        setLocation(x, locationY(location));
+    }
+
+    @Override
+    public synchronized void setY(int y) {
+        setLocation(locationX(location), y);
+    }
+
+    @Override
+    public int getX() {
+        return locationX(location);
+    }
+
+    @Override
+    public int getY() {
+        return locationY(location);
+    }
+
+    @Override
+    public long getLocation() {
+        return location;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getCoordinates() {
+        long location = this.location;
+        return "(" + locationX(location) + ", " + locationY(location) + ")";
+    }
+
+    @Override
+    public void recycleFrom(Point template) {
+        long location = template.getLocation();
+        setLocation(locationX(location), locationY(location));
+    }
+}
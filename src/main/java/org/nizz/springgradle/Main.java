@@ -5,10 +5,16 @@ import org.springframework.beans.factory.xml.XmlBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.core.io.FileSystemResource;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
         /// Basic object instantiation
 //        Triangle triangle = new Triangle("Equilateral", 15);
 
@@ -23,8 +29,20 @@ public class Main {
         /// AbstractApplicationContext helps to register a shutdown hook that tells Spring to close the application
         /// context once the Main method ends - we need to do this only for SE applications, for web applications,
         /// Spring will know when to close the context
-        AbstractApplicationContext context = new
-                ClassPathXmlApplicationContext("springApplicationContext.xml");
+        ///
+        /// With -Dspringgradle.precompiled=true, the context is built from the bean definitions generated at build
+        /// time instead of parsing the XML file and scanning the classpath (check PrecompiledApplicationContext class)
+        /// With -Dspringgradle.parallelRefresh=true, the singletons that do not depend on each other are created in
+        /// parallel when the context starts (check ParallelBeanFactory class)
+        /// With -Dspringgradle.lazyInit=record, then =optimize on the next runs, the singletons this program never
+        /// uses are no longer created at startup (check CustomBeanFactoryPostProcessor class)
+        /// With -Dspringgradle.internPoints=true, the points with the same co-ordinates are one shared instance
+        /// (check PointInterner class - and HeapFootprintReport for the memory it saves)
+        AbstractApplicationContext context = Boolean.getBoolean("springgradle.precompiled")
+                ? new PrecompiledApplicationContext()
+                : Boolean.getBoolean("springgradle.parallelRefresh")
+                ? new ParallelClassPathXmlApplicationContext("springApplicationContext.xml")
+                : new ClassPathXmlApplicationContext("springApplicationContext.xml");
         // registers a shutdown hook which runs and closes the context once the program ends : specialized feature
         // provided by the Application Context which is not present in the Bean Factory
         context.registerShutdownHook();
@@ -61,6 +79,12 @@ public class Main {
         trianglePrototypeMember.createDynamicBeans();
         trianglePrototypeMember.mentionDynamicPoints();
 
+        // With the pooled scope, the second call gets back the same instance that was released by the first one
+        trianglePrototypeMember.createPooledDynamicBeans();
+        trianglePrototypeMember.mentionDynamicPoints();
+        trianglePrototypeMember.createPooledDynamicBeans();
+        trianglePrototypeMember.mentionDynamicPoints();
+
         trianglePointInherited.mentionPoints();
         triangleAngleInherited.mentionAngles();
 
@@ -101,6 +125,14 @@ public class Main {
          * 3. Global Session : Creates a new bean per global HTTP session (portlet context) - TODO: study more
          *
          *
+         * =================================
+         *          CUSTOM SCOPES
+         * =================================
+         *
+         * We can register our own scopes by implementing the Scope interface and registering it with
+         * CustomScopeConfigurer - check PooledScope class for a scope that reuses released beans
+         *
+         *
          * */
 
 
@@ -126,6 +158,96 @@ public class Main {
         circleShape.draw();
         triangleShape.draw();
 
+        // Batched rendering : both shapes are formatted into one buffer and written with a single write
+        // (check ShapeRenderer class) - with the context as event publisher, drawAll publishes a DrawEvent per shape
+        // like draw() does
+        ShapeRenderer renderer = new ShapeRenderer();
+        renderer.setEventPublisher(context);
+        renderer.drawAll(Arrays.asList(circleShape, triangleShape));
+
+        System.out.println("------ SHAPES LOADED IN BULK ------");
+        // The "scene" bean is a SceneFactoryBean : getBean returns the Scene it loaded from shapes.csv, not the factory
+        Scene scene = (Scene) context.getBean("scene");
+        System.out.println(scene);
+        renderer.drawAll(scene.toShapes());
+
+        // Snapshot of the scene : written once, then mapped back without parsing anything
+        // (check SceneSnapshotWriter and MappedSceneSnapshot classes)
+        Path snapshotFile = Files.createTempFile("scene", ".snapshot");
+        SceneSnapshotWriter.write(snapshotFile, scene);
+        MappedSceneSnapshot snapshot = MappedSceneSnapshot.open(snapshotFile);
+        System.out.println(snapshot + " reloaded as " + snapshot.toScene());
+        Files.delete(snapshotFile);
+
+        // Filled in pixels instead of printed, tile by tile on a fork-join pool (check Rasterizer class)
+        Framebuffer framebuffer = new Framebuffer(64, 64);
+        long filled = new Rasterizer().render(scene, framebuffer);
+        Path image = Files.createTempFile("scene", ".png");
+        framebuffer.writePng(image);
+        System.out.println("Rasterized " + filled + " pixels into a " + framebuffer.getWidth() + " x "
+                + framebuffer.getHeight() + " PNG of " + Files.size(image) + " bytes");
+        Files.delete(image);
+
+        System.out.println("------ INCREMENTAL REDRAW ------");
+        // The first frame draws every shape, the next ones only the shapes that changed (check ShapeScene class)
+        ShapeScene shapeScene = (ShapeScene) context.getBean("shapeScene");
+        System.out.println("Frame 1 redrew " + shapeScene.redrawDirty(renderer) + " shapes");
+        System.out.println("Frame 2 redrew " + shapeScene.redrawDirty(renderer) + " shapes");
+        // zeroPoint is shared by both triangles - moving it and back makes both of them dirty, the circle is not
+        Point zeroPoint = (Point) context.getBean("zeroPoint");
+        zeroPoint.setX(5);
+        System.out.println("Frame 3 redrew " + shapeScene.redrawDirty(renderer) + " shapes");
+        zeroPoint.setX(0);
+        shapeScene.markAllClean();
+
+        System.out.println("------ COLLISIONS ------");
+        // Every pair of overlapping shapes - one detector per scene, since it keeps the order of the shapes from one
+        // frame to the next (check CollisionDetector class)
+        System.out.println("Scene : " + new CollisionDetector().detect(scene));
+        for (Shape[] collision : new CollisionDetector().detect(shapeScene.getShapes())) {
+            System.out.println(collision[0].getClass().getSimpleName() + " overlaps "
+                    + collision[1].getClass().getSimpleName());
+        }
+
+        System.out.println("------ IMMUTABLE SHAPES ------");
+        // Immutable copies can be shared between threads : a change creates a new shape and the registry swaps it in,
+        // while a snapshot taken before keeps the old one (check SceneRegistry class)
+        SceneRegistry registry = new SceneRegistry();
+        int circleId = registry.add(ImmutableCircle.of((Circle) circleShape));
+        SceneRegistry.Snapshot before = registry.snapshot();
+        registry.replace(circleId, ((ImmutableCircle) registry.get(circleId)).withRadius(50));
+        System.out.println("Before: " + before.get(circleId) + ", after: " + registry.get(circleId));
+
+        System.out.println("------ DRAW EVENT JOURNAL ------");
+        // Draw events written to a memory-mapped journal, then published again to the listeners
+        // (check DrawEventJournal and DrawEventReplayer classes)
+        Path journalDirectory = Files.createTempDirectory("draw-journal");
+        DrawEventJournal journal = new DrawEventJournal(journalDirectory);
+        journal.afterPropertiesSet();
+        journal.onApplicationEvent(new DrawEvent(circleShape));
+        journal.onApplicationEvent(new DrawEvent(triangleShape));
+        journal.close();
+        System.out.println(DrawEventReplayer.of(context).replay(journalDirectory, 0));
+        for (Path segment : DrawEventJournal.segments(journalDirectory)) {
+            Files.delete(segment);
+        }
+        Files.delete(journalDirectory);
+
+        System.out.println("------ TENANT CONTEXTS ------");
+        // One child context per tenant over a shared parent context : the shared beans exist once for all tenants,
+        // the tenant beans once per tenant (check TenantContextFactory class and sharedGeometryContext.xml)
+        TenantContextFactory tenantContextFactory = new TenantContextFactory();
+        GenericApplicationContext tenantA = tenantContextFactory.createTenant("tenant-a");
+        GenericApplicationContext tenantB = tenantContextFactory.createTenant("tenant-b");
+        System.out.println("Shared pointOne : " + (tenantA.getBean("pointOne") == tenantB.getBean("pointOne"))
+                + ", shared messageSource : " + tenantA.getMessage("motivation", null, null)
+                + ", own triangle : " + (tenantA.getBean("triangle") != tenantB.getBean("triangle")));
+        // The circle of a tenant gets its messages from the Message Source of the shared context
+        ((Circle) tenantA.getBean("circle-shape")).getBeanMessage();
+        tenantA.close();
+        tenantB.close();
+        tenantContextFactory.close();
+
         System.out.println("------ CIRCLE CLASS USING ANNOTATIONS ------");
         Circle circleAnnotated = (Circle) context.getBean("circle");
         circleAnnotated.draw();
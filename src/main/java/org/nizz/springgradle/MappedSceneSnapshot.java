@@ -0,0 +1,253 @@
+package org.nizz.springgradle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// A snapshot written by SceneSnapshotWriter (check its comment for the layout), memory-mapped and read in place.
+// Opening it reads the header, the type names and the two index columns (type and angle start, checked once so that a
+// damaged file fails here and not on some later get) - the coordinates, heights and angles are read from the mapped
+// pages when they are asked for. The operating system loads the pages the first time they are touched and shares
+// them between all the processes mapping the same file
+//
+// The mapping stays valid after the file channel is closed - there is nothing to close
+public final class MappedSceneSnapshot {
+    private final int circleCount;
+    private final int triangleCount;
+    private final long sizeInBytes;
+    private final IntBuffer centerX;
+    private final IntBuffer centerY;
+    private final IntBuffer radius;
+    private final IntBuffer[] x = new IntBuffer[3];
+    private final IntBuffer[] y = new IntBuffer[3];
+    private final IntBuffer height;
+    private final IntBuffer typeIndex;
+    private final IntBuffer angleStart;
+    private final IntBuffer angles;
+    private final String[] types;
+
+    private MappedSceneSnapshot(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SceneSnapshotWriter.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read until the header is complete or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != SceneSnapshotWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a scene snapshot");
+        }
+        if (header.getInt(4) != SceneSnapshotWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported scene snapshot version " + header.getInt(4));
+        }
+        circleCount = header.getInt(8);
+        triangleCount = header.getInt(12);
+        int typeCount = header.getInt(16);
+        int angleCount = header.getInt(20);
+        sizeInBytes = header.getLong(24);
+        if (circleCount < 0 || triangleCount < 0 || typeCount < 0 || angleCount < 0
+                || channel.size() < sizeInBytes) {
+            throw new IllegalArgumentException("Scene snapshot is truncated");
+        }
+        if (circleCount > SceneSnapshotWriter.MAX_VALUES || triangleCount >= SceneSnapshotWriter.MAX_VALUES
+                || typeCount >= SceneSnapshotWriter.MAX_VALUES || angleCount > SceneSnapshotWriter.MAX_VALUES) {
+            throw new IllegalArgumentException("Scene snapshot is corrupted: too many values");
+        }
+        SceneSnapshotWriter.Layout layout = new SceneSnapshotWriter.Layout(circleCount, triangleCount, angleCount,
+                typeCount);
+        if (sizeInBytes < layout.typeBytes) {
+            throw new IllegalArgumentException("Scene snapshot is truncated");
+        }
+
+        long offset = layout.circles;
+        centerX = map(channel, offset, circleCount);
+        centerY = map(channel, offset += layout.circleColumnBytes, circleCount);
+        radius = map(channel, offset += layout.circleColumnBytes, circleCount);
+        offset = layout.triangles;
+        for (int vertex = 0; vertex < 3; vertex++) {
+            x[vertex] = map(channel, offset, triangleCount);
+            y[vertex] = map(channel, offset += layout.triangleColumnBytes, triangleCount);
+            offset += layout.triangleColumnBytes;
+        }
+        height = map(channel, offset, triangleCount);
+        typeIndex = map(channel, offset + layout.triangleColumnBytes, triangleCount);
+        angleStart = map(channel, layout.angleStart, triangleCount + 1);
+        angles = map(channel, layout.angles, angleCount);
+        checkStarts(angleStart, triangleCount, angleCount, "angle");
+        for (int i = 0; i < triangleCount; i++) {
+            int index = typeIndex.get(i);
+            if (index < -1 || index >= typeCount) {
+                throw new IllegalArgumentException("Scene snapshot is corrupted: triangle " + i + " has type "
+                        + index + " out of " + typeCount);
+            }
+        }
+
+        // Few distinct types : decoded once, so triangleType does not create a String per call
+        IntBuffer typeStart = map(channel, layout.typeStart, typeCount + 1);
+        checkStarts(typeStart, typeCount, sizeInBytes - layout.typeBytes, "type name");
+        ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, layout.typeBytes,
+                sizeInBytes - layout.typeBytes);
+        types = new String[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            byte[] name = new byte[typeStart.get(i + 1) - typeStart.get(i)];
+            names.position(typeStart.get(i));
+            names.get(name);
+            types[i] = new String(name, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static MappedSceneSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedSceneSnapshot(channel);
+        }
+    }
+
+    // starts[0] is 0, then every start is at most the next one and the last one at most the end of the section
+    private static void checkStarts(IntBuffer starts, int count, long end, String what) {
+        if (starts.get(0) != 0) {
+            throw new IllegalArgumentException("Scene snapshot is corrupted: the first " + what + " starts at "
+                    + starts.get(0));
+        }
+        for (int i = 0; i < count; i++) {
+            if (starts.get(i + 1) < starts.get(i)) {
+                throw new IllegalArgumentException("Scene snapshot is corrupted: " + what + " start " + (i + 1)
+                        + " is before the previous one");
+            }
+        }
+        if (starts.get(count) > end) {
+            throw new IllegalArgumentException("Scene snapshot is corrupted: the " + what + "s end after their section");
+        }
+    }
+
+    private static IntBuffer map(FileChannel channel, long offset, int count) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * count);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    public int circleCount() {
+        return circleCount;
+    }
+
+    public int triangleCount() {
+        return triangleCount;
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public int circleCenterX(int circle) {
+        return centerX.get(circle);
+    }
+
+    public int circleCenterY(int circle) {
+        return centerY.get(circle);
+    }
+
+    public int circleRadius(int circle) {
+        return radius.get(circle);
+    }
+
+    // vertex : 0, 1 or 2 for p1, p2 and p3
+    public int triangleX(int triangle, int vertex) {
+        return x[vertex].get(triangle);
+    }
+
+    public int triangleY(int triangle, int vertex) {
+        return y[vertex].get(triangle);
+    }
+
+    public int triangleHeight(int triangle) {
+        return height.get(triangle);
+    }
+
+    // null when the triangle had no type
+    public String triangleType(int triangle) {
+        int index = typeIndex.get(triangle);
+        return index < 0 ? null : types[index];
+    }
+
+    public int triangleAngleCount(int triangle) {
+        return angleStart.get(triangle + 1) - angleStart.get(triangle);
+    }
+
+    public int triangleAngle(int triangle, int angle) {
+        if (angle < 0 || angle >= triangleAngleCount(triangle)) {
+            throw new IndexOutOfBoundsException("Angle " + angle + " of triangle " + triangle);
+        }
+        return angles.get(angleStart.get(triangle) + angle);
+    }
+
+    // A new array - null when the triangle had no angles (an empty list of angles is not told apart from no list)
+    public int[] triangleAngles(int triangle) {
+        int start = angleStart.get(triangle);
+        int count = angleStart.get(triangle + 1) - start;
+        if (count == 0) {
+            return null;
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = angles.get(start + i);
+        }
+        return values;
+    }
+
+    // Coordinates only, in the order they were written : all the circles, then all the triangles
+    public void forEach(ShapeSink sink) {
+        for (int i = 0; i < circleCount; i++) {
+            sink.circle(centerX.get(i), centerY.get(i), radius.get(i));
+        }
+        for (int i = 0; i < triangleCount; i++) {
+            sink.triangle(x[0].get(i), y[0].get(i), x[1].get(i), y[1].get(i), x[2].get(i), y[2].get(i));
+        }
+    }
+
+    // Copies the coordinates into a Scene - each column is copied in one bulk get
+    public Scene toScene() {
+        Scene scene = new Scene(circleCount, triangleCount);
+        CircleBatch circles = scene.getCircles();
+        ((IntBuffer) centerX.duplicate().rewind()).get(circles.centerX, 0, circleCount);
+        ((IntBuffer) centerY.duplicate().rewind()).get(circles.centerY, 0, circleCount);
+        ((IntBuffer) radius.duplicate().rewind()).get(circles.radius, 0, circleCount);
+        circles.size = circleCount;
+        TriangleBatch triangles = scene.getTriangles();
+        ((IntBuffer) x[0].duplicate().rewind()).get(triangles.x1, 0, triangleCount);
+        ((IntBuffer) y[0].duplicate().rewind()).get(triangles.y1, 0, triangleCount);
+        ((IntBuffer) x[1].duplicate().rewind()).get(triangles.x2, 0, triangleCount);
+        ((IntBuffer) y[1].duplicate().rewind()).get(triangles.y2, 0, triangleCount);
+        ((IntBuffer) x[2].duplicate().rewind()).get(triangles.x3, 0, triangleCount);
+        ((IntBuffer) y[2].duplicate().rewind()).get(triangles.y3, 0, triangleCount);
+        triangles.size = triangleCount;
+        return scene;
+    }
+
+    // New Circle and Triangle objects with all the values of the snapshot (type, height and angles included)
+    public List<Shape> toShapes() {
+        List<Shape> shapes = new ArrayList<Shape>(circleCount + triangleCount);
+        for (int i = 0; i < circleCount; i++) {
+            Circle circle = new Circle(new Point(centerX.get(i), centerY.get(i)));
+            circle.setRadius(radius.get(i));
+            shapes.add(circle);
+        }
+        for (int i = 0; i < triangleCount; i++) {
+            Triangle triangle = new Triangle(new Point(x[0].get(i), y[0].get(i)), new Point(x[1].get(i), y[1].get(i)),
+                    new Point(x[2].get(i), y[2].get(i)));
+            triangle.setType(triangleType(i));
+            triangle.setHeight(height.get(i));
+            triangle.setAngleValues(triangleAngles(i));
+            shapes.add(triangle);
+        }
+        return shapes;
+    }
+
+    @Override
+    public String toString() {
+        return "Scene snapshot with " + circleCount + " circles and " + triangleCount + " triangles (" + sizeInBytes
+                + " bytes)";
+    }
+}
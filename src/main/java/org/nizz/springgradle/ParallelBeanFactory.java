@@ -0,0 +1,358 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * =================================
+ *   PARALLEL SINGLETON CREATION
+ * =================================
+ * By default, the bean factory creates the non-lazy singletons one after another when the context is refreshed
+ * (preInstantiateSingletons). This factory first builds the dependency graph from the bean definitions (refs in
+ * constructor args and properties, inner beans, depends-on, and the definitions inherited from parent beans), then
+ * creates every singleton on a fork-join pool as soon as all the singletons it depends on exist - so singletons that
+ * do not depend on each other are created at the same time
+ *
+ * Only singletons whose dependencies are fully known from the definitions are created in parallel. Beans that are
+ * autowired (autowire attribute, @Autowired, @Value, @Resource, @Inject), FactoryBeans, beans taking part in a
+ * circular reference and everything depending on them are created afterwards, one by one, exactly like before
+ *
+ * Post processors are not affected - the context registers all of them before preInstantiateSingletons is called
+ *
+ * NOTE: Spring 3.0 creates every singleton while holding one global lock, so this factory takes a lock per bean
+ * name instead while the parallel phase runs - a thread that needs a singleton currently being created on another
+ * thread waits for it instead of getting the half-initialized early reference
+ *
+ * */
+public class ParallelBeanFactory extends DefaultListableBeanFactory {
+    private static final Set<String> INJECTION_ANNOTATIONS = new HashSet<String>(Arrays.asList(
+            "org.springframework.beans.factory.annotation.Autowired",
+            "org.springframework.beans.factory.annotation.Value",
+            "javax.annotation.Resource",
+            "javax.inject.Inject"));
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private volatile boolean parallelPhase;
+    private final ConcurrentMap<String, Object> creationLocks = new ConcurrentHashMap<String, Object>();
+    private final ConcurrentMap<String, Thread> creatingThreads = new ConcurrentHashMap<String, Thread>();
+    private final Map<Class<?>, Boolean> injectedClasses = new HashMap<Class<?>, Boolean>();
+
+    public ParallelBeanFactory() {
+    }
+
+    public ParallelBeanFactory(BeanFactory parentBeanFactory) {
+        super(parentBeanFactory);
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void preInstantiateSingletons() throws BeansException {
+        Map<String, Set<String>> graph = parallelCandidates();
+        if (parallelism > 1 && graph.size() > 1) {
+            createInParallel(graph);
+        }
+        // Everything that was not created in parallel (and FactoryBeans) - already created singletons are skipped
+        super.preInstantiateSingletons();
+    }
+
+    private void createInParallel(Map<String, Set<String>> graph) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Map<String, CompletableFuture<Void>> futures = new HashMap<String, CompletableFuture<Void>>();
+        parallelPhase = true;
+        try {
+            // graph is in topological order - the futures of the dependencies always exist already
+            for (Map.Entry<String, Set<String>> entry : graph.entrySet()) {
+                final String beanName = entry.getKey();
+                List<CompletableFuture<Void>> dependencies = new ArrayList<CompletableFuture<Void>>();
+                for (String dependency : entry.getValue()) {
+                    if (futures.containsKey(dependency)) {
+                        dependencies.add(futures.get(dependency));
+                    }
+                }
+                futures.put(beanName, CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                        .thenRunAsync(new Runnable() {
+                            @Override
+                            public void run() {
+                                getBean(beanName);
+                            }
+                        }, pool));
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        } finally {
+            parallelPhase = false;
+            pool.shutdown();
+            creationLocks.clear();
+        }
+    }
+
+    // Singletons that can be created in parallel, in topological order, mapped to the singletons they depend on
+    private Map<String, Set<String>> parallelCandidates() {
+        Map<String, Set<String>> dependencies = new LinkedHashMap<String, Set<String>>();
+        Set<String> unknown = new HashSet<String>();
+        for (String beanName : getBeanDefinitionNames()) {
+            if (containsSingleton(beanName)) {
+                continue;
+            }
+            RootBeanDefinition definition = getMergedLocalBeanDefinition(beanName);
+            if (definition.isAbstract() || !definition.isSingleton() || definition.isLazyInit()) {
+                continue;
+            }
+            Set<String> singletons = new LinkedHashSet<String>();
+            if (isFactoryBean(beanName) || !collectDependencies(definition, singletons, new HashSet<String>())) {
+                unknown.add(beanName);
+            }
+            dependencies.put(beanName, singletons);
+        }
+
+        // Kahn's algorithm : beans left over are part of (or depend on) a cycle or an unknown bean
+        Map<String, Integer> pending = new HashMap<String, Integer>();
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        Deque<String> ready = new ArrayDeque<String>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            int count = 0;
+            for (String dependency : entry.getValue()) {
+                if (containsSingleton(dependency)) {
+                    continue;
+                }
+                if (!dependencies.containsKey(dependency)) {
+                    // A singleton this factory does not manage (e.g. lazy) - create the bean one by one later
+                    unknown.add(entry.getKey());
+                    continue;
+                }
+                count++;
+                List<String> list = dependents.get(dependency);
+                if (list == null) {
+                    list = new ArrayList<String>();
+                    dependents.put(dependency, list);
+                }
+                list.add(entry.getKey());
+            }
+            pending.put(entry.getKey(), count);
+            if (count == 0 && !unknown.contains(entry.getKey())) {
+                ready.add(entry.getKey());
+            }
+        }
+        Map<String, Set<String>> ordered = new LinkedHashMap<String, Set<String>>();
+        while (!ready.isEmpty()) {
+            String beanName = ready.poll();
+            ordered.put(beanName, dependencies.get(beanName));
+            List<String> list = dependents.get(beanName);
+            if (list != null) {
+                for (String dependent : list) {
+                    int count = pending.get(dependent) - 1;
+                    pending.put(dependent, count);
+                    if (count == 0 && !unknown.contains(dependent)) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        }
+        return ordered;
+    }
+
+    // Adds the singletons the definition refers to - returns false if the definition has dependencies that cannot be
+    // known before creating the bean (autowiring). Non-singleton references are followed through their definitions
+    private boolean collectDependencies(BeanDefinition definition, Set<String> singletons, Set<String> visited) {
+        if (definition instanceof AbstractBeanDefinition
+                && ((AbstractBeanDefinition) definition).getAutowireMode() != AbstractBeanDefinition.AUTOWIRE_NO) {
+            return false;
+        }
+        if (definition.getBeanClassName() == null || hasInjectionAnnotations(definition.getBeanClassName())) {
+            return false;
+        }
+        if (definition.getDependsOn() != null) {
+            for (String dependsOn : definition.getDependsOn()) {
+                if (!collectReference(dependsOn, singletons, visited)) {
+                    return false;
+                }
+            }
+        }
+        ConstructorArgumentValues arguments = definition.getConstructorArgumentValues();
+        for (ConstructorArgumentValues.ValueHolder holder : arguments.getIndexedArgumentValues().values()) {
+            if (!collectValue(holder.getValue(), singletons, visited)) {
+                return false;
+            }
+        }
+        for (ConstructorArgumentValues.ValueHolder holder : arguments.getGenericArgumentValues()) {
+            if (!collectValue(holder.getValue(), singletons, visited)) {
+                return false;
+            }
+        }
+        for (PropertyValue propertyValue : definition.getPropertyValues().getPropertyValues()) {
+            if (!collectValue(propertyValue.getValue(), singletons, visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean collectValue(Object value, Set<String> singletons, Set<String> visited) {
+        if (value instanceof RuntimeBeanReference) {
+            RuntimeBeanReference reference = (RuntimeBeanReference) value;
+            return reference.isToParent() || collectReference(reference.getBeanName(), singletons, visited);
+        }
+        if (value instanceof BeanDefinitionHolder) {
+            return collectDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), singletons, visited);
+        }
+        if (value instanceof BeanDefinition) {
+            return collectDependencies((BeanDefinition) value, singletons, visited);
+        }
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (!collectValue(element, singletons, visited)) {
+                    return false;
+                }
+            }
+        }
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!collectValue(entry.getKey(), singletons, visited)
+                        || !collectValue(entry.getValue(), singletons, visited)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean collectReference(String name, Set<String> singletons, Set<String> visited) {
+        String beanName = canonicalName(name);
+        if (!containsBeanDefinition(beanName)) {
+            // Manually registered singleton or a bean of the parent factory - both exist already
+            return containsSingleton(beanName) || (getParentBeanFactory() != null
+                    && getParentBeanFactory().containsBean(beanName));
+        }
+        RootBeanDefinition definition = getMergedLocalBeanDefinition(beanName);
+        if (definition.isSingleton()) {
+            singletons.add(beanName);
+            return true;
+        }
+        // Prototype (or other scope) : created while creating the referring bean, so its references count as well
+        return !visited.add(beanName) || collectDependencies(definition, singletons, visited);
+    }
+
+    private boolean hasInjectionAnnotations(String className) {
+        Class<?> beanClass;
+        try {
+            beanClass = Class.forName(className, false, getBeanClassLoader());
+        } catch (ClassNotFoundException e) {
+            return true;
+        }
+        synchronized (injectedClasses) {
+            Boolean injected = injectedClasses.get(beanClass);
+            if (injected == null) {
+                injected = false;
+                for (Class<?> type = beanClass; type != null && type != Object.class; type = type.getSuperclass()) {
+                    if (annotated(type.getDeclaredFields()) || annotated(type.getDeclaredMethods())
+                            || annotated(type.getDeclaredConstructors())) {
+                        injected = true;
+                        break;
+                    }
+                }
+                injectedClasses.put(beanClass, injected);
+            }
+            return injected;
+        }
+    }
+
+    private static boolean annotated(AccessibleObject[] members) {
+        for (AccessibleObject member : members) {
+            for (Annotation annotation : member.getAnnotations()) {
+                if (INJECTION_ANNOTATIONS.contains(annotation.annotationType().getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // While the parallel phase runs, a singleton being created on another thread must not be handed out early
+    @Override
+    protected Object getSingleton(String beanName, boolean allowEarlyReference) {
+        if (!parallelPhase || !allowEarlyReference || containsSingleton(beanName)) {
+            return super.getSingleton(beanName, allowEarlyReference);
+        }
+        Thread creator = creatingThreads.get(beanName);
+        if (creator != null && creator != Thread.currentThread()) {
+            return null;
+        }
+        Object singleton = super.getSingleton(beanName, true);
+        // The creation may have started on another thread in the meantime
+        if (singleton != null && !containsSingleton(beanName)
+                && creatingThreads.get(beanName) != Thread.currentThread()) {
+            return null;
+        }
+        return singleton;
+    }
+
+    // Same as the default implementation, but locks only the bean being created while the parallel phase runs
+    @Override
+    public Object getSingleton(String beanName, ObjectFactory singletonFactory) {
+        if (!parallelPhase) {
+            return super.getSingleton(beanName, singletonFactory);
+        }
+        Object lock = creationLocks.get(beanName);
+        if (lock == null) {
+            Object created = new Object();
+            lock = creationLocks.putIfAbsent(beanName, created);
+            if (lock == null) {
+                lock = created;
+            }
+        }
+        synchronized (lock) {
+            Object singleton = super.getSingleton(beanName, false);
+            if (singleton == null) {
+                creatingThreads.put(beanName, Thread.currentThread());
+                beforeSingletonCreation(beanName);
+                try {
+                    singleton = singletonFactory.getObject();
+                } finally {
+                    afterSingletonCreation(beanName);
+                    creatingThreads.remove(beanName);
+                }
+                addSingleton(beanName, singleton);
+            }
+            return singleton != NULL_OBJECT ? singleton : null;
+        }
+    }
+}
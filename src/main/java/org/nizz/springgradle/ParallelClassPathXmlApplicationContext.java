@@ -0,0 +1,28 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+// Same as ClassPathXmlApplicationContext, but the non-lazy singletons are created in parallel when the context is
+// refreshed (check ParallelBeanFactory class)
+public class ParallelClassPathXmlApplicationContext extends ClassPathXmlApplicationContext {
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public ParallelClassPathXmlApplicationContext(String... configLocations) {
+        super(configLocations, false);
+        refresh();
+    }
+
+    public ParallelClassPathXmlApplicationContext(String[] configLocations, int parallelism) {
+        super(configLocations, false);
+        this.parallelism = parallelism;
+        refresh();
+    }
+
+    @Override
+    protected DefaultListableBeanFactory createBeanFactory() {
+        ParallelBeanFactory beanFactory = new ParallelBeanFactory(getInternalParentBeanFactory());
+        beanFactory.setParallelism(parallelism);
+        return beanFactory;
+    }
+}
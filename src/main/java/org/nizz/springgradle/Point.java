@@ -2,9 +2,13 @@ package org.nizz.springgradle;
 
 import org.springframework.beans.factory.BeanNameAware;
 
-public class Point implements BeanNameAware {
+public class Point implements BeanNameAware, Recyclable<Point> {
     private int x;
     private int y;
+    // Incremented when x or y change : a shape remembers the versions of its points when it is drawn and is dirty
+    // again as soon as one of them is different (check Shape.isDirty) - so a point shared by several shapes, like
+    // zeroPoint, makes all of them dirty without knowing about them
+    private int version;
     String beanName;
 
     public Point() {}
@@ -15,11 +19,21 @@ public class Point implements BeanNameAware {
     }
 
     public void setX(int x) {
-        this.x = x;
+        if (this.x != x) {
+            this.x = x;
+            version++;
+        }
     }
 
     public void setY(int y) {
-        this.y = y;
+        if (this.y != y) {
+            this.y = y;
+            version++;
+        }
+    }
+
+    public int getVersion() {
+        return version;
     }
 
     public int getX() {
@@ -30,16 +44,51 @@ public class Point implements BeanNameAware {
         return y;
     }
 
+    // x and y packed in one long (x in the high half) - a LivePoint returns both from a single read, so the pair is
+    // always consistent even while another thread moves the point
+    public long getLocation() {
+        return location(getX(), getY());
+    }
+
+    public static long location(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int locationX(long location) {
+        return (int) (location >> 32);
+    }
+
+    public static int locationY(long location) {
+        return (int) location;
+    }
+
     public String getCoordinates() {
         return "(" + this.x + ", " + this.y + ")";
     }
 
     public void customGlobalBeanInit() {
-        System.out.println("Custom global init method called for Point class for bean: " + beanName);
+        LifecycleLog.println("Custom global init method called for Point class for bean: " + beanName);
     }
 
     public void customGlobalBeanDestroy() {
-        System.out.println("Custom global destroy method called for Point class for bean: " + beanName + "\n");
+        LifecycleLog.println("Custom global destroy method called for Point class for bean: " + beanName + "\n");
+    }
+
+    // A plain Point with the same co-ordinates - the template PooledScope resets released points from
+    @Override
+    public Point copy() {
+        long location = getLocation();
+        Point copy = new Point(locationX(location), locationY(location));
+        copy.beanName = beanName;
+        return copy;
+    }
+
+    // Used by PooledScope when the point is released back to the pool
+    @Override
+    public void recycleFrom(Point template) {
+        this.x = template.x;
+        this.y = template.y;
+        version++;
     }
 
     @Override
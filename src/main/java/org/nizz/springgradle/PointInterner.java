@@ -0,0 +1,267 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * =================================
+ *          POINT INTERNER
+ * =================================
+ * Several Point beans hold the same co-ordinates (zeroPoint, the inner points of the triangles, etc.) - each of them is
+ * an instance of its own, with its own bean name and its own init and destroy callbacks. With interning on
+ * (-Dspringgradle.internPoints=true or the enabled property), all the points with the same co-ordinates become one
+ * shared InternedPoint, a flyweight that cannot be moved
+ *
+ * As a BeanFactoryPostProcessor, it changes the bean definitions before any Point is created, so the points it
+ * replaces are never created at all :
+ * 1. An inner Point bean (<property name="p3"><bean class="...Point">) is replaced by the shared point itself
+ * 2. A Point bean with an id gets the shared point from intern(x, y) of this bean (factory-bean / factory-method) -
+ * every bean name still exists, they just all return the same instance
+ *
+ * Only the points that cannot change are interned : class Point exactly (not LivePoint), singleton scope (or inner),
+ * x and y given as numbers in the XML file (constructor arguments or x / y properties) and nothing else. Points that
+ * the application moves must be listed in excludedBeans (zeroPoint, moved by Main) - moving an interned point throws
+ *
+ * The table of shared points is bounded (capacity) and lock-free : a point is looked for in a few slots after its hash,
+ * and when they are all taken by other co-ordinates the point is created without being shared
+ *
+ * Check HeapFootprintReport class for the memory it saves
+ *
+ * */
+public class PointInterner implements BeanFactoryPostProcessor, BeanNameAware {
+    private static final int PROBES = 8;
+
+    private boolean enabled = Boolean.getBoolean("springgradle.internPoints");
+    private Set<String> excludedBeans = Collections.emptySet();
+    private AtomicReferenceArray<InternedPoint> table = new AtomicReferenceArray<InternedPoint>(1024);
+    private String beanName;
+    private final AtomicInteger shared = new AtomicInteger();
+    private final AtomicInteger unshared = new AtomicInteger();
+    private int replacedDefinitions;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setExcludedBeans(List<String> excludedBeans) {
+        this.excludedBeans = new HashSet<String>(excludedBeans);
+    }
+
+    // Rounded up to a power of two
+    public void setCapacity(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        this.table = new AtomicReferenceArray<InternedPoint>(Integer.highestOneBit(capacity * 2 - 1));
+    }
+
+    @Override
+    public void setBeanName(String beanName) {
+        this.beanName = beanName;
+    }
+
+    // The shared point with these co-ordinates
+    public InternedPoint intern(int x, int y) {
+        AtomicReferenceArray<InternedPoint> table = this.table;
+        int mask = table.length() - 1;
+        int hash = (x * 0x9E3779B9) ^ (y * 0x85EBCA6B);
+        hash ^= hash >>> 16;
+        InternedPoint created = null;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = (hash + probe) & mask;
+            InternedPoint point = table.get(slot);
+            if (point == null) {
+                if (created == null) {
+                    created = new InternedPoint(x, y);
+                }
+                if (table.compareAndSet(slot, null, created)) {
+                    shared.incrementAndGet();
+                    return created;
+                }
+                // Another thread took the slot first - maybe with the same co-ordinates
+                point = table.get(slot);
+            }
+            if (point.getX() == x && point.getY() == y) {
+                return point;
+            }
+        }
+        unshared.incrementAndGet();
+        return created != null ? created : new InternedPoint(x, y);
+    }
+
+    // Shared points in the table
+    public int getSharedCount() {
+        return shared.get();
+    }
+
+    // Points created without being shared, the table being full around their hash
+    public int getUnsharedCount() {
+        return unshared.get();
+    }
+
+    // Point bean definitions (with an id or inner) replaced by a shared point
+    public int getReplacedDefinitions() {
+        return replacedDefinitions;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (!enabled) {
+            return;
+        }
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            long location = excludedBeans.contains(name) ? -1 : constantLocation(definition, false);
+            if (location != -1 && definition instanceof AbstractBeanDefinition && beanName != null) {
+                useInterner((AbstractBeanDefinition) definition, location);
+            } else {
+                internInnerPoints(definition);
+            }
+        }
+    }
+
+    // The definition now calls intern(x, y) on this bean - no per-bean init or destroy callback for a shared point
+    private void useInterner(AbstractBeanDefinition definition, long location) {
+        definition.setBeanClassName(null);
+        definition.setFactoryBeanName(beanName);
+        definition.setFactoryMethodName("intern");
+        definition.setPropertyValues(new MutablePropertyValues());
+        ConstructorArgumentValues arguments = new ConstructorArgumentValues();
+        arguments.addIndexedArgumentValue(0, Point.locationX(location), "int");
+        arguments.addIndexedArgumentValue(1, Point.locationY(location), "int");
+        definition.setConstructorArgumentValues(arguments);
+        definition.setInitMethodName(null);
+        definition.setDestroyMethodName(null);
+        replacedDefinitions++;
+    }
+
+    // Replaces the inner Point beans of the definition (in its properties, constructor arguments and collections)
+    private void internInnerPoints(BeanDefinition definition) {
+        for (PropertyValue propertyValue : definition.getPropertyValues().getPropertyValues()) {
+            Object value = propertyValue.getValue();
+            Object interned = intern(value);
+            if (interned != value) {
+                definition.getPropertyValues().addPropertyValue(propertyValue.getName(), interned);
+            }
+        }
+        ConstructorArgumentValues arguments = definition.getConstructorArgumentValues();
+        for (ConstructorArgumentValues.ValueHolder holder : arguments.getIndexedArgumentValues().values()) {
+            holder.setValue(intern(holder.getValue()));
+        }
+        for (ConstructorArgumentValues.ValueHolder holder : arguments.getGenericArgumentValues()) {
+            holder.setValue(intern(holder.getValue()));
+        }
+    }
+
+    // The shared point for an inner Point bean, the value itself otherwise (after looking inside collections and
+    // other inner beans)
+    @SuppressWarnings("unchecked")
+    private Object intern(Object value) {
+        if (value instanceof BeanDefinitionHolder) {
+            BeanDefinition inner = ((BeanDefinitionHolder) value).getBeanDefinition();
+            long location = constantLocation(inner, true);
+            if (location != -1) {
+                replacedDefinitions++;
+                return intern(Point.locationX(location), Point.locationY(location));
+            }
+            internInnerPoints(inner);
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            for (int i = 0; i < list.size(); i++) {
+                list.set(i, intern(list.get(i)));
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                entry.setValue(intern(entry.getValue()));
+            }
+        }
+        return value;
+    }
+
+    // Point.location(x, y) if the definition is a Point that can be shared, -1 otherwise (-1 is also (-1, -1), which is
+    // then simply never interned)
+    private static long constantLocation(BeanDefinition definition, boolean inner) {
+        if (!Point.class.getName().equals(definition.getBeanClassName()) || definition.getParentName() != null
+                || definition.isAbstract() || definition.getFactoryMethodName() != null
+                || (!inner && !definition.isSingleton()) || !(definition instanceof AbstractBeanDefinition)) {
+            return -1;
+        }
+        AbstractBeanDefinition beanDefinition = (AbstractBeanDefinition) definition;
+        // Only the default init and destroy methods (customGlobalBeanInit, customGlobalBeanDestroy), which only print
+        if ((beanDefinition.getInitMethodName() != null && beanDefinition.isEnforceInitMethod())
+                || (beanDefinition.getDestroyMethodName() != null && beanDefinition.isEnforceDestroyMethod())
+                || beanDefinition.getDependsOn() != null
+                || beanDefinition.getAutowireMode() != AbstractBeanDefinition.AUTOWIRE_NO) {
+            return -1;
+        }
+        try {
+            int x = 0;
+            int y = 0;
+            ConstructorArgumentValues arguments = definition.getConstructorArgumentValues();
+            if (!arguments.isEmpty()) {
+                if (arguments.getArgumentCount() != 2 || !definition.getPropertyValues().isEmpty()) {
+                    return -1;
+                }
+                ConstructorArgumentValues.ValueHolder first = arguments.getIndexedArgumentValue(0, null);
+                ConstructorArgumentValues.ValueHolder second = arguments.getIndexedArgumentValue(1, null);
+                if (first == null && second == null && arguments.getGenericArgumentValues().size() == 2) {
+                    first = arguments.getGenericArgumentValues().get(0);
+                    second = arguments.getGenericArgumentValues().get(1);
+                }
+                if (first == null || second == null) {
+                    return -1;
+                }
+                x = number(first.getValue());
+                y = number(second.getValue());
+            } else {
+                for (PropertyValue propertyValue : definition.getPropertyValues().getPropertyValues()) {
+                    if ("x".equals(propertyValue.getName())) {
+                        x = number(propertyValue.getValue());
+                    } else if ("y".equals(propertyValue.getName())) {
+                        y = number(propertyValue.getValue());
+                    } else {
+                        return -1;
+                    }
+                }
+            }
+            return x == -1 && y == -1 ? -1 : Point.location(x, y);
+        } catch (NumberFormatException e) {
+            // A placeholder left unresolved, a reference, an expression...
+            return -1;
+        }
+    }
+
+    private static int number(Object value) {
+        if (value instanceof TypedStringValue) {
+            value = ((TypedStringValue) value).getValue();
+        }
+        if (value instanceof String) {
+            return Integer.parseInt(((String) value).trim());
+        }
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        throw new NumberFormatException("Not a number : " + value);
+    }
+}
@@ -0,0 +1,346 @@
+package org.nizz.springgradle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/*
+ * =================================
+ *           POINT STORE
+ * =================================
+ * Keeps the co-ordinates of many points in two primitive columns (one for x, one for y) instead of one Point object
+ * per co-ordinate - a Point object carries an object header, two ints and a reference to its bean name, while a
+ * point in the store costs exactly 8 bytes
+ *
+ * Points are referred to by their index in the store - the index is the lightweight handle. Circle and Triangle keep
+ * the store and the index (setCenter, setPoints) and read the columns directly, so bulk operations on the store
+ * (translate, boundingBox) move them as well. When an API needs an actual Point, view(index) hands out a Point that
+ * reads and writes the columns - but it is a new object on every call, and being a Point it also carries the
+ * (unused) fields of a Point : keep the index rather than the view
+ *
+ * Two layouts are available:
+ * 1. onHeap : x and y live in int[] arrays on the Java heap
+ * 2. offHeap : x and y live in a direct ByteBuffer outside the Java heap (not scanned or copied by the GC)
+ *
+ * NOTE: The store is not thread-safe - synchronize externally if it is shared between threads
+ *
+ * */
+public abstract class PointStore {
+    static final int DEFAULT_CAPACITY = 16;
+
+    int size;
+    // Incremented by every change of a co-ordinate - the version of all the views (check Point.getVersion)
+    int version;
+
+    public static PointStore onHeap() {
+        return new HeapPointStore(DEFAULT_CAPACITY);
+    }
+
+    public static PointStore onHeap(int initialCapacity) {
+        return new HeapPointStore(initialCapacity);
+    }
+
+    public static PointStore offHeap(int initialCapacity) {
+        return new DirectPointStore(initialCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int add(Point point) {
+        return add(point.getX(), point.getY());
+    }
+
+    // Returns the index (handle) of the newly added point
+    public abstract int add(int x, int y);
+
+    public abstract int getX(int index);
+
+    public abstract int getY(int index);
+
+    public abstract void setX(int index, int x);
+
+    public abstract void setY(int index, int y);
+
+    public void set(int index, int x, int y) {
+        setX(index, x);
+        setY(index, y);
+    }
+
+    public void translate(int dx, int dy) {
+        translate(0, size, dx, dy);
+    }
+
+    // Moves the points in the index range [from, to) by (dx, dy)
+    public abstract void translate(int from, int to, int dx, int dy);
+
+    public int[] boundingBox() {
+        return boundingBox(0, size);
+    }
+
+    // Returns {minX, minY, maxX, maxY} of the points in the index range [from, to), or null if the range is empty
+    public abstract int[] boundingBox(int from, int to);
+
+    public Point view(int index) {
+        checkIndex(index);
+        return new PointView(this, index);
+    }
+
+    // Changes whenever a co-ordinate of the store changes - one counter for the whole store rather than one per point,
+    // so the store stays at 8 bytes per point. A shape using a view is redrawn when any point of its store moved
+    public int getVersion() {
+        return version;
+    }
+
+    void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Point index " + index + " is out of bounds for store of size " + size);
+        }
+    }
+
+    void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is out of bounds for store of size "
+                    + size);
+        }
+    }
+
+    static int grow(int capacity, int required) {
+        int newCapacity = Math.max(capacity + (capacity >> 1), DEFAULT_CAPACITY);
+        return Math.max(newCapacity, required);
+    }
+
+    // Point that reads and writes the store : the co-ordinates stay in the store, the inherited fields are not used
+    static class PointView extends Point {
+        final PointStore store;
+        final int index;
+
+        PointView(PointStore store, int index) {
+            this.store = store;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public void setX(int x) {
+            store.setX(index, x);
+        }
+
+        @Override
+        public void setY(int y) {
+            store.setY(index, y);
+        }
+
+        @Override
+        public int getVersion() {
+            return store.version;
+        }
+
+        @Override
+        public int getX() {
+            return store.getX(index);
+        }
+
+        @Override
+        public int getY() {
+            return store.getY(index);
+        }
+
+        @Override
+        public String getCoordinates() {
+            return "(" + getX() + ", " + getY() + ")";
+        }
+    }
+
+    static class HeapPointStore extends PointStore {
+        int[] xs;
+        int[] ys;
+
+        HeapPointStore(int initialCapacity) {
+            xs = new int[Math.max(initialCapacity, 1)];
+            ys = new int[Math.max(initialCapacity, 1)];
+        }
+
+        @Override
+        public int add(int x, int y) {
+            if (size == xs.length) {
+                int capacity = grow(xs.length, size + 1);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            return size++;
+        }
+
+        @Override
+        public int getX(int index) {
+            checkIndex(index);
+            return xs[index];
+        }
+
+        @Override
+        public int getY(int index) {
+            checkIndex(index);
+            return ys[index];
+        }
+
+        @Override
+        public void setX(int index, int x) {
+            checkIndex(index);
+            xs[index] = x;
+            version++;
+        }
+
+        @Override
+        public void setY(int index, int y) {
+            checkIndex(index);
+            ys[index] = y;
+            version++;
+        }
+
+        @Override
+        public void translate(int from, int to, int dx, int dy) {
+            checkRange(from, to);
+            int[] xs = this.xs;
+            int[] ys = this.ys;
+            for (int i = from; i < to; i++) {
+                xs[i] += dx;
+            }
+            for (int i = from; i < to; i++) {
+                ys[i] += dy;
+            }
+            version++;
+        }
+
+        @Override
+        public int[] boundingBox(int from, int to) {
+            checkRange(from, to);
+            if (from == to) {
+                return null;
+            }
+            int[] xs = this.xs;
+            int[] ys = this.ys;
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                minX = Math.min(minX, xs[i]);
+                maxX = Math.max(maxX, xs[i]);
+            }
+            for (int i = from; i < to; i++) {
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            return new int[] {minX, minY, maxX, maxY};
+        }
+    }
+
+    static class DirectPointStore extends PointStore {
+        ByteBuffer buffer;
+        IntBuffer xs;
+        IntBuffer ys;
+        int capacity;
+
+        DirectPointStore(int initialCapacity) {
+            allocate(Math.max(initialCapacity, 1));
+        }
+
+        // x column takes the first half of the buffer and y column the second half
+        private void allocate(int capacity) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder());
+            buffer.limit(capacity * 4);
+            IntBuffer xs = buffer.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+            buffer.limit(capacity * 8).position(capacity * 4);
+            IntBuffer ys = buffer.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+            buffer.clear();
+            if (this.xs != null) {
+                for (int i = 0; i < size; i++) {
+                    xs.put(i, this.xs.get(i));
+                    ys.put(i, this.ys.get(i));
+                }
+            }
+            this.buffer = buffer;
+            this.xs = xs;
+            this.ys = ys;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public int add(int x, int y) {
+            if (size == capacity) {
+                allocate(grow(capacity, size + 1));
+            }
+            xs.put(size, x);
+            ys.put(size, y);
+            return size++;
+        }
+
+        @Override
+        public int getX(int index) {
+            checkIndex(index);
+            return xs.get(index);
+        }
+
+        @Override
+        public int getY(int index) {
+            checkIndex(index);
+            return ys.get(index);
+        }
+
+        @Override
+        public void setX(int index, int x) {
+            checkIndex(index);
+            xs.put(index, x);
+            version++;
+        }
+
+        @Override
+        public void setY(int index, int y) {
+            checkIndex(index);
+            ys.put(index, y);
+            version++;
+        }
+
+        @Override
+        public void translate(int from, int to, int dx, int dy) {
+            checkRange(from, to);
+            IntBuffer xs = this.xs;
+            IntBuffer ys = this.ys;
+            for (int i = from; i < to; i++) {
+                xs.put(i, xs.get(i) + dx);
+            }
+            for (int i = from; i < to; i++) {
+                ys.put(i, ys.get(i) + dy);
+            }
+            version++;
+        }
+
+        @Override
+        public int[] boundingBox(int from, int to) {
+            checkRange(from, to);
+            if (from == to) {
+                return null;
+            }
+            IntBuffer xs = this.xs;
+            IntBuffer ys = this.ys;
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int x = xs.get(i);
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+            }
+            for (int i = from; i < to; i++) {
+                int y = ys.get(i);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+            return new int[] {minX, minY, maxX, maxY};
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * =================================
+ *      POINTS CONFIG WATCHER
+ * =================================
+ * PropertyPlaceholderConfigurer replaces ${CENTER.POINT_X} with its value once, before the beans are created -
+ * changing pointsconfig.properties afterwards has no effect until the context is created again. This watcher keeps
+ * the points in sync with the file instead, without refreshing the context:
+ *
+ * 1. As a BeanFactoryPostProcessor running before PropertyPlaceholderConfigurer, it finds the singleton LivePoint
+ * beans whose x or y is a placeholder (constructor arguments or x / y properties) and remembers the keys
+ * 2. Once the context is refreshed, a daemon thread watches the directory of the file with a WatchService
+ * 3. When the file changes, it waits until the file has not changed for debounceMillis (an editor saving a file can
+ * produce several events in a row), reads it and moves every bound point with LivePoint.setLocation - so other
+ * threads see the old (x, y) or the new one, never a mix of both
+ *
+ * The values of all the points are read and checked before any point is moved : a file with an invalid number is
+ * ignored as a whole. A key missing from the file leaves that co-ordinate as it is
+ *
+ * NOTE: The location must be a file on disk (not inside a jar) - with "pointsconfig.properties", it is the copy in
+ * the build output directory that is watched. Prototype beans keep the values read at startup
+ *
+ * */
+public class PointsConfigWatcher implements BeanFactoryPostProcessor, PriorityOrdered,
+        ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+    // ${KEY} or ${KEY:default}
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}:]+)(?::[^}]*)?}");
+
+    private Resource location;
+    private long debounceMillis = 200;
+    private ConfigurableListableBeanFactory beanFactory;
+    private final List<Binding> bindings = new ArrayList<Binding>();
+    private Path file;
+    private WatchService watchService;
+    private Thread watcher;
+    private volatile int reloadCount;
+
+    public void setLocation(Resource location) {
+        this.location = location;
+    }
+
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    public int getReloadCount() {
+        return reloadCount;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (!LivePoint.class.getName().equals(definition.getBeanClassName()) || !definition.isSingleton()
+                    || definition.isAbstract()) {
+                continue;
+            }
+            String xKey = key(definition, 0, "x");
+            String yKey = key(definition, 1, "y");
+            if (xKey != null || yKey != null) {
+                bindings.add(new Binding(beanName, xKey, yKey));
+            }
+        }
+    }
+
+    // The placeholder key of a co-ordinate, from the constructor argument at that index or from the property
+    private static String key(BeanDefinition definition, int index, String property) {
+        ConstructorArgumentValues arguments = definition.getConstructorArgumentValues();
+        ConstructorArgumentValues.ValueHolder holder = arguments.getIndexedArgumentValue(index, null);
+        if (holder == null && arguments.getGenericArgumentValues().size() == 2) {
+            holder = arguments.getGenericArgumentValues().get(index);
+        }
+        if (holder != null) {
+            return placeholder(holder.getValue());
+        }
+        PropertyValue propertyValue = definition.getPropertyValues().getPropertyValue(property);
+        return propertyValue == null ? null : placeholder(propertyValue.getValue());
+    }
+
+    private static String placeholder(Object value) {
+        String text = value instanceof TypedStringValue ? ((TypedStringValue) value).getValue()
+                : value instanceof String ? (String) value : null;
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(text.trim());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        if (watcher != null || bindings.isEmpty() || location == null) {
+            return;
+        }
+        try {
+            file = location.getFile().toPath().toAbsolutePath();
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.out.println("Not watching " + location.getDescription() + ": " + e.getMessage());
+            return;
+        }
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "points-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isFileChanged(watchService.take())) {
+                    continue;
+                }
+                // Debounce : every new change of the file pushes the reload back by debounceMillis
+                long quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                for (long remaining; (remaining = quietUntil - System.nanoTime()) > 0; ) {
+                    WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (key != null && isFileChanged(key)) {
+                        quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                    }
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // destroy() : the context is closing
+        }
+    }
+
+    // Whether one of the events of the key is about our file - the key is reset for the next events
+    private boolean isFileChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    // Reads the file and moves the bound points - returns false if the file could not be read or has an invalid value
+    public synchronized boolean reload() {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file != null ? file : location.getFile().toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.out.println("Could not reload " + location.getDescription() + ": " + e.getMessage());
+            return false;
+        }
+        LivePoint[] points = new LivePoint[bindings.size()];
+        long[] locations = new long[bindings.size()];
+        for (int i = 0; i < bindings.size(); i++) {
+            Binding binding = bindings.get(i);
+            points[i] = beanFactory.getBean(binding.beanName, LivePoint.class);
+            try {
+                locations[i] = Point.location(value(properties, binding.xKey, points[i].getX()),
+                        value(properties, binding.yKey, points[i].getY()));
+            } catch (NumberFormatException e) {
+                System.out.println("Ignored the new " + location.getFilename() + " for bean " + binding.beanName + ": "
+                        + e.getMessage());
+                return false;
+            }
+        }
+        for (int i = 0; i < points.length; i++) {
+            points[i].setLocation(Point.locationX(locations[i]), Point.locationY(locations[i]));
+            System.out.println("Reloaded " + location.getFilename() + ": " + bindings.get(i).beanName + " is now "
+                    + points[i].getCoordinates());
+        }
+        reloadCount++;
+        return true;
+    }
+
+    private static int value(Properties properties, String key, int current) {
+        String value = key == null ? null : properties.getProperty(key);
+        return value == null ? current : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        if (watcher != null) {
+            watcher.interrupt();
+            watchService.close();
+            watcher = null;
+        }
+    }
+
+    private static class Binding {
+        final String beanName;
+        final String xKey;
+        final String yKey;
+
+        Binding(String beanName, String xKey, String yKey) {
+            this.beanName = beanName;
+            this.xKey = xKey;
+            this.yKey = yKey;
+        }
+    }
+}
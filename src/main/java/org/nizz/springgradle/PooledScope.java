@@ -0,0 +1,128 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.Scope;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * =================================
+ *          POOLED SCOPE
+ * =================================
+ * Custom bean scope (registered under the name "pooled" through CustomScopeConfigurer - check
+ * springApplicationContext.xml). Like prototype, every getBean() call gets its own instance - but once the caller is
+ * done with the bean, it hands it back with release() and the next getBean() call reuses it instead of running the
+ * whole bean creation (instantiation, property population, aware callbacks, bean post processors, init methods)
+ *
+ * For every bean name, the scope keeps a template and a bounded queue of idle instances. The template is a copy of
+ * the first instance created (Recyclable.copy), so creating the pool costs one bean creation, not two, and the first
+ * caller gets that instance. A released bean is reset from the template (check Recyclable interface) before it goes
+ * back into the queue - if the queue is already full, the released bean is simply left for the garbage collector
+ *
+ * NOTE: Spring does not call destroy methods for pooled beans (just like for prototype beans)
+ * NOTE: A bean must not be used after it has been released - it may already belong to someone else
+ * NOTE: The pool keeps track of the instances it handed out (by identity) : releasing a bean twice, or a bean it did
+ * not hand out, is rejected instead of putting the same instance in the queue twice. A bean that is never released
+ * stays tracked until the pool is removed
+ *
+ * */
+public class PooledScope implements Scope {
+    public static final String SCOPE_NAME = "pooled";
+
+    private int maxIdle = 64;
+    private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        Pool pool = pools.get(name);
+        if (pool == null) {
+            Object bean = objectFactory.getObject();
+            if (!(bean instanceof Recyclable)) {
+                throw new IllegalStateException("Bean '" + name + "' of type " + bean.getClass().getName()
+                        + " must implement Recyclable to be used in the pooled scope");
+            }
+            // The template is taken before the bean is handed out, while it is still as the container created it
+            Pool created = new Pool(bean.getClass(), ((Recyclable<?>) bean).copy(), maxIdle);
+            pool = pools.putIfAbsent(name, created);
+            return (pool != null ? pool : created).handOut(bean);
+        }
+        Object bean = pool.idle.poll();
+        return pool.handOut(bean != null ? bean : objectFactory.getObject());
+    }
+
+    // Resets the bean and puts it back in the pool of the given bean name
+    @SuppressWarnings("unchecked")
+    public void release(String name, Object bean) {
+        Pool pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("No pooled bean named '" + name + "' has been created");
+        }
+        if (bean.getClass() != pool.beanClass) {
+            throw new IllegalArgumentException("Bean of type " + bean.getClass().getName()
+                    + " does not belong to the pool of '" + name + "'");
+        }
+        synchronized (pool) {
+            if (!pool.inUse.remove(bean)) {
+                throw new IllegalArgumentException("Bean '" + name + "' was already released, or was not handed out"
+                        + " by the pool");
+            }
+        }
+        ((Recyclable<Object>) bean).recycleFrom(pool.template);
+        pool.idle.offer(bean);
+    }
+
+    public int getIdleCount(String name) {
+        Pool pool = pools.get(name);
+        return pool != null ? pool.idle.size() : 0;
+    }
+
+    @Override
+    public Object remove(String name) {
+        Pool removed = pools.remove(name);
+        return removed != null ? removed.template : null;
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        // Pooled beans are not destroyed by the container (check the NOTE above)
+    }
+
+    @Override
+    public Object resolveContextualObject(String key) {
+        return null;
+    }
+
+    @Override
+    public String getConversationId() {
+        return null;
+    }
+
+    private static class Pool {
+        final Class<?> beanClass;
+        final Object template;
+        final BlockingQueue<Object> idle;
+        // Instances handed out and not released yet (guarded by the pool)
+        final Set<Object> inUse = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+        Pool(Class<?> beanClass, Object template, int maxIdle) {
+            this.beanClass = beanClass;
+            this.template = template;
+            this.idle = new ArrayBlockingQueue<Object>(Math.max(maxIdle, 1));
+        }
+
+        synchronized Object handOut(Object bean) {
+            inUse.add(bean);
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.context.support.GenericApplicationContext;
+
+/*
+ * =================================
+ *  PRECOMPILED APPLICATION CONTEXT
+ * =================================
+ * ClassPathXmlApplicationContext has to parse and validate springApplicationContext.xml and scan the classpath for
+ * @Component classes on every start. The generateBeanDefinitions Gradle task does that work once at build time and
+ * writes GeneratedBeanDefinitions, a class that registers the very same bean definitions with plain method calls -
+ * this context simply runs that class and refreshes
+ *
+ * NOTE: Placeholders (${CENTER.POINT_X}, etc.) are still resolved at start-up by PropertyPlaceholderConfigurer, so
+ * pointsconfig.properties can change without rebuilding. Changes to the XML file or to @Component classes need a
+ * rebuild (./gradlew build) to be picked up
+ *
+ * */
+public class PrecompiledApplicationContext extends GenericApplicationContext {
+
+    public PrecompiledApplicationContext() {
+        PrecompiledBeanDefinitions definitions;
+        try {
+            definitions = (PrecompiledBeanDefinitions) Class.forName(PrecompiledBeanDefinitions.GENERATED_CLASS_NAME)
+                    .newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Generated bean definitions not found on the classpath - run the "
+                    + "generateBeanDefinitions Gradle task first", e);
+        } catch (ReflectiveOperationException e) {
+            throw new BeanInstantiationException(PrecompiledBeanDefinitions.class,
+                    "Could not instantiate the generated bean definitions", e);
+        }
+        definitions.registerBeanDefinitions(this);
+        refresh();
+    }
+}
@@ -0,0 +1,79 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedSet;
+
+/*
+ * Base class of the code generated by BeanDefinitionCodeGenerator at build time - the generated subclass registers
+ * the bean definitions directly, and the static helpers below keep the generated code short
+ * */
+public abstract class PrecompiledBeanDefinitions {
+    public static final String GENERATED_CLASS_NAME = "org.nizz.springgradle.GeneratedBeanDefinitions";
+
+    public abstract void registerBeanDefinitions(BeanDefinitionRegistry registry);
+
+    protected static TypedStringValue value(String value, String targetTypeName) {
+        TypedStringValue typedValue = new TypedStringValue(value);
+        if (targetTypeName != null) {
+            typedValue.setTargetTypeName(targetTypeName);
+        }
+        return typedValue;
+    }
+
+    protected static RuntimeBeanReference ref(String beanName, boolean toParent) {
+        return new RuntimeBeanReference(beanName, toParent);
+    }
+
+    protected static RuntimeBeanNameReference idref(String beanName) {
+        return new RuntimeBeanNameReference(beanName);
+    }
+
+    protected static BeanDefinitionHolder inner(BeanDefinition definition, String beanName, String... aliases) {
+        return new BeanDefinitionHolder(definition, beanName, aliases.length > 0 ? aliases : null);
+    }
+
+    protected static ConstructorArgumentValues.ValueHolder arg(Object value, String type, String name) {
+        return new ConstructorArgumentValues.ValueHolder(value, type, name);
+    }
+
+    protected static ManagedList<Object> list(boolean mergeEnabled, String elementTypeName, Object... elements) {
+        ManagedList<Object> list = new ManagedList<Object>(elements.length);
+        list.setMergeEnabled(mergeEnabled);
+        list.setElementTypeName(elementTypeName);
+        for (Object element : elements) {
+            list.add(element);
+        }
+        return list;
+    }
+
+    protected static ManagedSet<Object> set(boolean mergeEnabled, String elementTypeName, Object... elements) {
+        ManagedSet<Object> set = new ManagedSet<Object>(elements.length);
+        set.setMergeEnabled(mergeEnabled);
+        set.setElementTypeName(elementTypeName);
+        for (Object element : elements) {
+            set.add(element);
+        }
+        return set;
+    }
+
+    // Keys and values alternate : map(merge, keyType, valueType, key1, value1, key2, value2, ...)
+    protected static ManagedMap<Object, Object> map(boolean mergeEnabled, String keyTypeName, String valueTypeName,
+                                                    Object... keysAndValues) {
+        ManagedMap<Object, Object> map = new ManagedMap<Object, Object>(keysAndValues.length / 2);
+        map.setMergeEnabled(mergeEnabled);
+        map.setKeyTypeName(keyTypeName);
+        map.setValueTypeName(valueTypeName);
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,338 @@
+package org.nizz.springgradle;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * =================================
+ *            RASTERIZER
+ * =================================
+ * Fills circles and triangles into a Framebuffer, in pixels instead of the text of draw()
+ *
+ * 1. The shapes are taken as columns of co-ordinates (CircleBatch, TriangleBatch - a Scene or Shape beans are
+ * converted first) and moved into pixel space by the viewport (none by default : one unit is one pixel)
+ * 2. The image is cut into square tiles and every shape is added to the list of each tile its bounding box overlaps
+ * 3. The tiles are filled in parallel on a fork-join pool : each tile is cleared and then gets its circles and its
+ * triangles, in the order they were given. A tile is only ever written by one thread and the shapes of a tile are
+ * always drawn in the same order, so the image is the same whatever the number of threads
+ *
+ * A pixel belongs to a shape when its co-ordinates are inside it, edges included - the same rule as
+ * ShapeBounds.contains and GeometryEngine.contains. Triangles are drawn over circles
+ *
+ * */
+public class Rasterizer {
+    private final ForkJoinPool pool;
+    private final int tileSize;
+    private int background = 0xFFFFFFFF;
+    private int circleColor = 0xFF1E88E5;
+    private int triangleColor = 0xFFE53935;
+    // pixel = (co-ordinate - origin) * scale
+    private double originX;
+    private double originY;
+    private double scale = 1;
+
+    public Rasterizer() {
+        this(ForkJoinPool.commonPool(), 64);
+    }
+
+    public Rasterizer(ForkJoinPool pool, int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tileSize must be positive");
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    public void setBackground(int argb) {
+        this.background = argb;
+    }
+
+    public void setCircleColor(int argb) {
+        this.circleColor = argb;
+    }
+
+    public void setTriangleColor(int argb) {
+        this.triangleColor = argb;
+    }
+
+    // Fits the rectangle [minX, maxX] x [minY, maxY] of the scene into a framebuffer of the given size, keeping the
+    // proportions - for thumbnails of scenes much larger than the image
+    public void setViewport(int minX, int minY, int maxX, int maxY, int width, int height) {
+        double sceneWidth = Math.max(1, (double) maxX - minX + 1);
+        double sceneHeight = Math.max(1, (double) maxY - minY + 1);
+        originX = minX;
+        originY = minY;
+        scale = Math.min(width / sceneWidth, height / sceneHeight);
+    }
+
+    public void resetViewport() {
+        originX = 0;
+        originY = 0;
+        scale = 1;
+    }
+
+    // Returns the number of shape pixels filled (a pixel covered by two shapes counts twice)
+    public long render(Scene scene, Framebuffer framebuffer) {
+        return render(scene.getCircles(), scene.getTriangles(), framebuffer);
+    }
+
+    // Circles and triangles with all their points set - the other shapes are skipped
+    public long render(Collection<? extends Shape> shapes, Framebuffer framebuffer) {
+        CircleBatch circles = new CircleBatch(Math.max(1, shapes.size()));
+        TriangleBatch triangles = new TriangleBatch(Math.max(1, shapes.size()));
+        int[] bounds = new int[4];
+        for (Shape shape : shapes) {
+            if (!(shape instanceof Circle || shape instanceof Triangle) || !ShapeBounds.bounds(shape, bounds)) {
+                continue;
+            }
+            if (shape instanceof Circle) {
+                circles.add((Circle) shape);
+            } else {
+                triangles.add((Triangle) shape);
+            }
+        }
+        return render(circles, triangles, framebuffer);
+    }
+
+    public long render(CircleBatch circles, TriangleBatch triangles, Framebuffer framebuffer) {
+        Pixels pixels = toPixels(circles, triangles);
+        int tilesX = (framebuffer.getWidth() + tileSize - 1) / tileSize;
+        int tilesY = (framebuffer.getHeight() + tileSize - 1) / tileSize;
+        Bins circleBins = new Bins(tilesX * tilesY);
+        Bins triangleBins = new Bins(tilesX * tilesY);
+        for (int i = 0; i < circles.size; i++) {
+            long r = Math.abs((long) pixels.radius[i]);
+            bin(circleBins, i, pixels.centerX[i] - r, pixels.centerY[i] - r, pixels.centerX[i] + r,
+                    pixels.centerY[i] + r, framebuffer, tilesX);
+        }
+        for (int i = 0; i < triangles.size; i++) {
+            int[] x = pixels.x, y = pixels.y;
+            bin(triangleBins, i, Math.min(x[3 * i], Math.min(x[3 * i + 1], x[3 * i + 2])),
+                    Math.min(y[3 * i], Math.min(y[3 * i + 1], y[3 * i + 2])),
+                    Math.max(x[3 * i], Math.max(x[3 * i + 1], x[3 * i + 2])),
+                    Math.max(y[3 * i], Math.max(y[3 * i + 1], y[3 * i + 2])), framebuffer, tilesX);
+        }
+        return pool.invoke(new TileTask(this, pixels, circleBins, triangleBins, framebuffer, tilesX, 0,
+                tilesX * tilesY));
+    }
+
+    // The co-ordinates moved into pixel space - triangles as {x1, x2, x3} and {y1, y2, y3} per triangle, so the
+    // three points of a triangle are next to each other in memory
+    private Pixels toPixels(CircleBatch circles, TriangleBatch triangles) {
+        Pixels pixels = new Pixels();
+        boolean identity = scale == 1 && originX == 0 && originY == 0;
+        if (identity) {
+            pixels.centerX = circles.centerX;
+            pixels.centerY = circles.centerY;
+            pixels.radius = circles.radius;
+        } else {
+            pixels.centerX = new int[circles.size];
+            pixels.centerY = new int[circles.size];
+            pixels.radius = new int[circles.size];
+            for (int i = 0; i < circles.size; i++) {
+                pixels.centerX[i] = pixelX(circles.centerX[i]);
+                pixels.centerY[i] = pixelY(circles.centerY[i]);
+                pixels.radius[i] = (int) Math.round(circles.radius[i] * scale);
+            }
+        }
+        pixels.x = new int[3 * triangles.size];
+        pixels.y = new int[3 * triangles.size];
+        for (int i = 0; i < triangles.size; i++) {
+            pixels.x[3 * i] = pixelX(triangles.x1[i]);
+            pixels.x[3 * i + 1] = pixelX(triangles.x2[i]);
+            pixels.x[3 * i + 2] = pixelX(triangles.x3[i]);
+            pixels.y[3 * i] = pixelY(triangles.y1[i]);
+            pixels.y[3 * i + 1] = pixelY(triangles.y2[i]);
+            pixels.y[3 * i + 2] = pixelY(triangles.y3[i]);
+        }
+        return pixels;
+    }
+
+    private int pixelX(int x) {
+        return (int) Math.round((x - originX) * scale);
+    }
+
+    private int pixelY(int y) {
+        return (int) Math.round((y - originY) * scale);
+    }
+
+    // Adds the shape to every tile its bounding box overlaps - nothing when it is outside the framebuffer
+    private void bin(Bins bins, int shape, long minX, long minY, long maxX, long maxY, Framebuffer framebuffer,
+                     int tilesX) {
+        if (maxX < 0 || maxY < 0 || minX >= framebuffer.getWidth() || minY >= framebuffer.getHeight()) {
+            return;
+        }
+        int fromX = (int) Math.max(0, minX) / tileSize;
+        int toX = (int) Math.min(framebuffer.getWidth() - 1, maxX) / tileSize;
+        int fromY = (int) Math.max(0, minY) / tileSize;
+        int toY = (int) Math.min(framebuffer.getHeight() - 1, maxY) / tileSize;
+        for (int tileY = fromY; tileY <= toY; tileY++) {
+            for (int tileX = fromX; tileX <= toX; tileX++) {
+                bins.add(tileY * tilesX + tileX, shape);
+            }
+        }
+    }
+
+    private static class Pixels {
+        int[] centerX;
+        int[] centerY;
+        int[] radius;
+        int[] x;
+        int[] y;
+    }
+
+    // The indexes of the shapes of every tile
+    private static class Bins {
+        final int[][] shapes;
+        final int[] sizes;
+
+        Bins(int tiles) {
+            shapes = new int[tiles][];
+            sizes = new int[tiles];
+        }
+
+        void add(int tile, int shape) {
+            int[] bin = shapes[tile];
+            if (bin == null) {
+                bin = shapes[tile] = new int[8];
+            } else if (sizes[tile] == bin.length) {
+                bin = shapes[tile] = Arrays.copyOf(bin, bin.length * 2);
+            }
+            bin[sizes[tile]++] = shape;
+        }
+    }
+
+    // Splits the range of tiles in halves until a few tiles are left, then fills them
+    private static class TileTask extends RecursiveTask<Long> {
+        private static final int TILES_PER_TASK = 4;
+
+        private final Rasterizer rasterizer;
+        private final Pixels pixels;
+        private final Bins circleBins;
+        private final Bins triangleBins;
+        private final Framebuffer framebuffer;
+        private final int tilesX;
+        private final int from;
+        private final int to;
+
+        TileTask(Rasterizer rasterizer, Pixels pixels, Bins circleBins, Bins triangleBins, Framebuffer framebuffer,
+                 int tilesX, int from, int to) {
+            this.rasterizer = rasterizer;
+            this.pixels = pixels;
+            this.circleBins = circleBins;
+            this.triangleBins = triangleBins;
+            this.framebuffer = framebuffer;
+            this.tilesX = tilesX;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= TILES_PER_TASK) {
+                long filled = 0;
+                for (int tile = from; tile < to; tile++) {
+                    filled += rasterizer.fillTile(pixels, circleBins, triangleBins, framebuffer, tilesX, tile);
+                }
+                return filled;
+            }
+            int middle = (from + to) >>> 1;
+            TileTask left = new TileTask(rasterizer, pixels, circleBins, triangleBins, framebuffer, tilesX, from,
+                    middle);
+            left.fork();
+            long right = new TileTask(rasterizer, pixels, circleBins, triangleBins, framebuffer, tilesX, middle, to)
+                    .compute();
+            return left.join() + right;
+        }
+    }
+
+    private long fillTile(Pixels pixels, Bins circleBins, Bins triangleBins, Framebuffer framebuffer, int tilesX,
+                          int tile) {
+        int fromX = (tile % tilesX) * tileSize;
+        int fromY = (tile / tilesX) * tileSize;
+        int toX = Math.min(fromX + tileSize, framebuffer.getWidth()) - 1;
+        int toY = Math.min(fromY + tileSize, framebuffer.getHeight()) - 1;
+        framebuffer.fill(fromX, fromY, toX + 1, toY + 1, background);
+        long filled = 0;
+        int[] circles = circleBins.shapes[tile];
+        for (int i = 0; i < circleBins.sizes[tile]; i++) {
+            int circle = circles[i];
+            filled += fillCircle(framebuffer, pixels.centerX[circle], pixels.centerY[circle],
+                    Math.abs(pixels.radius[circle]), fromX, fromY, toX, toY);
+        }
+        int[] triangles = triangleBins.shapes[tile];
+        for (int i = 0; i < triangleBins.sizes[tile]; i++) {
+            int triangle = 3 * triangles[i];
+            filled += fillTriangle(framebuffer, pixels.x, pixels.y, triangle, fromX, fromY, toX, toY);
+        }
+        return filled;
+    }
+
+    // One span per row : the pixels at a distance of at most radius from the center
+    private long fillCircle(Framebuffer framebuffer, int centerX, int centerY, long radius, int fromX, int fromY,
+                            int toX, int toY) {
+        long filled = 0;
+        int firstY = (int) Math.max(fromY, centerY - radius);
+        int lastY = (int) Math.min(toY, centerY + radius);
+        for (int y = firstY; y <= lastY; y++) {
+            long dy = (long) y - centerY;
+            long remaining = radius * radius - dy * dy;
+            long half = (long) Math.sqrt((double) remaining);
+            // Math.sqrt on large values can be one off - the span must be exact
+            while (half * half > remaining) {
+                half--;
+            }
+            while ((half + 1) * (half + 1) <= remaining) {
+                half++;
+            }
+            int first = (int) Math.max(fromX, centerX - half);
+            int last = (int) Math.min(toX, centerX + half);
+            if (first <= last) {
+                framebuffer.fillSpan(y, first, last, circleColor);
+                filled += last - first + 1;
+            }
+        }
+        return filled;
+    }
+
+    // Edge functions : a pixel is inside when it is never on both sides of the edges. The triangle is convex, so the
+    // pixels inside a row are one span - found by walking from the left, then from the right
+    private long fillTriangle(Framebuffer framebuffer, int[] x, int[] y, int i, int fromX, int fromY, int toX,
+                              int toY) {
+        long x1 = x[i], y1 = y[i], x2 = x[i + 1], y2 = y[i + 1], x3 = x[i + 2], y3 = y[i + 2];
+        int firstX = (int) Math.max(fromX, Math.min(x1, Math.min(x2, x3)));
+        int lastX = (int) Math.min(toX, Math.max(x1, Math.max(x2, x3)));
+        int firstY = (int) Math.max(fromY, Math.min(y1, Math.min(y2, y3)));
+        int lastY = (int) Math.min(toY, Math.max(y1, Math.max(y2, y3)));
+        long filled = 0;
+        for (int row = firstY; row <= lastY; row++) {
+            int first = firstX;
+            while (first <= lastX && !inside(x1, y1, x2, y2, x3, y3, first, row)) {
+                first++;
+            }
+            if (first > lastX) {
+                continue;
+            }
+            int last = lastX;
+            while (last > first && !inside(x1, y1, x2, y2, x3, y3, last, row)) {
+                last--;
+            }
+            framebuffer.fillSpan(row, first, last, triangleColor);
+            filled += last - first + 1;
+        }
+        return filled;
+    }
+
+    // The vertices can be anywhere in the int range, only the pixel is in the framebuffer : the edge functions take
+    // up to 66 bits, so only their signs are kept (check ExactSign class)
+    private static boolean inside(long x1, long y1, long x2, long y2, long x3, long y3, long x, long y) {
+        int d1 = ExactSign.cross(x2 - x1, y - y1, y2 - y1, x - x1);
+        int d2 = ExactSign.cross(x3 - x2, y - y2, y3 - y2, x - x2);
+        int d3 = ExactSign.cross(x1 - x3, y - y3, y1 - y3, x - x3);
+        boolean negative = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean positive = d1 > 0 || d2 > 0 || d3 > 0;
+        return !(negative && positive);
+    }
+}
@@ -0,0 +1,10 @@
+package org.nizz.springgradle;
+
+// Beans that can be handed out again by PooledScope - when a bean is released back to the pool, recycleFrom resets
+// its state from the template. The template is copy() of the first instance created from the bean definition, taken
+// before anyone uses it : only the state recycleFrom reads, no bean creation (post processors, init methods) again
+public interface Recyclable<T> {
+    public void recycleFrom(T template);
+
+    public T copy();
+}
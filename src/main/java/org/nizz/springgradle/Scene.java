@@ -0,0 +1,63 @@
+package org.nizz.springgradle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shapes loaded in bulk (check ShapeLoader and SceneFactoryBean classes) - kept as primitive columns in a CircleBatch
+// and a TriangleBatch, so ten million shapes take a few hundred megabytes instead of several gigabytes of objects.
+// toShapes() turns them into Circle / Triangle objects when those are really needed
+public class Scene implements ShapeSink {
+    private final CircleBatch circles;
+    private final TriangleBatch triangles;
+
+    public Scene() {
+        this(16, 16);
+    }
+
+    public Scene(int circleCapacity, int triangleCapacity) {
+        circles = new CircleBatch(Math.max(1, circleCapacity));
+        triangles = new TriangleBatch(Math.max(1, triangleCapacity));
+    }
+
+    @Override
+    public void circle(int centerX, int centerY, int radius) {
+        circles.add(centerX, centerY, radius);
+    }
+
+    @Override
+    public void triangle(int x1, int y1, int x2, int y2, int x3, int y3) {
+        triangles.add(x1, y1, x2, y2, x3, y3);
+    }
+
+    public CircleBatch getCircles() {
+        return circles;
+    }
+
+    public TriangleBatch getTriangles() {
+        return triangles;
+    }
+
+    public int size() {
+        return circles.size() + triangles.size();
+    }
+
+    // New Circle and Triangle objects (with their own Points) for every shape of the scene
+    public List<Shape> toShapes() {
+        List<Shape> shapes = new ArrayList<Shape>(size());
+        for (int i = 0; i < circles.size; i++) {
+            Circle circle = new Circle(new Point(circles.centerX[i], circles.centerY[i]));
+            circle.setRadius(circles.radius[i]);
+            shapes.add(circle);
+        }
+        for (int i = 0; i < triangles.size; i++) {
+            shapes.add(new Triangle(new Point(triangles.x1[i], triangles.y1[i]),
+                    new Point(triangles.x2[i], triangles.y2[i]), new Point(triangles.x3[i], triangles.y3[i])));
+        }
+        return shapes;
+    }
+
+    @Override
+    public String toString() {
+        return "Scene with " + circles.size() + " circles and " + triangles.size() + " triangles";
+    }
+}
@@ -0,0 +1,84 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/*
+ * =================================
+ *           FACTORY BEAN
+ * =================================
+ * A bean definition whose class implements FactoryBean does not expose the factory itself : getBean() returns what
+ * getObject() creates (use "&" + bean name to get the factory). Here, one bean definition exposes a whole Scene
+ * loaded from a shape file (check ShapeLoader class) instead of one <bean> per shape
+ *
+ * <bean id="scene" class="org.nizz.springgradle.SceneFactoryBean">
+ *     <property name="location" value="classpath:shapes.csv" />
+ * </bean>
+ *
+ * Binary files are memory-mapped, so they have to be real files - a CSV file can also be read from inside a jar
+ *
+ * */
+public class SceneFactoryBean implements FactoryBean<Scene> {
+    private Resource location;
+    private String format;
+    private Scene scene;
+
+    public void setLocation(Resource location) {
+        this.location = location;
+    }
+
+    // csv or binary - by default, taken from the file extension
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    @Override
+    public synchronized Scene getObject() throws IOException {
+        if (scene == null) {
+            scene = load();
+        }
+        return scene;
+    }
+
+    private Scene load() throws IOException {
+        boolean csv = format != null ? "csv".equalsIgnoreCase(format)
+                : location.getFilename() != null && location.getFilename().toLowerCase().endsWith(".csv");
+        if (!csv) {
+            Path path = location.getFile().toPath();
+            long[] shapes = ShapeLoader.countBinary(path);
+            // Sized up front : ten million shapes would otherwise be copied several times while the arrays grow
+            Scene binaryScene = new Scene(capacity(shapes[0], "circles"), capacity(shapes[1], "triangles"));
+            ShapeLoader.loadBinary(path, binaryScene);
+            return binaryScene;
+        }
+        Scene csvScene = new Scene();
+        try (ReadableByteChannel channel = Channels.newChannel(location.getInputStream())) {
+            ShapeLoader.loadCsv(channel, csvScene);
+        }
+        return csvScene;
+    }
+
+    // A Scene keeps its shapes in arrays, so it cannot hold more than Integer.MAX_VALUE of each kind
+    private int capacity(long count, String shapes) {
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(location + " has " + count + " " + shapes + ", a Scene holds at most "
+                    + Integer.MAX_VALUE);
+        }
+        return (int) count;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return Scene.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
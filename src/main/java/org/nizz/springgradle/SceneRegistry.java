@@ -0,0 +1,250 @@
+package org.nizz.springgradle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/*
+ * =================================
+ *          SCENE REGISTRY
+ * =================================
+ * Immutable shapes (check ShapeValue interface) shared between threads : any number of threads can draw the scene
+ * while others add, replace or remove shapes, and nobody ever waits for a lock
+ *
+ * The whole scene is one immutable tree held in an AtomicReference :
+ * 1. A shape gets an int id when it is added - the id is its path in the tree, 5 bits per level (32 children per
+ * node), so a million shapes are 4 levels deep
+ * 2. A write copies the nodes on the path to its shape (at most a few hundred bytes, whatever the size of the scene)
+ * and swaps the root with compareAndSet - if another thread changed the scene in between, the write is retried on
+ * the new root. Nothing already published is ever modified
+ * 3. snapshot() is a single read of the root : it is a consistent view of the whole scene at one instant, which does
+ * not change while it is read, however long drawing it takes, and costs nothing to take
+ *
+ * The ids of removed shapes are not reused, but the nodes they leave empty are dropped : a scene whose shapes come and
+ * go does not keep a tree as large as every id it ever gave
+ *
+ * */
+public class SceneRegistry {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<Snapshot>(
+            new Snapshot(new Object[WIDTH], 0, 0, 0, 0));
+
+    // Called for every shape of a snapshot, in the order of their ids
+    public interface Visitor {
+        void visit(int id, ShapeValue shape);
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public ShapeValue get(int id) {
+        return current.get().get(id);
+    }
+
+    public int size() {
+        return current.get().size;
+    }
+
+    // Returns the id of the shape
+    public int add(ShapeValue shape) {
+        if (shape == null) {
+            throw new IllegalArgumentException("Cannot add a null shape");
+        }
+        while (true) {
+            Snapshot snapshot = current.get();
+            int id = snapshot.nextId;
+            if (id == Integer.MAX_VALUE) {
+                throw new IllegalStateException("No ids left");
+            }
+            Object[] root = snapshot.root;
+            int shift = snapshot.shift;
+            // The tree is full for this depth : the old root becomes the first child of a new one. Once shift + BITS
+            // reaches 32 the root already covers every positive int (and id >>> 32 would be id >>> 0 : Java only keeps
+            // the low 5 bits of the shift distance), so the tree stops growing there
+            if (shift + BITS < Integer.SIZE && id >>> (shift + BITS) != 0) {
+                root = new Object[WIDTH];
+                root[0] = snapshot.root;
+                shift += BITS;
+            }
+            Snapshot updated = new Snapshot(set(root, shift, id, shape), shift, id + 1, snapshot.size + 1,
+                    snapshot.version + 1);
+            if (current.compareAndSet(snapshot, updated)) {
+                return id;
+            }
+        }
+    }
+
+    // Returns the previous shape, or null (and nothing changes) if there is no shape with this id
+    public ShapeValue replace(int id, ShapeValue shape) {
+        if (shape == null) {
+            throw new IllegalArgumentException("Use remove to take a shape out of the scene");
+        }
+        while (true) {
+            Snapshot snapshot = current.get();
+            ShapeValue previous = snapshot.get(id);
+            if (previous == null || current.compareAndSet(snapshot, snapshot.with(id, shape, 0))) {
+                return previous;
+            }
+        }
+    }
+
+    // Applies the change to the shape as it is when the change is written : if another thread replaced the shape in
+    // between, the change is applied again to the new one (so the function may run more than once and must have no
+    // side effects). Returns the new shape, or null if there is no shape with this id
+    public ShapeValue update(int id, UnaryOperator<ShapeValue> change) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            ShapeValue previous = snapshot.get(id);
+            if (previous == null) {
+                return null;
+            }
+            ShapeValue updated = change.apply(previous);
+            if (updated == previous || current.compareAndSet(snapshot, snapshot.with(id, updated, 0))) {
+                return updated;
+            }
+        }
+    }
+
+    public ShapeValue remove(int id) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            ShapeValue previous = snapshot.get(id);
+            if (previous == null || current.compareAndSet(snapshot, snapshot.without(id))) {
+                return previous;
+            }
+        }
+    }
+
+    // A copy of the path from the node to the id, with the shape (or null) at the end
+    private static Object[] set(Object[] node, int shift, int id, ShapeValue shape) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int slot = (id >>> shift) & MASK;
+        copy[slot] = shift == 0 ? shape : set((Object[]) copy[slot], shift - BITS, id, shape);
+        return copy;
+    }
+
+    // A copy of the path from the node to the id without its shape - null instead of a node left without children,
+    // so that the parent drops it as well (the shape must be in the tree)
+    private static Object[] clear(Object[] node, int shift, int id) {
+        int slot = (id >>> shift) & MASK;
+        Object child = shift == 0 ? null : clear((Object[]) node[slot], shift - BITS, id);
+        if (child == null && onlyChild(node, slot)) {
+            return null;
+        }
+        Object[] copy = node.clone();
+        copy[slot] = child;
+        return copy;
+    }
+
+    private static boolean onlyChild(Object[] node, int slot) {
+        for (int i = 0; i < WIDTH; i++) {
+            if (i != slot && node[i] != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * The scene at one instant - never changes once created, so it can be read from any thread for as long as needed
+     * */
+    public static final class Snapshot {
+        private final Object[] root;
+        private final int shift;
+        private final int nextId;
+        private final int size;
+        private final long version;
+
+        Snapshot(Object[] root, int shift, int nextId, int size, long version) {
+            this.root = root;
+            this.shift = shift;
+            this.nextId = nextId;
+            this.size = size;
+            this.version = version;
+        }
+
+        Snapshot with(int id, ShapeValue shape, int sizeChange) {
+            return new Snapshot(set(root, shift, id, shape), shift, nextId, size + sizeChange, version + 1);
+        }
+
+        // The root stays, even when it has no children left
+        Snapshot without(int id) {
+            Object[] cleared = clear(root, shift, id);
+            return new Snapshot(cleared != null ? cleared : new Object[WIDTH], shift, nextId, size - 1, version + 1);
+        }
+
+        public ShapeValue get(int id) {
+            if (id < 0 || id >= nextId) {
+                return null;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Object[]) node[(id >>> level) & MASK];
+                if (node == null) {
+                    return null;
+                }
+            }
+            return (ShapeValue) node[id & MASK];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Incremented by every write - two snapshots with the same version hold the same shapes
+        public long getVersion() {
+            return version;
+        }
+
+        // One more than the largest id ever given
+        public int getIdLimit() {
+            return nextId;
+        }
+
+        public void forEach(Visitor visitor) {
+            visit(root, shift, 0, visitor);
+        }
+
+        private static void visit(Object[] node, int shift, int firstId, Visitor visitor) {
+            for (int slot = 0; slot < WIDTH; slot++) {
+                Object child = node[slot];
+                if (child == null) {
+                    continue;
+                }
+                int id = firstId | (slot << shift);
+                if (shift == 0) {
+                    visitor.visit(id, (ShapeValue) child);
+                } else {
+                    visit((Object[]) child, shift - BITS, id, visitor);
+                }
+            }
+        }
+
+        public List<ShapeValue> values() {
+            final List<ShapeValue> values = new ArrayList<ShapeValue>(size);
+            forEach(new Visitor() {
+                @Override
+                public void visit(int id, ShapeValue shape) {
+                    values.add(shape);
+                }
+            });
+            return values;
+        }
+
+        // Renders every shape of the snapshot in one batch (check ShapeRenderer class) - no DrawEvent is published
+        public void drawAll(final ShapeRenderer renderer) {
+            forEach(new Visitor() {
+                @Override
+                public void visit(int id, ShapeValue shape) {
+                    shape.render(renderer);
+                }
+            });
+            renderer.flush();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package org.nizz.springgradle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * =================================
+ *          SCENE SNAPSHOT
+ * =================================
+ * Writes circles and triangles to a file that MappedSceneSnapshot maps back into memory and reads in place - there is
+ * no deserialization pass and no object is created until toShapes() is called
+ *
+ * Layout (version 1, little-endian) :
+ * 1. A 64 byte header : magic "SNP1", version, number of circles, triangles, triangle types and angles, file size
+ * 2. One int column per value, in this order : circle centerX, centerY, radius - triangle x1, y1, x2, y2, x3, y3,
+ *    height, type (index in the type table, -1 for none), angle start (one more than the number of triangles : the
+ *    angles of triangle i are angles[start[i]] to angles[start[i + 1]])
+ * 3. The angles of all the triangles, one after the other
+ * 4. The type table : the start of every type name (one more than the number of types) and the UTF-8 bytes of the
+ *    names - every distinct type is stored once
+ *
+ * Every column starts on a multiple of 8 bytes. The offsets only depend on the counts of the header, so a new layout
+ * needs a new version number (check MappedSceneSnapshot.open). The file is replaced atomically, so a snapshot can be
+ * written again while it is mapped
+ *
+ * */
+public final class SceneSnapshotWriter {
+    static final int MAGIC = 0x31504E53; // "SNP1" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int CIRCLE_COLUMNS = 3;
+    static final int TRIANGLE_COLUMNS = 8;
+    // A column is mapped as one buffer, which cannot be larger than 2GB
+    static final int MAX_VALUES = Integer.MAX_VALUE / 4;
+
+    private SceneSnapshotWriter() {
+    }
+
+    // Returns the size of the file in bytes
+    public static long write(Path path, Scene scene) throws IOException {
+        Columns columns = new Columns(scene.getCircles(), scene.getTriangles());
+        // A Scene only has coordinates : no height, no type and no angles
+        int triangleCount = scene.getTriangles().size;
+        columns.heights = new int[triangleCount];
+        columns.typeIndexes = new int[triangleCount];
+        Arrays.fill(columns.typeIndexes, -1);
+        columns.angleStart = new int[triangleCount + 1];
+        return columns.write(path);
+    }
+
+    // Only Circle and Triangle shapes, with all their points set
+    public static long write(Path path, Collection<? extends Shape> shapes) throws IOException {
+        Columns columns = new Columns(new CircleBatch(Math.max(1, shapes.size())),
+                new TriangleBatch(Math.max(1, shapes.size())));
+        List<int[]> angles = new ArrayList<int[]>();
+        for (Shape shape : shapes) {
+            if (shape instanceof Circle) {
+                Circle circle = (Circle) shape;
+                if (!circle.hasCenter()) {
+                    throw new IllegalArgumentException("Circle without a center");
+                }
+                columns.circles.add(circle);
+            } else if (shape instanceof Triangle) {
+                Triangle triangle = (Triangle) shape;
+                if (!triangle.hasPoints()) {
+                    throw new IllegalArgumentException("Triangle without its three points");
+                }
+                int index = columns.triangles.add(triangle);
+                columns.heights = grow(columns.heights, index);
+                columns.heights[index] = triangle.getHeight();
+                columns.typeIndexes = grow(columns.typeIndexes, index);
+                columns.typeIndexes[index] = columns.typeIndex(triangle.getType());
+                // The angles are read once here, getAngleValues returns a copy
+                angles.add(triangle.getAngleValues());
+            } else {
+                throw new IllegalArgumentException("Unsupported shape: " + shape.getClass().getName());
+            }
+        }
+        int triangleCount = columns.triangles.size;
+        columns.angleStart = new int[triangleCount + 1];
+        long angleCount = 0;
+        for (int i = 0; i < triangleCount; i++) {
+            int[] values = angles.get(i);
+            angleCount += values == null ? 0 : values.length;
+            if (angleCount > MAX_VALUES) {
+                throw new IllegalArgumentException("Too many angles for one snapshot");
+            }
+            columns.angleStart[i + 1] = (int) angleCount;
+        }
+        columns.angles = new int[(int) angleCount];
+        for (int i = 0; i < triangleCount; i++) {
+            int[] values = angles.get(i);
+            if (values != null) {
+                System.arraycopy(values, 0, columns.angles, columns.angleStart[i], values.length);
+            }
+        }
+        return columns.write(path);
+    }
+
+    private static int[] grow(int[] values, int index) {
+        if (values.length > index) {
+            return values;
+        }
+        int[] grown = new int[Math.max(16, index * 2)];
+        System.arraycopy(values, 0, grown, 0, values.length);
+        return grown;
+    }
+
+    // Offset of every section, from the counts of the header - shared with MappedSceneSnapshot
+    static final class Layout {
+        final long circles;
+        final long triangles;
+        final long angleStart;
+        final long angles;
+        final long typeStart;
+        final long typeBytes;
+        final long circleColumnBytes;
+        final long triangleColumnBytes;
+
+        Layout(int circleCount, int triangleCount, int angleCount, int typeCount) {
+            circleColumnBytes = align(4L * circleCount);
+            triangleColumnBytes = align(4L * triangleCount);
+            circles = HEADER_BYTES;
+            triangles = circles + CIRCLE_COLUMNS * circleColumnBytes;
+            angleStart = triangles + TRIANGLE_COLUMNS * triangleColumnBytes;
+            angles = angleStart + align(4L * (triangleCount + 1));
+            typeStart = angles + align(4L * angleCount);
+            typeBytes = typeStart + align(4L * (typeCount + 1));
+        }
+
+        static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+
+    private static class Columns {
+        final CircleBatch circles;
+        final TriangleBatch triangles;
+        int[] heights = new int[0];
+        int[] typeIndexes = new int[0];
+        int[] angleStart;
+        int[] angles = new int[0];
+        final List<String> types = new ArrayList<String>();
+        final Map<String, Integer> typeIndexByName = new HashMap<String, Integer>();
+
+        Columns(CircleBatch circles, TriangleBatch triangles) {
+            this.circles = circles;
+            this.triangles = triangles;
+        }
+
+        int typeIndex(String type) {
+            if (type == null) {
+                return -1;
+            }
+            Integer index = typeIndexByName.get(type);
+            if (index == null) {
+                index = types.size();
+                types.add(type);
+                typeIndexByName.put(type, index);
+            }
+            return index;
+        }
+
+        long write(Path path) throws IOException {
+            int circleCount = circles.size;
+            int triangleCount = triangles.size;
+            if (circleCount > MAX_VALUES || triangleCount >= MAX_VALUES) {
+                throw new IllegalArgumentException("Too many shapes for one snapshot");
+            }
+            byte[][] typeNames = new byte[types.size()][];
+            int[] typeStart = new int[types.size() + 1];
+            for (int i = 0; i < typeNames.length; i++) {
+                typeNames[i] = types.get(i).getBytes(StandardCharsets.UTF_8);
+                typeStart[i + 1] = typeStart[i] + typeNames[i].length;
+            }
+            Layout layout = new Layout(circleCount, triangleCount, angles.length, typeNames.length);
+            long fileSize = layout.typeBytes + typeStart[typeNames.length];
+
+            // Written next to the file and renamed over it at the end : a snapshot that is still mapped by a
+            // MappedSceneSnapshot must never be truncated (reading a page that was cut off crashes the reader), and
+            // readers never see a half written file
+            Path directory = path.toAbsolutePath().getParent();
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ColumnOutput out = new ColumnOutput(channel);
+                out.buffer.putInt(MAGIC).putInt(VERSION).putInt(circleCount).putInt(triangleCount)
+                        .putInt(typeNames.length).putInt(angles.length).putLong(fileSize);
+                out.pad(HEADER_BYTES);
+                out.ints(circles.centerX, circleCount);
+                out.ints(circles.centerY, circleCount);
+                out.ints(circles.radius, circleCount);
+                out.ints(triangles.x1, triangleCount);
+                out.ints(triangles.y1, triangleCount);
+                out.ints(triangles.x2, triangleCount);
+                out.ints(triangles.y2, triangleCount);
+                out.ints(triangles.x3, triangleCount);
+                out.ints(triangles.y3, triangleCount);
+                out.ints(heights, triangleCount);
+                out.ints(typeIndexes, triangleCount);
+                out.ints(angleStart, triangleCount + 1);
+                out.ints(angles, angles.length);
+                out.ints(typeStart, typeStart.length);
+                for (byte[] name : typeNames) {
+                    out.bytes(name);
+                }
+                out.flush();
+                // createTempFile makes the file readable by its owner only - a snapshot is meant to be mapped by
+                // other processes as well, so it gets the permissions of a file created the usual way
+                if (Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                    Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-r--r--"));
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return fileSize;
+        }
+    }
+
+    // Sequential writes through a 64KB buffer - every column is padded to a multiple of 8 bytes
+    private static class ColumnOutput {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        long written;
+
+        ColumnOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // The first count values, copied into the buffer as many at a time as it can hold
+        void ints(int[] values, int count) throws IOException {
+            for (int i = 0; i < count; ) {
+                int n = Math.min(count - i, buffer.remaining() / 4);
+                if (n == 0) {
+                    flush();
+                    continue;
+                }
+                buffer.asIntBuffer().put(values, i, n);
+                buffer.position(buffer.position() + 4 * n);
+                i += n;
+            }
+            pad(Layout.align(position()));
+        }
+
+        void bytes(byte[] values) throws IOException {
+            for (byte value : values) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.put(value);
+            }
+        }
+
+        void pad(long until) throws IOException {
+            while (position() < until) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.put((byte) 0);
+            }
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -2,4 +2,18 @@ package org.nizz.springgradle;
 
 public interface Shape {
     public void draw();
+
+    // Writes the same description as draw() into the renderer's buffer (check ShapeRenderer class)
+    public void render(ShapeRenderer renderer);
+
+    // Notified when the setters change the geometry of the shape (check ShapeIndex class)
+    public void addShapeChangeListener(ShapeChangeListener listener);
+
+    public void removeShapeChangeListener(ShapeChangeListener listener);
+
+    // Whether the shape changed since markClean() was last called : a setter changed it, or one of its points moved.
+    // A new shape is dirty, it has never been drawn (check ShapeScene.redrawDirty)
+    public boolean isDirty();
+
+    public void markClean();
 }
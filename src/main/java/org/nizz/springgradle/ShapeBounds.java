@@ -0,0 +1,112 @@
+package org.nizz.springgradle;
+
+// Geometry of a single Circle or Triangle : bounding box, point containment and rectangle intersection (edges
+// included). Used by ShapeIndex to check the candidates found in the grid cells
+public final class ShapeBounds {
+    private ShapeBounds() {
+    }
+
+    // Writes {minX, minY, maxX, maxY} into bounds - returns false if the shape has no geometry yet (no center, or
+    // a point that is not set)
+    public static boolean bounds(Shape shape, int[] bounds) {
+        if (shape instanceof Circle) {
+            Circle circle = (Circle) shape;
+            if (!circle.hasCenter()) {
+                return false;
+            }
+            long center = circle.getCenterLocation();
+            int x = Point.locationX(center), y = Point.locationY(center);
+            int radius = Math.abs(circle.getRadius());
+            bounds[0] = x - radius;
+            bounds[1] = y - radius;
+            bounds[2] = x + radius;
+            bounds[3] = y + radius;
+            return true;
+        }
+        if (shape instanceof Triangle) {
+            Triangle triangle = (Triangle) shape;
+            if (!triangle.hasPoints()) {
+                return false;
+            }
+            long p1 = triangle.getLocation(0), p2 = triangle.getLocation(1), p3 = triangle.getLocation(2);
+            bounds[0] = Math.min(Point.locationX(p1), Math.min(Point.locationX(p2), Point.locationX(p3)));
+            bounds[1] = Math.min(Point.locationY(p1), Math.min(Point.locationY(p2), Point.locationY(p3)));
+            bounds[2] = Math.max(Point.locationX(p1), Math.max(Point.locationX(p2), Point.locationX(p3)));
+            bounds[3] = Math.max(Point.locationY(p1), Math.max(Point.locationY(p2), Point.locationY(p3)));
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported shape: " + shape.getClass().getName());
+    }
+
+    public static boolean contains(Shape shape, int x, int y) {
+        if (shape instanceof Circle) {
+            Circle circle = (Circle) shape;
+            long center = circle.getCenterLocation();
+            long dx = (long) x - Point.locationX(center);
+            long dy = (long) y - Point.locationY(center);
+            long radius = circle.getRadius();
+            return dx * dx + dy * dy <= radius * radius;
+        }
+        Triangle triangle = (Triangle) shape;
+        long p1 = triangle.getLocation(0), p2 = triangle.getLocation(1), p3 = triangle.getLocation(2);
+        int x1 = Point.locationX(p1), y1 = Point.locationY(p1);
+        int x2 = Point.locationX(p2), y2 = Point.locationY(p2);
+        int x3 = Point.locationX(p3), y3 = Point.locationY(p3);
+        long d1 = side(x, y, x1, y1, x2, y2);
+        long d2 = side(x, y, x2, y2, x3, y3);
+        long d3 = side(x, y, x3, y3, x1, y1);
+        boolean negative = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean positive = d1 > 0 || d2 > 0 || d3 > 0;
+        if (!negative && !positive) {
+            // Flat triangle : the point is on the line of the three points, so it must also be between them
+            return x >= Math.min(x1, Math.min(x2, x3)) && x <= Math.max(x1, Math.max(x2, x3))
+                    && y >= Math.min(y1, Math.min(y2, y3)) && y <= Math.max(y1, Math.max(y2, y3));
+        }
+        return !(negative && positive);
+    }
+
+    // Cross product of (b - a) and (point - a) : which side of the line a-b the point is on
+    private static long side(long x, long y, long ax, long ay, long bx, long by) {
+        return (bx - ax) * (y - ay) - (by - ay) * (x - ax);
+    }
+
+    public static boolean intersects(Shape shape, int minX, int minY, int maxX, int maxY) {
+        if (shape instanceof Circle) {
+            // Distance from the center to the closest point of the rectangle
+            Circle circle = (Circle) shape;
+            long center = circle.getCenterLocation();
+            long x = Point.locationX(center), y = Point.locationY(center);
+            long dx = x - Math.max(minX, Math.min(x, maxX));
+            long dy = y - Math.max(minY, Math.min(y, maxY));
+            long radius = circle.getRadius();
+            return dx * dx + dy * dy <= radius * radius;
+        }
+        // Separating axis test : the boxes overlap on x and y, so only the normals of the triangle edges are left
+        Triangle triangle = (Triangle) shape;
+        long p1 = triangle.getLocation(0), p2 = triangle.getLocation(1), p3 = triangle.getLocation(2);
+        int x1 = Point.locationX(p1), y1 = Point.locationY(p1);
+        int x2 = Point.locationX(p2), y2 = Point.locationY(p2);
+        int x3 = Point.locationX(p3), y3 = Point.locationY(p3);
+        if (Math.min(x1, Math.min(x2, x3)) > maxX || Math.max(x1, Math.max(x2, x3)) < minX
+                || Math.min(y1, Math.min(y2, y3)) > maxY || Math.max(y1, Math.max(y2, y3)) < minY) {
+            return false;
+        }
+        return !separates(x1, y1, x2, y2, x3, y3, minX, minY, maxX, maxY)
+                && !separates(x2, y2, x3, y3, x1, y1, minX, minY, maxX, maxY)
+                && !separates(x3, y3, x1, y1, x2, y2, minX, minY, maxX, maxY);
+    }
+
+    // Whether the line a-b has the whole rectangle on the side opposite to the third point
+    private static boolean separates(int ax, int ay, int bx, int by, int oppositeX, int oppositeY, int minX, int minY,
+                                     int maxX, int maxY) {
+        long inside = side(oppositeX, oppositeY, ax, ay, bx, by);
+        if (inside == 0) {
+            return false;
+        }
+        long c1 = side(minX, minY, ax, ay, bx, by);
+        long c2 = side(maxX, minY, ax, ay, bx, by);
+        long c3 = side(maxX, maxY, ax, ay, bx, by);
+        long c4 = side(minX, maxY, ax, ay, bx, by);
+        return inside > 0 ? c1 < 0 && c2 < 0 && c3 < 0 && c4 < 0 : c1 > 0 && c2 > 0 && c3 > 0 && c4 > 0;
+    }
+}
@@ -0,0 +1,7 @@
+package org.nizz.springgradle;
+
+// Called after the geometry of a shape changed through one of its setters (center, radius, points) - ShapeIndex uses
+// it to move the shape to its new cells
+public interface ShapeChangeListener {
+    public void shapeChanged(Shape shape);
+}
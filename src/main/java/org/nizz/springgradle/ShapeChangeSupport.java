@@ -0,0 +1,35 @@
+package org.nizz.springgradle;
+
+// The listeners of one shape - copy-on-write, since listeners are added rarely but notified on every change
+class ShapeChangeSupport {
+    private static final ShapeChangeListener[] NO_LISTENERS = new ShapeChangeListener[0];
+
+    private volatile ShapeChangeListener[] listeners = NO_LISTENERS;
+
+    synchronized void add(ShapeChangeListener listener) {
+        ShapeChangeListener[] current = listeners;
+        ShapeChangeListener[] updated = new ShapeChangeListener[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    synchronized void remove(ShapeChangeListener listener) {
+        ShapeChangeListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                ShapeChangeListener[] updated = new ShapeChangeListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    void fire(Shape shape) {
+        for (ShapeChangeListener listener : listeners) {
+            listener.shapeChanged(shape);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.nizz.springgradle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes shapes in the formats read by ShapeLoader (check ShapeLoader class) - as a ShapeSink, so a file can be
+// converted from one format to the other with ShapeLoader.load(csvFile, ShapeFileWriter.binary(binaryFile))
+public abstract class ShapeFileWriter implements ShapeSink, Closeable {
+    final FileChannel channel;
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    long shapes;
+
+    ShapeFileWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public static ShapeFileWriter csv(Path path) throws IOException {
+        return new CsvWriter(path);
+    }
+
+    public static ShapeFileWriter binary(Path path) throws IOException {
+        return new BinaryWriter(path);
+    }
+
+    public long getShapeCount() {
+        return shapes;
+    }
+
+    void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    void flushBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+            finish();
+        } finally {
+            channel.close();
+        }
+    }
+
+    void finish() throws IOException {
+    }
+
+    private static class CsvWriter extends ShapeFileWriter {
+        CsvWriter(Path path) throws IOException {
+            super(path);
+        }
+
+        @Override
+        public void circle(int centerX, int centerY, int radius) {
+            // "triangle" + 6 numbers of at most 11 characters with their commas and the new line
+            ensureRemaining(96);
+            ascii("circle");
+            number(centerX);
+            number(centerY);
+            number(radius);
+            buffer.put((byte) '\n');
+            shapes++;
+        }
+
+        @Override
+        public void triangle(int x1, int y1, int x2, int y2, int x3, int y3) {
+            ensureRemaining(96);
+            ascii("triangle");
+            number(x1);
+            number(y1);
+            number(x2);
+            number(y2);
+            number(x3);
+            number(y3);
+            buffer.put((byte) '\n');
+            shapes++;
+        }
+
+        private void ascii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        }
+
+        // ',' followed by the digits of the number, without going through a String
+        private void number(int value) {
+            buffer.put((byte) ',');
+            long magnitude = value;
+            if (magnitude < 0) {
+                buffer.put((byte) '-');
+                magnitude = -magnitude;
+            }
+            long divisor = 1;
+            while (divisor * 10 <= magnitude) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + magnitude / divisor % 10));
+            }
+        }
+    }
+
+    private static class BinaryWriter extends ShapeFileWriter {
+        BinaryWriter(Path path) throws IOException {
+            super(path);
+            // The number of shapes is only known at the end - written again by finish()
+            buffer.putInt(ShapeLoader.MAGIC).putInt(ShapeLoader.VERSION).putLong(0);
+        }
+
+        @Override
+        public void circle(int centerX, int centerY, int radius) {
+            ensureRemaining(ShapeLoader.RECORD_BYTES);
+            buffer.putInt(ShapeLoader.CIRCLE).putInt(centerX).putInt(centerY).putInt(radius)
+                    .putInt(0).putInt(0).putInt(0);
+            shapes++;
+        }
+
+        @Override
+        public void triangle(int x1, int y1, int x2, int y2, int x3, int y3) {
+            ensureRemaining(ShapeLoader.RECORD_BYTES);
+            buffer.putInt(ShapeLoader.TRIANGLE).putInt(x1).putInt(y1).putInt(x2).putInt(y2).putInt(x3).putInt(y3);
+            shapes++;
+        }
+
+        @Override
+        void finish() throws IOException {
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            count.putLong(0, shapes);
+            channel.write(count, 8);
+        }
+    }
+}
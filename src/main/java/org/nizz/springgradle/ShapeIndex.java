@@ -0,0 +1,403 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * =================================
+ *           SHAPE INDEX
+ * =================================
+ * Answers "which shapes contain (x, y)" and "which shapes intersect this rectangle" without looking at every shape.
+ *
+ * The plane is divided into square cells of cellSize x cellSize and every shape is stored in the cells its bounding
+ * box overlaps. A point query only looks at the shapes of one cell, a rectangle query at the shapes of the cells the
+ * rectangle overlaps - then the exact geometry is checked (check ShapeBounds class). With a cell size close to the
+ * size of a typical shape, a query touches a handful of shapes whatever the number of shapes in the index
+ *
+ * The index listens to the shapes it holds (check ShapeChangeListener) : when setCenter, setRadius, setP1, etc.
+ * change a shape, it is moved to its new cells. Moving a Point directly (point.setX) does not notify the shapes
+ * using it - call update(shape) for those
+ *
+ * Shapes larger than maxCellsPerShape cells are kept apart and checked by every query instead of being copied into
+ * thousands of cells
+ *
+ * NOTE: All methods are synchronized - the index can be read and updated from several threads, one at a time
+ *
+ * */
+public class ShapeIndex implements ShapeChangeListener {
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final int cellSize;
+    private final int maxCellsPerShape;
+    private final Map<Shape, Entry> entries = new IdentityHashMap<Shape, Entry>();
+    private final CellMap cells = new CellMap();
+    private Entry[] oversized = NO_ENTRIES;
+    private int oversizedCount;
+    // Incremented for every query - an entry found in several cells is only reported once per query
+    private int queryStamp;
+    private final int[] bounds = new int[4];
+
+    public ShapeIndex(int cellSize) {
+        this(cellSize, 4096);
+    }
+
+    public ShapeIndex(int cellSize, int maxCellsPerShape) {
+        if (cellSize < 1) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+        this.maxCellsPerShape = maxCellsPerShape;
+    }
+
+    // Index of all the singleton Shape beans of the factory (prototypes are not created for it)
+    public static ShapeIndex fromBeans(ListableBeanFactory beanFactory, int cellSize) {
+        ShapeIndex index = new ShapeIndex(cellSize);
+        for (Shape shape : beanFactory.getBeansOfType(Shape.class, false, true).values()) {
+            index.add(shape);
+        }
+        return index;
+    }
+
+    // Returns false if the shape has no geometry yet - it is still watched and indexed once its points are set
+    public synchronized boolean add(Shape shape) {
+        if (entries.containsKey(shape)) {
+            return update(shape);
+        }
+        Entry entry = new Entry(shape);
+        entries.put(shape, entry);
+        shape.addShapeChangeListener(this);
+        return place(entry);
+    }
+
+    public synchronized boolean remove(Shape shape) {
+        Entry entry = entries.remove(shape);
+        if (entry == null) {
+            return false;
+        }
+        shape.removeShapeChangeListener(this);
+        unplace(entry);
+        return true;
+    }
+
+    public synchronized boolean update(Shape shape) {
+        Entry entry = entries.get(shape);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.placed && ShapeBounds.bounds(shape, bounds) && sameCells(entry, bounds)) {
+            // Moved inside its cells (the usual small move) : only the box changes
+            entry.minX = bounds[0];
+            entry.minY = bounds[1];
+            entry.maxX = bounds[2];
+            entry.maxY = bounds[3];
+            return true;
+        }
+        unplace(entry);
+        return place(entry);
+    }
+
+    private boolean sameCells(Entry entry, int[] bounds) {
+        return cell(bounds[0]) == cell(entry.minX) && cell(bounds[1]) == cell(entry.minY)
+                && cell(bounds[2]) == cell(entry.maxX) && cell(bounds[3]) == cell(entry.maxY);
+    }
+
+    @Override
+    public void shapeChanged(Shape shape) {
+        update(shape);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean place(Entry entry) {
+        if (!ShapeBounds.bounds(entry.shape, bounds)) {
+            entry.placed = false;
+            return false;
+        }
+        entry.minX = bounds[0];
+        entry.minY = bounds[1];
+        entry.maxX = bounds[2];
+        entry.maxY = bounds[3];
+        entry.placed = true;
+        int fromX = cell(entry.minX), toX = cell(entry.maxX);
+        int fromY = cell(entry.minY), toY = cell(entry.maxY);
+        entry.oversized = (long) (toX - fromX + 1) * (toY - fromY + 1) > maxCellsPerShape;
+        if (entry.oversized) {
+            if (oversizedCount == oversized.length) {
+                oversized = Arrays.copyOf(oversized, Math.max(4, oversizedCount * 2));
+            }
+            oversized[oversizedCount++] = entry;
+            return true;
+        }
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cy = fromY; cy <= toY; cy++) {
+                cells.getOrCreate(key(cx, cy)).add(entry);
+            }
+        }
+        return true;
+    }
+
+    private void unplace(Entry entry) {
+        if (!entry.placed) {
+            return;
+        }
+        entry.placed = false;
+        if (entry.oversized) {
+            for (int i = 0; i < oversizedCount; i++) {
+                if (oversized[i] == entry) {
+                    oversized[i] = oversized[--oversizedCount];
+                    oversized[oversizedCount] = null;
+                    return;
+                }
+            }
+            return;
+        }
+        for (int cx = cell(entry.minX); cx <= cell(entry.maxX); cx++) {
+            for (int cy = cell(entry.minY); cy <= cell(entry.maxY); cy++) {
+                long key = key(cx, cy);
+                Cell cell = cells.get(key);
+                cell.remove(entry);
+                if (cell.size == 0) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    public List<Shape> shapesAt(int x, int y) {
+        List<Shape> found = new ArrayList<Shape>();
+        shapesAt(x, y, found);
+        return found;
+    }
+
+    // Adds the shapes containing the point to found - returns how many were added
+    public synchronized int shapesAt(int x, int y, List<Shape> found) {
+        int added = 0;
+        Cell cell = cells.get(key(cell(x), cell(y)));
+        if (cell != null) {
+            for (int i = 0; i < cell.size; i++) {
+                Entry entry = cell.entries[i];
+                if (entry.containsBox(x, y) && ShapeBounds.contains(entry.shape, x, y)) {
+                    found.add(entry.shape);
+                    added++;
+                }
+            }
+        }
+        for (int i = 0; i < oversizedCount; i++) {
+            Entry entry = oversized[i];
+            if (entry.containsBox(x, y) && ShapeBounds.contains(entry.shape, x, y)) {
+                found.add(entry.shape);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public List<Shape> shapesIntersecting(int minX, int minY, int maxX, int maxY) {
+        List<Shape> found = new ArrayList<Shape>();
+        shapesIntersecting(minX, minY, maxX, maxY, found);
+        return found;
+    }
+
+    // Adds the shapes intersecting the rectangle (edges included) to found - returns how many were added
+    public synchronized int shapesIntersecting(int minX, int minY, int maxX, int maxY, List<Shape> found) {
+        int stamp = ++queryStamp;
+        int added = 0;
+        int fromX = cell(minX), toX = cell(maxX);
+        int fromY = cell(minY), toY = cell(maxY);
+        if ((long) (toX - fromX + 1) * (toY - fromY + 1) > cells.size) {
+            // The rectangle covers more cells than there are : going through the existing cells is cheaper
+            for (Cell cell : cells.values) {
+                if (cell != null && cell.x >= fromX && cell.x <= toX && cell.y >= fromY && cell.y <= toY) {
+                    added += collect(cell, stamp, minX, minY, maxX, maxY, found);
+                }
+            }
+        } else {
+            for (int cx = fromX; cx <= toX; cx++) {
+                for (int cy = fromY; cy <= toY; cy++) {
+                    Cell cell = cells.get(key(cx, cy));
+                    if (cell != null) {
+                        added += collect(cell, stamp, minX, minY, maxX, maxY, found);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < oversizedCount; i++) {
+            Entry entry = oversized[i];
+            if (entry.overlapsBox(minX, minY, maxX, maxY)
+                    && ShapeBounds.intersects(entry.shape, minX, minY, maxX, maxY)) {
+                found.add(entry.shape);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static int collect(Cell cell, int stamp, int minX, int minY, int maxX, int maxY, List<Shape> found) {
+        int added = 0;
+        for (int i = 0; i < cell.size; i++) {
+            Entry entry = cell.entries[i];
+            if (entry.stamp == stamp) {
+                continue;
+            }
+            entry.stamp = stamp;
+            if (entry.overlapsBox(minX, minY, maxX, maxY)
+                    && ShapeBounds.intersects(entry.shape, minX, minY, maxX, maxY)) {
+                found.add(entry.shape);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static class Entry {
+        final Shape shape;
+        int minX;
+        int minY;
+        int maxX;
+        int maxY;
+        boolean placed;
+        boolean oversized;
+        int stamp;
+
+        Entry(Shape shape) {
+            this.shape = shape;
+        }
+
+        boolean containsBox(int x, int y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        boolean overlapsBox(int fromX, int fromY, int toX, int toY) {
+            return minX <= toX && maxX >= fromX && minY <= toY && maxY >= fromY;
+        }
+    }
+
+    private static class Cell {
+        final int x;
+        final int y;
+        Entry[] entries = new Entry[4];
+        int size;
+
+        Cell(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        void add(Entry entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+
+        // The order inside a cell does not matter - the last entry takes the place of the removed one
+        void remove(Entry entry) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i] == entry) {
+                    entries[i] = entries[--size];
+                    entries[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Open addressing hash map from cell key to cell, so looking a cell up does not box the key into a Long. A cell
+    // is removed as soon as it is empty, so the map (and the full scan of shapesIntersecting) only holds cells with
+    // shapes - removal shifts the following keys back instead of leaving tombstones, so lookups stay short
+    private static class CellMap {
+        long[] keys = new long[64];
+        Cell[] values = new Cell[64];
+        int size;
+
+        Cell get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+        Cell getOrCreate(long key) {
+            Cell cell = get(key);
+            if (cell == null) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                }
+                cell = new Cell((int) (key >> 32), (int) key);
+                insert(key, cell);
+                size++;
+            }
+            return cell;
+        }
+
+        Cell remove(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            Cell removed = values[slot];
+            if (removed == null) {
+                return null;
+            }
+            // Backward shift : a key after the hole moves into it unless its own slot lies between the hole and it
+            int hole = slot;
+            for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            values[hole] = null;
+            size--;
+            return removed;
+        }
+
+        private void insert(long key, Cell cell) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = cell;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Cell[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Cell[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.nizz.springgradle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * =================================
+ *          SHAPE LOADER
+ * =================================
+ * Reads shapes from a file and hands them to a ShapeSink one by one - the file is never loaded into memory as a whole,
+ * so the memory used only depends on what the sink keeps (check Scene class)
+ *
+ * 1. CSV : one shape per line, "circle,centerX,centerY,radius" or "triangle,x1,y1,x2,y2,x3,y3". Empty lines and lines
+ * starting with # are skipped. The type name is case-insensitive, and spaces are allowed around the values but not
+ * inside them. The bytes are parsed directly from a 64KB buffer - no String is created per line
+ *
+ * 2. Binary : a 16 byte header (magic "SHP1", version, number of shapes as a long) followed by one fixed-width
+ * record of 28 bytes per shape : the type (1 = circle, 2 = triangle) and six ints (a circle uses the first three).
+ * Everything is little-endian. The file is memory-mapped through a FileChannel, one window of 64MB at a time, so
+ * files larger than 2GB work as well and only the pages being read need to be in memory
+ *
+ * ShapeFileWriter writes both formats
+ *
+ * */
+public final class ShapeLoader {
+    static final int MAGIC = 0x31504853; // "SHP1" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 28;
+    static final int CIRCLE = 1;
+    static final int TRIANGLE = 2;
+
+    private static final int WINDOW_RECORDS = (64 << 20) / RECORD_BYTES;
+
+    private ShapeLoader() {
+    }
+
+    // csv or binary, from the file extension (.csv, anything else is binary)
+    public static long load(Path path, ShapeSink sink) throws IOException {
+        return path.getFileName().toString().toLowerCase().endsWith(".csv") ? loadCsv(path, sink)
+                : loadBinary(path, sink);
+    }
+
+    /* ===== CSV ===== */
+
+    public static long loadCsv(Path path, ShapeSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return loadCsv(channel, sink);
+        }
+    }
+
+    public static long loadCsv(ReadableByteChannel channel, ShapeSink sink) throws IOException {
+        CsvParser parser = new CsvParser(sink);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        byte[] bytes = buffer.array();
+        while (channel.read(buffer) >= 0) {
+            parser.parse(bytes, buffer.position());
+            buffer.clear();
+        }
+        parser.endOfLine();
+        return parser.shapes;
+    }
+
+    // Keeps its state between two buffers, since a line can be split across them
+    private static class CsvParser {
+        static final byte[] CIRCLE_NAME = "circle".getBytes(StandardCharsets.US_ASCII);
+        static final byte[] TRIANGLE_NAME = "triangle".getBytes(StandardCharsets.US_ASCII);
+
+        final ShapeSink sink;
+        final int[] values = new int[6];
+        long shapes;
+        long line = 1;
+        int type;
+        int valueCount;
+        long value;
+        boolean negative;
+        boolean inNumber;
+        boolean inTypeName;
+        // The lower case name of the type being read, and how many of its bytes were read so far
+        byte[] typeName;
+        int typeNameLength;
+        // A space or tab inside the current value - fine before a comma, not before more of the value
+        boolean gap;
+        boolean comment;
+
+        CsvParser(ShapeSink sink) {
+            this.sink = sink;
+        }
+
+        void parse(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    endOfLine();
+                    line++;
+                } else if (comment || b == '\r') {
+                    continue;
+                } else if (b == ' ' || b == '\t') {
+                    // Spaces are allowed around a value, not inside one : "1 2" is not 12
+                    gap = inTypeName || inNumber || negative;
+                } else if (inTypeName) {
+                    if (b == ',') {
+                        if (typeNameLength != typeName.length) {
+                            throw error("unknown shape type");
+                        }
+                        inTypeName = false;
+                        gap = false;
+                    } else if (gap || typeNameLength == typeName.length
+                            || (b | 0x20) != typeName[typeNameLength]) {
+                        throw error("unknown shape type");
+                    } else {
+                        typeNameLength++;
+                    }
+                } else if (type == 0) {
+                    if (b == '#') {
+                        comment = true;
+                    } else if (b == 'c' || b == 'C') {
+                        type = CIRCLE;
+                        startTypeName(CIRCLE_NAME);
+                    } else if (b == 't' || b == 'T') {
+                        type = TRIANGLE;
+                        startTypeName(TRIANGLE_NAME);
+                    } else {
+                        throw error("unknown shape type");
+                    }
+                } else if (b >= '0' && b <= '9') {
+                    if (gap) {
+                        throw error("space inside a number");
+                    }
+                    value = value * 10 + (b - '0');
+                    if (value > 0x80000000L) {
+                        throw error("number out of range");
+                    }
+                    inNumber = true;
+                } else if (b == '-' && !inNumber && !negative) {
+                    negative = true;
+                } else if (b == ',') {
+                    endOfValue();
+                } else {
+                    throw error("unexpected character '" + (char) b + "'");
+                }
+            }
+        }
+
+        // The first byte of the name was just read
+        void startTypeName(byte[] name) {
+            typeName = name;
+            typeNameLength = 1;
+            inTypeName = true;
+        }
+
+        void endOfValue() {
+            if (!inNumber) {
+                throw error("missing number");
+            }
+            if (valueCount == values.length) {
+                throw error("too many numbers");
+            }
+            long signed = negative ? -value : value;
+            if (signed > Integer.MAX_VALUE) {
+                throw error("number out of range");
+            }
+            values[valueCount++] = (int) signed;
+            value = 0;
+            negative = false;
+            inNumber = false;
+            gap = false;
+        }
+
+        void endOfLine() {
+            if (type != 0) {
+                if (inTypeName && typeNameLength != typeName.length) {
+                    throw error("unknown shape type");
+                }
+                endOfValue();
+                if (type == CIRCLE && valueCount == 3) {
+                    sink.circle(values[0], values[1], values[2]);
+                } else if (type == TRIANGLE && valueCount == 6) {
+                    sink.triangle(values[0], values[1], values[2], values[3], values[4], values[5]);
+                } else {
+                    throw error("a circle takes 3 numbers and a triangle 6");
+                }
+                shapes++;
+            }
+            type = 0;
+            valueCount = 0;
+            comment = false;
+            inTypeName = false;
+            gap = false;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Line " + line + ": " + message);
+        }
+    }
+
+    /* ===== BINARY ===== */
+
+    public static long loadBinary(Path path, ShapeSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long shapes = readHeader(channel);
+            for (long first = 0; first < shapes; first += WINDOW_RECORDS) {
+                int records = (int) Math.min(WINDOW_RECORDS, shapes - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * RECORD_BYTES, (long) records * RECORD_BYTES);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0, offset = 0; i < records; i++, offset += RECORD_BYTES) {
+                    int type = window.getInt(offset);
+                    if (type == CIRCLE) {
+                        sink.circle(window.getInt(offset + 4), window.getInt(offset + 8), window.getInt(offset + 12));
+                    } else if (type == TRIANGLE) {
+                        sink.triangle(window.getInt(offset + 4), window.getInt(offset + 8), window.getInt(offset + 12),
+                                window.getInt(offset + 16), window.getInt(offset + 20), window.getInt(offset + 24));
+                    } else {
+                        throw new IllegalArgumentException("Shape " + (first + i) + ": unknown shape type " + type);
+                    }
+                }
+            }
+            return shapes;
+        }
+    }
+
+    // {circles, triangles} in a binary file - only the type of every record is read, so that the caller can size
+    // its storage exactly before loading
+    public static long[] countBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long shapes = readHeader(channel);
+            long circles = 0;
+            for (long first = 0; first < shapes; first += WINDOW_RECORDS) {
+                int records = (int) Math.min(WINDOW_RECORDS, shapes - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * RECORD_BYTES, (long) records * RECORD_BYTES);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0, offset = 0; i < records; i++, offset += RECORD_BYTES) {
+                    if (window.getInt(offset) == CIRCLE) {
+                        circles++;
+                    }
+                }
+            }
+            return new long[] {circles, shapes - circles};
+        }
+    }
+
+    private static long readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read until the header is complete or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a shape file");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported shape file version " + header.getInt(4));
+        }
+        long shapes = header.getLong(8);
+        if (shapes < 0 || channel.size() < HEADER_BYTES + shapes * RECORD_BYTES) {
+            throw new IllegalArgumentException("Shape file is truncated");
+        }
+        return shapes;
+    }
+}
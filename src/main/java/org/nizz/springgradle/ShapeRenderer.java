@@ -0,0 +1,257 @@
+package org.nizz.springgradle;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+/*
+ * =================================
+ *         SHAPE RENDERER
+ * =================================
+ * Shape.draw() builds a new String for every shape and calls System.out.println, which is one synchronized write
+ * per shape. The renderer instead lets each shape format itself (Shape.render()) into a single reusable buffer and
+ * writes the buffer to its sink (any WritableByteChannel) only when it is full or when flush() is called - so
+ * drawing a large scene costs a handful of large writes instead of one small write per shape
+ *
+ * Sinks:
+ * 1. new ShapeRenderer() : writes to System.out (default) - through the PrintStream itself, so the output stays in order
+ * with everything else printed and follows System.setOut
+ * 2. ShapeRenderer.toFile(path) : writes to a file through a FileChannel
+ * 3. new ShapeRenderer(new ShapeRenderer.MemorySink()) : keeps the output in memory (useful for tests/benchmarks)
+ *
+ * Events: Circle.draw() publishes a DrawEvent, render() does not. drawAll publishes one DrawEvent per shape once the
+ * batch is written, but only when an event publisher was set (setEventPublisher - the ApplicationContext is one).
+ * draw(shape) never publishes : its caller decides when the frame is complete (check ShapeScene.redrawDirty)
+ *
+ * NOTE: The renderer is not thread-safe - use one renderer per thread
+ *
+ * */
+public class ShapeRenderer implements Flushable, Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final String MIN_INT = String.valueOf(Integer.MIN_VALUE);
+
+    private final WritableByteChannel sink;
+    // The stream behind the default sink - flushed with the buffer, never closed
+    private final PrintStream stdout;
+    private final ByteBuffer buffer;
+    // Scratch space for formatting ints without allocating a String
+    private final byte[] digits = new byte[10];
+    private ApplicationEventPublisher eventPublisher;
+
+    public ShapeRenderer() {
+        this(System.out);
+    }
+
+    private ShapeRenderer(PrintStream stdout) {
+        this(Channels.newChannel(stdout), DEFAULT_BUFFER_SIZE, stdout);
+    }
+
+    public ShapeRenderer(WritableByteChannel sink) {
+        this(sink, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ShapeRenderer(WritableByteChannel sink, int bufferSize) {
+        this(sink, bufferSize, null);
+    }
+
+    private ShapeRenderer(WritableByteChannel sink, int bufferSize, PrintStream stdout) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16 bytes, was: " + bufferSize);
+        }
+        this.sink = sink;
+        this.stdout = stdout;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public static ShapeRenderer toFile(Path path) throws IOException {
+        return new ShapeRenderer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    // null (the default) : drawAll publishes no DrawEvent
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Only renders the shape into the buffer - no DrawEvent is published
+    public void draw(Shape shape) {
+        shape.render(this);
+    }
+
+    // Renders every shape into the buffer and flushes once at the end, then publishes a DrawEvent for each shape if
+    // there is an event publisher - after the flush, so that the listeners see the batch written
+    public void drawAll(Collection<? extends Shape> shapes) {
+        for (Shape shape : shapes) {
+            shape.render(this);
+        }
+        flush();
+        ApplicationEventPublisher eventPublisher = this.eventPublisher;
+        if (eventPublisher != null) {
+            for (Shape shape : shapes) {
+                eventPublisher.publishEvent(new DrawEvent(shape));
+            }
+        }
+    }
+
+    public ShapeRenderer append(CharSequence text) {
+        if (text == null) {
+            return append("null");
+        }
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    ensureCapacity(4);
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    // Unpaired surrogate - cannot be encoded
+                    ensureCapacity(1);
+                    buffer.put((byte) '?');
+                }
+            } else {
+                ensureCapacity(3);
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return this;
+    }
+
+    public ShapeRenderer append(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return append(MIN_INT);
+        }
+        ensureCapacity(11);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, position, digits.length - position);
+        return this;
+    }
+
+    public ShapeRenderer newLine() {
+        ensureCapacity(LINE_SEPARATOR.length);
+        buffer.put(LINE_SEPARATOR);
+        return this;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                sink.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write rendered shapes to the sink", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        flushBuffer();
+        if (stdout != null) {
+            stdout.flush();
+        }
+    }
+
+    // Flushes the buffer and closes the sink (stdout is never closed)
+    @Override
+    public void close() {
+        flush();
+        if (stdout == null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close the sink", e);
+            }
+        }
+    }
+
+    /*
+     * In-memory sink : collects everything written to it in a growing byte array
+     * */
+    public static class MemorySink implements WritableByteChannel {
+        private byte[] bytes = new byte[1024];
+        private int size;
+        private boolean open = true;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+            source.get(bytes, size, length);
+            size += length;
+            return length;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void reset() {
+            size = 0;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, size, StandardCharsets.UTF_8);
+        }
+    }
+}
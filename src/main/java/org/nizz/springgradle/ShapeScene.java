@@ -0,0 +1,98 @@
+package org.nizz.springgradle;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * =================================
+ *       INCREMENTAL REDRAW
+ * =================================
+ * A set of Shape objects drawn frame by frame : redrawDirty() renders only the shapes that changed since the previous
+ * frame and publishes a DrawEvent for each of them, then marks them clean. The first frame draws everything, since a
+ * new shape is dirty
+ *
+ * A shape is dirty when one of its setters changed it (setRadius, setP1, setHeight, etc.) or when one of its points
+ * moved (Point.setX, PointStore.translate, etc.) - the shapes compare the versions of their points when they are
+ * asked, so moving a point shared by several shapes (zeroPoint) redraws all of them, and a point does not need to
+ * know which shapes use it
+ *
+ * Unlike Scene (plain columns of co-ordinates loaded from a file), the shapes here are the beans themselves
+ *
+ * NOTE: Not thread-safe - the shapes are mutated and redrawn from the same thread
+ *
+ * */
+public class ShapeScene implements ApplicationEventPublisherAware {
+    private final List<Shape> shapes = new ArrayList<Shape>();
+    // Shapes redrawn by the current frame - reused from frame to frame
+    private final List<Shape> redrawn = new ArrayList<Shape>();
+    private ApplicationEventPublisher eventPublisher;
+
+    public void setShapes(List<Shape> shapes) {
+        this.shapes.clear();
+        this.shapes.addAll(shapes);
+    }
+
+    public List<Shape> getShapes() {
+        return Collections.unmodifiableList(shapes);
+    }
+
+    public void add(Shape shape) {
+        shapes.add(shape);
+    }
+
+    public boolean remove(Shape shape) {
+        return shapes.remove(shape);
+    }
+
+    public int size() {
+        return shapes.size();
+    }
+
+    public int dirtyCount() {
+        int dirty = 0;
+        for (Shape shape : shapes) {
+            if (shape.isDirty()) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    // Renders the dirty shapes in one batch (check ShapeRenderer class) and publishes a DrawEvent for each of them -
+    // returns how many were redrawn
+    public int redrawDirty(ShapeRenderer renderer) {
+        for (Shape shape : shapes) {
+            if (shape.isDirty()) {
+                renderer.draw(shape);
+                shape.markClean();
+                redrawn.add(shape);
+            }
+        }
+        renderer.flush();
+        int count = redrawn.size();
+        // Published once the frame is written, so that the listeners see it complete
+        if (eventPublisher != null) {
+            for (Shape shape : redrawn) {
+                eventPublisher.publishEvent(new DrawEvent(shape));
+            }
+        }
+        redrawn.clear();
+        return count;
+    }
+
+    // Marks every shape clean without drawing it - the next frame only draws what changes from now on
+    public void markAllClean() {
+        for (Shape shape : shapes) {
+            shape.markClean();
+        }
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.eventPublisher = applicationEventPublisher;
+    }
+}
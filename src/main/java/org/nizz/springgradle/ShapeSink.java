@@ -0,0 +1,9 @@
+package org.nizz.springgradle;
+
+// Receives the shapes read by ShapeLoader one at a time, as plain coordinates - the sink decides whether they become
+// Circle / Triangle beans, rows of a CircleBatch / TriangleBatch (check Scene class) or something else entirely
+public interface ShapeSink {
+    public void circle(int centerX, int centerY, int radius);
+
+    public void triangle(int x1, int y1, int x2, int y2, int x3, int y3);
+}
@@ -0,0 +1,13 @@
+package org.nizz.springgradle;
+
+// An immutable shape (check ImmutableCircle and ImmutableTriangle classes) - safe to share between threads without
+// any synchronization, since it never changes once created. Changing it means creating a new one with a with* method
+public interface ShapeValue {
+    // Writes the same description as the mutable shape's render (check ShapeRenderer class)
+    public void render(ShapeRenderer renderer);
+
+    // A new mutable Circle or Triangle with the same values
+    public Shape toShape();
+
+    public ShapeValue translate(int dx, int dy);
+}
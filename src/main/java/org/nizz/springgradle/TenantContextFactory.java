@@ -0,0 +1,198 @@
+package org.nizz.springgradle;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * =================================
+ *      TENANT CONTEXT FACTORY
+ * =================================
+ * One context per tenant means one copy of every singleton per tenant (check the notes on scopes in Main.java), and a
+ * parse of the XML file for every one of them. Here, the contexts are split in two :
+ * 1. One shared parent context (sharedGeometryContext.xml), created once : the geometry that never changes and the
+ * Message Source
+ * 2. One child context per tenant (tenantApplicationContext.xml) : only the beans of that tenant
+ *
+ * A child context looks up in its parent every bean it does not define (ref, parent="...", getBean, getMessage), so
+ * the shared beans exist once whatever the number of tenants. The tenant file is parsed once, when the factory is
+ * created : a tenant context is a GenericApplicationContext that gets copies of those bean definitions and is
+ * refreshed - no XML parsing, no classpath scanning
+ *
+ * Every tenant context also has the singleton "tenantName" (a String) for the beans that need to know their tenant
+ * The caller closes the tenant contexts it creates, and the factory (close) once they are all closed
+ *
+ * From the command line : TenantContextFactory [number of tenants...] prints the creation time and the heap used by
+ * that many tenant contexts, with the shared parent and with every tenant parsing both files on its own
+ * (./gradlew tenantFootprint)
+ *
+ * */
+public class TenantContextFactory implements DisposableBean {
+    public static final String SHARED_CONFIG_LOCATION = "sharedGeometryContext.xml";
+    public static final String TENANT_CONFIG_LOCATION = "tenantApplicationContext.xml";
+
+    private final ApplicationContext sharedContext;
+    private final boolean ownsSharedContext;
+    private final String tenantConfigLocation;
+    // The parsed tenant file - never refreshed, only read for its bean definitions
+    private final DefaultListableBeanFactory tenantDefinitions = new DefaultListableBeanFactory();
+
+    public TenantContextFactory() {
+        this(new ClassPathXmlApplicationContext(SHARED_CONFIG_LOCATION), true, TENANT_CONFIG_LOCATION);
+    }
+
+    // The shared context stays open when the factory is closed - it belongs to the caller
+    public TenantContextFactory(ApplicationContext sharedContext, String tenantConfigLocation) {
+        this(sharedContext, false, tenantConfigLocation);
+    }
+
+    private TenantContextFactory(ApplicationContext sharedContext, boolean ownsSharedContext,
+                                 String tenantConfigLocation) {
+        this.sharedContext = sharedContext;
+        this.ownsSharedContext = ownsSharedContext;
+        this.tenantConfigLocation = tenantConfigLocation;
+        new XmlBeanDefinitionReader(tenantDefinitions).loadBeanDefinitions(new ClassPathResource(tenantConfigLocation));
+    }
+
+    public ApplicationContext getSharedContext() {
+        return sharedContext;
+    }
+
+    // A new, refreshed context for the tenant, child of the shared context
+    public GenericApplicationContext createTenant(String tenantName) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.setParent(sharedContext);
+        context.setDisplayName("Tenant " + tenantName);
+        context.getBeanFactory().registerSingleton("tenantName", tenantName);
+        for (String name : tenantDefinitions.getBeanDefinitionNames()) {
+            // A copy : the context may change its definitions (post processors) without changing the other tenants'
+            AbstractBeanDefinition definition = (AbstractBeanDefinition) tenantDefinitions.getBeanDefinition(name);
+            context.registerBeanDefinition(name, definition.cloneBeanDefinition());
+            for (String alias : tenantDefinitions.getAliases(name)) {
+                context.registerAlias(name, alias);
+            }
+        }
+        context.refresh();
+        return context;
+    }
+
+    // The layout without a shared context, for comparison : the tenant parses both files and has its own copy of
+    // every shared bean - in a parent context of its own, since the tenant file refers to some of them with
+    // <ref parent="..."> (closed with the tenant context)
+    public GenericApplicationContext createStandaloneTenant(String tenantName) {
+        final GenericApplicationContext shared = new GenericApplicationContext();
+        shared.setDisplayName("Shared beans of tenant " + tenantName);
+        new XmlBeanDefinitionReader(shared).loadBeanDefinitions(new ClassPathResource(SHARED_CONFIG_LOCATION));
+        shared.refresh();
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.setParent(shared);
+        context.setDisplayName("Tenant " + tenantName);
+        context.getBeanFactory().registerSingleton("tenantName", tenantName);
+        context.getDefaultListableBeanFactory().registerDisposableBean("sharedContextCloser", new DisposableBean() {
+            @Override
+            public void destroy() {
+                shared.close();
+            }
+        });
+        new XmlBeanDefinitionReader(context).loadBeanDefinitions(new ClassPathResource(tenantConfigLocation));
+        context.refresh();
+        return context;
+    }
+
+    public void close() {
+        if (ownsSharedContext && sharedContext instanceof ConfigurableApplicationContext) {
+            ((ConfigurableApplicationContext) sharedContext).close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        close();
+    }
+
+    /* ===== FOOTPRINT REPORT ===== */
+
+    public static void main(String[] args) {
+        int[] counts = {1, 100, 1000};
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        LifecycleLog.setEnabled(false);
+        long before = usedHeap();
+        long start = System.nanoTime();
+        TenantContextFactory factory = new TenantContextFactory();
+        long sharedNanos = System.nanoTime() - start;
+        long sharedBytes = usedHeap() - before;
+        try {
+            System.out.println(String.format(Locale.ROOT, "Shared parent context : %.1f ms, %,d bytes",
+                    sharedNanos / 1e6, sharedBytes));
+            // Warms up both layouts, so that the first count does not measure class loading
+            measure(factory, true, 100);
+            measure(factory, false, 100);
+            System.out.println(String.format(Locale.ROOT, "%-9s %-12s %12s %14s %16s %16s", "tenants", "layout",
+                    "total ms", "ms / tenant", "heap bytes", "bytes / tenant"));
+            for (int count : counts) {
+                print(count, "shared", measure(factory, true, count));
+                print(count, "standalone", measure(factory, false, count));
+            }
+        } finally {
+            factory.close();
+        }
+    }
+
+    // {creation nanos, heap bytes} of that many tenant contexts, all open at once
+    private static long[] measure(TenantContextFactory factory, boolean shared, int count) {
+        List<ConfigurableApplicationContext> tenants = new ArrayList<ConfigurableApplicationContext>(count);
+        long before = usedHeap();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < count; i++) {
+                String tenantName = "tenant-" + i;
+                tenants.add(shared ? factory.createTenant(tenantName) : factory.createStandaloneTenant(tenantName));
+            }
+            long nanos = System.nanoTime() - start;
+            return new long[]{nanos, usedHeap() - before};
+        } finally {
+            for (ConfigurableApplicationContext tenant : tenants) {
+                tenant.close();
+            }
+        }
+    }
+
+    private static void print(int count, String layout, long[] result) {
+        System.out.println(String.format(Locale.ROOT, "%-9d %-12s %12.1f %14.3f %,16d %,16d", count, layout,
+                result[0] / 1e6, result[0] / 1e6 / count, result[1], result[1] / count));
+    }
+
+    // Heap used after full collections - only what is still reachable. Collected again until it stops going down :
+    // the objects waiting for their finalizer (from the parsing of the XML files) only go with a later collection
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            System.runFinalization();
+            long collected = memory.getHeapMemoryUsage().getUsed();
+            if (collected >= used) {
+                break;
+            }
+            used = collected;
+        }
+        return used;
+    }
+}
@@ -6,7 +6,9 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ConfigurableApplicationContext;
 
+import java.util.Arrays;
 import java.util.List;
 
 /*
@@ -52,9 +54,27 @@ public class Triangle implements ApplicationContextAware, BeanNameAware, Initial
     Point p1;
     Point p2;
     Point p3;
-    List<Angle> angles;
+    // Set by setPoints : the points are read from the store by their index, and p1, p2 and p3 are null
+    PointStore pointStore;
+    int p1Index;
+    int p2Index;
+    int p3Index;
+    // Angle values in degrees - the Angle beans from the XML list are only read once, in setAngles
+    int[] angles;
     ApplicationContext applicationContext = null;
+    // The beans createDynamicBeans looks up, resolved once instead of by name on every call (check BeanHandle class)
+    BeanHandle<Point> zeroPoint;
+    BeanHandle<Point> pointTwo;
+    BeanHandle<Point> pointOne;
+    BeanHandle<Point> pointTwoPooled;
     String beanName;
+    Point pooledPoint;
+    final ShapeChangeSupport changeSupport = new ShapeChangeSupport();
+    // Set by the setters, cleared by markClean - with the versions of the points at that time (check Shape.isDirty)
+    boolean dirty = true;
+    int p1Version;
+    int p2Version;
+    int p3Version;
 
     public Triangle() { }
 
@@ -78,27 +98,99 @@ public class Triangle implements ApplicationContextAware, BeanNameAware, Initial
     }
 
     public void setHeight(int height) {
+        if (this.height != height) {
+            dirty = true;
+        }
         this.height = height;
     }
 
     public void setType(String type) {
+        if (type == null ? this.type != null : !type.equals(this.type)) {
+            dirty = true;
+        }
         this.type = type;
     }
 
     public void setP1(Point p1) {
+        detachFromStore();
         this.p1 = p1;
+        dirty = true;
+        changeSupport.fire(this);
     }
 
     public void setP2(Point p2) {
+        detachFromStore();
         this.p2 = p2;
+        dirty = true;
+        changeSupport.fire(this);
     }
 
     public void setP3(Point p3) {
+        detachFromStore();
         this.p3 = p3;
+        dirty = true;
+        changeSupport.fire(this);
+    }
+
+    // References the points by their index in a PointStore - the triangle only keeps the store and the indexes, so
+    // moving the points in the store (translate, etc.) moves the triangle as well and no Point object is created
+    public void setPoints(PointStore pointStore, int p1Index, int p2Index, int p3Index) {
+        pointStore.checkIndex(p1Index);
+        pointStore.checkIndex(p2Index);
+        pointStore.checkIndex(p3Index);
+        this.p1 = null;
+        this.p2 = null;
+        this.p3 = null;
+        this.pointStore = pointStore;
+        this.p1Index = p1Index;
+        this.p2Index = p2Index;
+        this.p3Index = p3Index;
+        dirty = true;
+        changeSupport.fire(this);
+    }
+
+    // Setting one point of a triangle kept in a store : the two others become views of the store, so they still move
+    // with it
+    private void detachFromStore() {
+        if (pointStore != null) {
+            p1 = pointStore.view(p1Index);
+            p2 = pointStore.view(p2Index);
+            p3 = pointStore.view(p3Index);
+            pointStore = null;
+        }
     }
 
+    // Binds from the <list> of Angle beans in the XML file (merged with the parent definition's list when
+    // merge="true" - Spring merges the lists before calling the setter)
     public void setAngles(List<Angle> angles) {
-        this.angles = angles;
+        if (angles == null) {
+            this.angles = null;
+            dirty = true;
+            return;
+        }
+        int[] values = new int[angles.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = angles.get(i).getValue();
+        }
+        this.angles = values;
+        dirty = true;
+    }
+
+    // Same, from plain values : <property name="angleValues" value="60,60,60" /> or a <list> of <value>s
+    public void setAngleValues(int[] angleValues) {
+        this.angles = angleValues == null ? null : angleValues.clone();
+        dirty = true;
+    }
+
+    public int[] getAngleValues() {
+        return angles == null ? null : angles.clone();
+    }
+
+    // A triangle has exactly three angles adding up to 180 degrees, none of them zero or negative
+    public boolean hasValidAngles() {
+        int[] values = angles;
+        return values != null && values.length == 3 && values[0] > 0 && values[1] > 0 && values[2] > 0
+                && values[0] + values[1] + values[2] == 180;
     }
 
     public int getHeight() {
@@ -109,6 +201,36 @@ public class Triangle implements ApplicationContextAware, BeanNameAware, Initial
         return this.type;
     }
 
+    // Points kept in a PointStore are returned as a new view on every call - getLocation reads them without creating
+    // anything
+    public Point getP1() {
+        return pointStore != null ? pointStore.view(p1Index) : p1;
+    }
+
+    public Point getP2() {
+        return pointStore != null ? pointStore.view(p2Index) : p2;
+    }
+
+    public Point getP3() {
+        return pointStore != null ? pointStore.view(p3Index) : p3;
+    }
+
+    public boolean hasPoints() {
+        return pointStore != null || p1 != null && p2 != null && p3 != null;
+    }
+
+    // x and y of a point packed in one long (check Point.getLocation) - vertex : 0, 1 or 2 for p1, p2 and p3
+    public long getLocation(int vertex) {
+        if (vertex < 0 || vertex > 2) {
+            throw new IndexOutOfBoundsException("Vertex " + vertex + " of a triangle");
+        }
+        if (pointStore != null) {
+            int index = vertex == 0 ? p1Index : vertex == 1 ? p2Index : p3Index;
+            return Point.location(pointStore.getX(index), pointStore.getY(index));
+        }
+        return (vertex == 0 ? p1 : vertex == 1 ? p2 : p3).getLocation();
+    }
+
     public Point getP1(Point p1) {
         return p1;
     }
@@ -130,33 +252,100 @@ public class Triangle implements ApplicationContextAware, BeanNameAware, Initial
         System.out.println("The type of triangle: " + this.type + " and the height is: " + this.height);
     }
 
+    @Override
+    public void addShapeChangeListener(ShapeChangeListener listener) {
+        changeSupport.add(listener);
+    }
+
+    @Override
+    public void removeShapeChangeListener(ShapeChangeListener listener) {
+        changeSupport.remove(listener);
+    }
+
+    @Override
+    public boolean isDirty() {
+        if (pointStore != null) {
+            return dirty || pointStore.getVersion() != p1Version;
+        }
+        return dirty || p1 != null && p1.getVersion() != p1Version || p2 != null && p2.getVersion() != p2Version
+                || p3 != null && p3.getVersion() != p3Version;
+    }
+
+    @Override
+    public void markClean() {
+        dirty = false;
+        if (pointStore != null) {
+            // One version for the whole store (check PointStore.getVersion)
+            p1Version = pointStore.getVersion();
+            return;
+        }
+        p1Version = p1 == null ? 0 : p1.getVersion();
+        p2Version = p2 == null ? 0 : p2.getVersion();
+        p3Version = p3 == null ? 0 : p3.getVersion();
+    }
+
+    @Override
+    public void render(ShapeRenderer renderer) {
+        renderer.append("The type of triangle: ").append(this.type).append(" and the height is: ").append(this.height)
+                .newLine();
+    }
+
     public void mentionPoints() {
-        System.out.println("The co-ordinates of the triangle are: \n" + this.p1.getCoordinates() + "\n"
-        + this.p2.getCoordinates() + "\n" + this.p3.getCoordinates());
+        System.out.println("The co-ordinates of the triangle are: \n" + getP1().getCoordinates() + "\n"
+        + getP2().getCoordinates() + "\n" + getP3().getCoordinates());
     }
 
     public void mentionAngles() {
         System.out.println("The angles of the triangle are: ");
-        for(Angle angle : angles) {
-            System.out.println(angle.getValue());
+        for (int angle : angles) {
+            System.out.println(angle);
         }
     }
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
+        this.zeroPoint = BeanHandle.of(applicationContext, "zeroPoint", Point.class);
+        this.pointTwo = BeanHandle.of(applicationContext, "pointTwo", Point.class);
+        this.pointOne = BeanHandle.of(applicationContext, "pointOne", Point.class);
+        this.pointTwoPooled = BeanHandle.of(applicationContext, "pointTwoPooled", Point.class);
     }
 
     @Override
     public void setBeanName(String beanName) {
         this.beanName = beanName;
-        System.out.println("BeanName: " + beanName);
+        LifecycleLog.println("BeanName: " + beanName);
     }
 
     public void createDynamicBeans() {
-        this.p1 = (Point) applicationContext.getBean("zeroPoint");
-        this.p2 = (Point) applicationContext.getBean("pointTwo"); // prototype scope
-        this.p3 = (Point) applicationContext.getBean("pointOne");
+        this.pointStore = null;
+        this.p1 = zeroPoint.get();
+        this.p2 = pointTwo.get(); // prototype scope
+        this.p3 = pointOne.get();
+        dirty = true;
+        changeSupport.fire(this);
+    }
+
+    // Same as createDynamicBeans, but the second point comes from the "pooled" scope - the point taken in the previous
+    // call is released first, so repeated calls reuse it instead of creating a new bean every time
+    public void createPooledDynamicBeans() {
+        releaseDynamicBeans();
+        this.pooledPoint = pointTwoPooled.get(); // pooled scope
+        this.pointStore = null;
+        this.p1 = zeroPoint.get();
+        this.p2 = this.pooledPoint;
+        this.p3 = pointOne.get();
+        dirty = true;
+        changeSupport.fire(this);
+    }
+
+    public void releaseDynamicBeans() {
+        if (pooledPoint != null) {
+            PooledScope pooledScope = (PooledScope) ((ConfigurableApplicationContext) applicationContext)
+                    .getBeanFactory().getRegisteredScope(PooledScope.SCOPE_NAME);
+            pooledScope.release("pointTwoPooled", pooledPoint);
+            pooledPoint = null;
+        }
     }
 
     public void mentionDynamicPoints() {
@@ -168,29 +357,35 @@ public class Triangle implements ApplicationContextAware, BeanNameAware, Initial
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        System.out.println("InitializingBean init method called for Triangle class");
+        LifecycleLog.println("InitializingBean init method called for Triangle class");
+        // A warning, not an error : the templates in the XML files only give the right angle (one angle) and their
+        // triangles are still fine to draw - failing here would stop the whole context from starting
+        if (angles != null && !hasValidAngles()) {
+            System.err.println("Triangle '" + beanName + "' has the angles " + Arrays.toString(angles)
+                    + " - a triangle has three angles adding up to 180 degrees");
+        }
     }
 
     // Runs because we registered a shutdown hook in Main.java
     @Override
     public void destroy() throws Exception {
-        System.out.println("DisposableBean destroy method called for Triangle class for bean: " + beanName);
+        LifecycleLog.println("DisposableBean destroy method called for Triangle class for bean: " + beanName);
     }
 
 //    Custom Init and Destroy methods: (for bean-specific methods)
     public void customInit() {
-        System.out.println("Custom init method called for Triangle class for bean: " + beanName);
+        LifecycleLog.println("Custom init method called for Triangle class for bean: " + beanName);
     }
 
     public void customDestroy() {
-        System.out.println("Custom destroy method called for Triangle class for bean: " + beanName + "\n");
+        LifecycleLog.println("Custom destroy method called for Triangle class for bean: " + beanName + "\n");
     }
 
     public void customGlobalBeanInit() {
-        System.out.println("Custom global init method called for Triangle class for bean: " + beanName);
+        LifecycleLog.println("Custom global init method called for Triangle class for bean: " + beanName);
     }
 
     public void customGlobalBeanDestroy() {
-        System.out.println("Custom global destroy method called for Triangle class for bean: " + beanName + "\n");
+        LifecycleLog.println("Custom global destroy method called for Triangle class for bean: " + beanName + "\n");
     }
 }
@@ -0,0 +1,70 @@
+package org.nizz.springgradle;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Many triangles stored column by column (structure of arrays) : one int array per coordinate instead of one Triangle
+// and three Point objects per triangle - GeometryEngine loops over the arrays (check GeometryEngine class)
+public class TriangleBatch {
+    int[] x1;
+    int[] y1;
+    int[] x2;
+    int[] y2;
+    int[] x3;
+    int[] y3;
+    int size;
+
+    public TriangleBatch() {
+        this(16);
+    }
+
+    public TriangleBatch(int capacity) {
+        x1 = new int[capacity];
+        y1 = new int[capacity];
+        x2 = new int[capacity];
+        y2 = new int[capacity];
+        x3 = new int[capacity];
+        y3 = new int[capacity];
+    }
+
+    public static TriangleBatch of(Collection<Triangle> triangles) {
+        TriangleBatch batch = new TriangleBatch(Math.max(1, triangles.size()));
+        for (Triangle triangle : triangles) {
+            batch.add(triangle);
+        }
+        return batch;
+    }
+
+    public int add(Triangle triangle) {
+        long p1 = triangle.getLocation(0), p2 = triangle.getLocation(1), p3 = triangle.getLocation(2);
+        return add(Point.locationX(p1), Point.locationY(p1), Point.locationX(p2), Point.locationY(p2),
+                Point.locationX(p3), Point.locationY(p3));
+    }
+
+    public int add(int x1, int y1, int x2, int y2, int x3, int y3) {
+        if (size == this.x1.length) {
+            int capacity = Math.max(16, size * 2);
+            this.x1 = Arrays.copyOf(this.x1, capacity);
+            this.y1 = Arrays.copyOf(this.y1, capacity);
+            this.x2 = Arrays.copyOf(this.x2, capacity);
+            this.y2 = Arrays.copyOf(this.y2, capacity);
+            this.x3 = Arrays.copyOf(this.x3, capacity);
+            this.y3 = Arrays.copyOf(this.y3, capacity);
+        }
+        this.x1[size] = x1;
+        this.y1[size] = y1;
+        this.x2[size] = x2;
+        this.y2[size] = y2;
+        this.x3[size] = x3;
+        this.y3[size] = y3;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,228 @@
+package org.nizz.springgradle;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// CollisionDetector against a brute force check of every pair, over random scenes moved frame after frame : several
+// thousand shapes per band so the scene is cut into bands, a few tall shapes spanning many of them, and frames where
+// the shapes jump far enough to leave their bands
+class CollisionDetectorTest {
+    private static final int WIDTH = 2000;
+    private static final int HEIGHT = 6000;
+    private static final int FRAMES = 6;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelDetectorFindsTheSamePairsAsBruteForce() {
+        for (long seed = 1; seed <= 2; seed++) {
+            checkFrames(new Random(seed), new CollisionDetector(pool, 1000));
+        }
+    }
+
+    @Test
+    void sequentialDetectorFindsTheSamePairsAsBruteForce() {
+        checkFrames(new Random(3), new CollisionDetector(pool, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void parallelAndSequentialPairsComeInTheSameOrder() {
+        RandomScene scene = new RandomScene(new Random(4), 7000, 7000);
+        CollisionDetector parallel = new CollisionDetector(pool, 1000);
+        CollisionDetector sequential = new CollisionDetector(pool, Integer.MAX_VALUE);
+        Random moves = new Random(5);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            CollisionDetector.Pairs expected = sequential.detect(scene.circles(), scene.triangles());
+            CollisionDetector.Pairs actual = parallel.detect(scene.circles(), scene.triangles());
+            assertEquals(expected.size(), actual.size(), "frame " + frame);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.first(i), actual.first(i), "frame " + frame + ", pair " + i);
+                assertEquals(expected.second(i), actual.second(i), "frame " + frame + ", pair " + i);
+            }
+            scene.move(moves, frame == 2 ? 1500 : 3);
+        }
+    }
+
+    @Test
+    void shapesOverlapWhenTheyOnlyTouch() {
+        assertTrue(CollisionDetector.circlesOverlap(0, 0, 5, 10, 0, 5));
+        assertFalse(CollisionDetector.circlesOverlap(0, 0, 5, 11, 0, 5));
+        // Center 5 away from the edge (0, 0) - (10, 0)
+        assertTrue(CollisionDetector.circleTriangleOverlap(5, -5, 5, 0, 0, 10, 0, 0, 10));
+        assertFalse(CollisionDetector.circleTriangleOverlap(5, -6, 5, 0, 0, 10, 0, 0, 10));
+        // Sharing the edge (0, 10) - (10, 0)
+        assertTrue(CollisionDetector.trianglesOverlap(0, 0, 10, 0, 0, 10, 10, 0, 0, 10, 10, 10));
+        assertFalse(CollisionDetector.trianglesOverlap(0, 0, 10, 0, 0, 10, 11, 1, 1, 11, 11, 11));
+    }
+
+    @Test
+    void shapeObjectsWithoutGeometryNeverCollide() {
+        Circle first = new Circle(new Point(0, 0));
+        first.setRadius(10);
+        Circle second = new Circle(new Point(15, 0));
+        second.setRadius(10);
+        Triangle unset = new Triangle();
+        Triangle far = new Triangle(new Point(100, 100), new Point(110, 100), new Point(100, 110));
+
+        List<Shape[]> pairs = new CollisionDetector().detect(Arrays.<Shape>asList(first, unset, far, second));
+
+        assertEquals(1, pairs.size());
+        assertTrue(pairs.get(0)[0] == first && pairs.get(0)[1] == second);
+    }
+
+    // Every frame against brute force, the shapes moving a little between frames - except for frame 2, where they
+    // jump by up to a quarter of the scene height
+    private static void checkFrames(Random random, CollisionDetector detector) {
+        // 14000 to 18000 shapes : three or four bands of 4096 shapes
+        RandomScene scene = new RandomScene(random, 7000 + random.nextInt(2000), 7000 + random.nextInt(2000));
+        for (int frame = 0; frame < FRAMES; frame++) {
+            CollisionDetector.Pairs pairs = detector.detect(scene.circles(), scene.triangles());
+            assertEquals(frame > 0, pairs.isIncremental(), "frame " + frame);
+            Set<Long> found = new HashSet<Long>();
+            for (int i = 0; i < pairs.size(); i++) {
+                assertTrue(pairs.first(i) < pairs.second(i), "frame " + frame + ", pair " + i);
+                found.add((long) pairs.first(i) << 32 | pairs.second(i));
+            }
+            assertEquals(pairs.size(), found.size(), "frame " + frame + " has duplicate pairs");
+            Set<Long> expected = scene.bruteForce();
+            assertFalse(expected.isEmpty(), "frame " + frame + " has no overlapping shapes to check");
+            if (!expected.equals(found)) {
+                Set<Long> missing = new HashSet<Long>(expected);
+                missing.removeAll(found);
+                Set<Long> extra = new HashSet<Long>(found);
+                extra.removeAll(expected);
+                throw new AssertionError("frame " + frame + " : " + missing.size() + " pairs missing, " + extra.size()
+                        + " pairs too many, out of " + expected.size());
+            }
+            scene.move(random, frame == 2 ? HEIGHT / 4 : 2);
+        }
+    }
+
+    // Shapes kept as plain int arrays, so that the brute force check does not share any code with the detector but
+    // the exact overlap tests
+    private static class RandomScene {
+        final List<int[]> circles = new ArrayList<int[]>();
+        final List<int[]> triangles = new ArrayList<int[]>();
+
+        RandomScene(Random random, int circleCount, int triangleCount) {
+            for (int i = 0; i < circleCount; i++) {
+                // A few large circles, spanning several bands
+                int radius = i % 500 == 0 ? 300 : random.nextInt(12);
+                circles.add(new int[]{random.nextInt(WIDTH), random.nextInt(HEIGHT), radius});
+            }
+            for (int i = 0; i < triangleCount; i++) {
+                int x = random.nextInt(WIDTH);
+                int y = random.nextInt(HEIGHT);
+                // A few tall, thin triangles, and some flat ones
+                int height = i % 700 == 0 ? 800 : 20;
+                int y2 = i % 97 == 0 ? y : y + random.nextInt(2 * height + 1) - height;
+                int y3 = i % 97 == 0 ? y : y + random.nextInt(21) - 10;
+                triangles.add(new int[]{x, y, x + random.nextInt(21) - 10, y2, x + random.nextInt(21) - 10, y3});
+            }
+        }
+
+        CircleBatch circles() {
+            CircleBatch batch = new CircleBatch();
+            for (int[] c : circles) {
+                batch.add(c[0], c[1], c[2]);
+            }
+            return batch;
+        }
+
+        TriangleBatch triangles() {
+            TriangleBatch batch = new TriangleBatch();
+            for (int[] t : triangles) {
+                batch.add(t[0], t[1], t[2], t[3], t[4], t[5]);
+            }
+            return batch;
+        }
+
+        // Moves every shape by up to distance on x and on y
+        void move(Random random, int distance) {
+            for (int[] c : circles) {
+                c[0] += random.nextInt(2 * distance + 1) - distance;
+                c[1] += random.nextInt(2 * distance + 1) - distance;
+            }
+            for (int[] t : triangles) {
+                int dx = random.nextInt(2 * distance + 1) - distance;
+                int dy = random.nextInt(2 * distance + 1) - distance;
+                for (int k = 0; k < 6; k += 2) {
+                    t[k] += dx;
+                    t[k + 1] += dy;
+                }
+            }
+        }
+
+        // Every pair of shape numbers (circles first, then triangles) whose shapes overlap, as first << 32 | second
+        Set<Long> bruteForce() {
+            int circleCount = circles.size();
+            int count = circleCount + triangles.size();
+            int[] minX = new int[count], minY = new int[count], maxX = new int[count], maxY = new int[count];
+            for (int i = 0; i < circleCount; i++) {
+                int[] c = circles.get(i);
+                minX[i] = c[0] - c[2];
+                maxX[i] = c[0] + c[2];
+                minY[i] = c[1] - c[2];
+                maxY[i] = c[1] + c[2];
+            }
+            for (int i = 0; i < triangles.size(); i++) {
+                int[] t = triangles.get(i);
+                minX[circleCount + i] = Math.min(t[0], Math.min(t[2], t[4]));
+                maxX[circleCount + i] = Math.max(t[0], Math.max(t[2], t[4]));
+                minY[circleCount + i] = Math.min(t[1], Math.min(t[3], t[5]));
+                maxY[circleCount + i] = Math.max(t[1], Math.max(t[3], t[5]));
+            }
+            Set<Long> pairs = new HashSet<Long>();
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    if (minX[b] > maxX[a] || maxX[b] < minX[a] || minY[b] > maxY[a] || maxY[b] < minY[a]) {
+                        continue;
+                    }
+                    if (overlap(a, b)) {
+                        pairs.add((long) a << 32 | b);
+                    }
+                }
+            }
+            return pairs;
+        }
+
+        // a < b : a circle always comes before a triangle
+        private boolean overlap(int a, int b) {
+            int circleCount = circles.size();
+            if (b < circleCount) {
+                int[] c = circles.get(a), d = circles.get(b);
+                return CollisionDetector.circlesOverlap(c[0], c[1], c[2], d[0], d[1], d[2]);
+            }
+            if (a < circleCount) {
+                int[] c = circles.get(a), t = triangles.get(b - circleCount);
+                return CollisionDetector.circleTriangleOverlap(c[0], c[1], c[2], t[0], t[1], t[2], t[3], t[4], t[5]);
+            }
+            int[] s = triangles.get(a - circleCount), t = triangles.get(b - circleCount);
+            return CollisionDetector.trianglesOverlap(s[0], s[1], s[2], s[3], s[4], s[5], t[0], t[1], t[2], t[3], t[4],
+                    t[5]);
+        }
+    }
+}
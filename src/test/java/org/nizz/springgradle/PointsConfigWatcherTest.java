@@ -0,0 +1,158 @@
+package org.nizz.springgradle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.PropertyPlaceholderConfigurer;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A context with one LivePoint bound to ${POINT_X} and ${POINT_Y} of a properties file, the file rewritten while the
+// context runs
+class PointsConfigWatcherTest {
+    private static final long DEBOUNCE_MILLIS = 400;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private GenericApplicationContext context;
+    private PointsConfigWatcher watcher;
+    private LivePoint point;
+
+    @BeforeEach
+    void startContext() throws IOException {
+        file = directory.resolve("points.properties");
+        rewrite("1", "2");
+        context = new GenericApplicationContext();
+        context.registerBeanDefinition("watcher", BeanDefinitionBuilder
+                .rootBeanDefinition(PointsConfigWatcher.class)
+                .addPropertyValue("location", new FileSystemResource(file.toFile()))
+                .addPropertyValue("debounceMillis", DEBOUNCE_MILLIS)
+                .getBeanDefinition());
+        context.registerBeanDefinition("placeholders", BeanDefinitionBuilder
+                .rootBeanDefinition(PropertyPlaceholderConfigurer.class)
+                .addPropertyValue("location", new FileSystemResource(file.toFile()))
+                .getBeanDefinition());
+        context.registerBeanDefinition("livePoint", BeanDefinitionBuilder
+                .rootBeanDefinition(LivePoint.class)
+                .addConstructorArgValue("${POINT_X}")
+                .addConstructorArgValue("${POINT_Y}")
+                .getBeanDefinition());
+        context.refresh();
+        watcher = context.getBean(PointsConfigWatcher.class);
+        point = context.getBean("livePoint", LivePoint.class);
+    }
+
+    @AfterEach
+    void closeContext() {
+        context.close();
+    }
+
+    @Test
+    void pointStartsWithTheValuesOfTheFile() {
+        assertEquals(Point.location(1, 2), point.getLocation());
+        assertEquals(0, watcher.getReloadCount());
+    }
+
+    @Test
+    void burstOfRewritesReloadsOnce() throws Exception {
+        // Written faster than the debounce delay : the watcher waits for the last one
+        for (int i = 1; i <= 5; i++) {
+            rewrite(String.valueOf(10 * i), String.valueOf(-10 * i));
+            Thread.sleep(DEBOUNCE_MILLIS / 8);
+        }
+
+        waitForReloads(1);
+        Thread.sleep(3 * DEBOUNCE_MILLIS);
+
+        assertEquals(1, watcher.getReloadCount());
+        assertEquals(Point.location(50, -50), point.getLocation());
+    }
+
+    @Test
+    void invalidValueLeavesThePointUnchanged() throws Exception {
+        rewrite("7", "not a number");
+
+        assertFalse(watcher.reload());
+        // The watcher sees the same file : it must not move the point either
+        Thread.sleep(3 * DEBOUNCE_MILLIS);
+        assertEquals(Point.location(1, 2), point.getLocation());
+        assertEquals(0, watcher.getReloadCount());
+
+        rewrite("7", "8");
+        waitForReloads(1);
+        assertEquals(Point.location(7, 8), point.getLocation());
+    }
+
+    @Test
+    void readersNeverSeeHalfAMove() throws Exception {
+        final LivePoint live = new LivePoint(0, 0);
+        final AtomicReference<String> mixed = new AtomicReference<String>();
+        final int moves = 2000000;
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // x and y are always equal, except for a reader that would get x and y of two different moves
+                for (int i = 1; i <= moves; i++) {
+                    live.setLocation(i, i);
+                }
+            }
+        });
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long location;
+                do {
+                    location = live.getLocation();
+                    if (Point.locationX(location) != Point.locationY(location)) {
+                        mixed.compareAndSet(null, "getLocation() " + Point.locationX(location) + ", "
+                                + Point.locationY(location));
+                    }
+                    String coordinates = live.getCoordinates();
+                    String[] values = coordinates.substring(1, coordinates.length() - 1).split(", ");
+                    if (!values[0].equals(values[1])) {
+                        mixed.compareAndSet(null, "getCoordinates() " + coordinates);
+                    }
+                } while (Point.locationX(location) != moves);
+            }
+        });
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join(10000);
+
+        assertFalse(reader.isAlive());
+        assertNull(mixed.get());
+        assertEquals(moves, live.getVersion());
+    }
+
+    // Written next to the file and moved over it, the way editors save
+    private void rewrite(String x, String y) throws IOException {
+        Path temporary = Files.createTempFile(directory, "points", ".tmp");
+        Files.write(temporary, ("POINT_X=" + x + "\nPOINT_Y=" + y + "\n").getBytes(StandardCharsets.ISO_8859_1));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void waitForReloads(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (watcher.getReloadCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(watcher.getReloadCount() >= count, "no reload after 10 seconds");
+    }
+}
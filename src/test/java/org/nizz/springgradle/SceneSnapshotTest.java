@@ -0,0 +1,255 @@
+package org.nizz.springgradle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Round trips through SceneSnapshotWriter and MappedSceneSnapshot
+class SceneSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void emptySceneHasNoShapes() throws IOException {
+        Path file = directory.resolve("empty.snapshot");
+        long size = SceneSnapshotWriter.write(file, new Scene());
+
+        MappedSceneSnapshot snapshot = MappedSceneSnapshot.open(file);
+        assertEquals(0, snapshot.circleCount());
+        assertEquals(0, snapshot.triangleCount());
+        assertEquals(size, snapshot.sizeInBytes());
+        assertEquals(size, Files.size(file));
+        assertTrue(snapshot.toShapes().isEmpty());
+        assertEquals(0, snapshot.toScene().size());
+    }
+
+    @Test
+    void emptyShapeListHasNoShapes() throws IOException {
+        Path file = directory.resolve("empty.snapshot");
+        SceneSnapshotWriter.write(file, Collections.<Shape>emptyList());
+
+        MappedSceneSnapshot snapshot = MappedSceneSnapshot.open(file);
+        assertEquals(0, snapshot.circleCount());
+        assertEquals(0, snapshot.triangleCount());
+    }
+
+    @Test
+    void circlesOnly() throws IOException {
+        Scene scene = new Scene();
+        scene.circle(1, 2, 3);
+        scene.circle(-40, 50, 60);
+        scene.circle(Integer.MAX_VALUE, Integer.MIN_VALUE, 0);
+        Path file = directory.resolve("circles.snapshot");
+        SceneSnapshotWriter.write(file, scene);
+
+        MappedSceneSnapshot snapshot = MappedSceneSnapshot.open(file);
+        assertEquals(3, snapshot.circleCount());
+        assertEquals(0, snapshot.triangleCount());
+        assertEquals(-40, snapshot.circleCenterX(1));
+        assertEquals(50, snapshot.circleCenterY(1));
+        assertEquals(60, snapshot.circleRadius(1));
+        assertEquals(Integer.MAX_VALUE, snapshot.circleCenterX(2));
+        assertEquals(Integer.MIN_VALUE, snapshot.circleCenterY(2));
+
+        Scene read = snapshot.toScene();
+        assertEquals(3, read.getCircles().size);
+        assertArrayEquals(Arrays.copyOf(scene.getCircles().centerX, 3), Arrays.copyOf(read.getCircles().centerX, 3));
+        assertArrayEquals(Arrays.copyOf(scene.getCircles().centerY, 3), Arrays.copyOf(read.getCircles().centerY, 3));
+        assertArrayEquals(Arrays.copyOf(scene.getCircles().radius, 3), Arrays.copyOf(read.getCircles().radius, 3));
+    }
+
+    @Test
+    void trianglesWithAndWithoutTypeOrAngles() throws IOException {
+        Triangle plain = new Triangle(new Point(0, 0), new Point(10, 0), new Point(0, 10));
+        Triangle typed = new Triangle(new Point(1, 1), new Point(2, 1), new Point(1, 2));
+        typed.setType("Rectangle");
+        typed.setHeight(7);
+        typed.setAngleValues(new int[]{90, 45, 45});
+        Triangle sameType = new Triangle(new Point(5, 5), new Point(6, 5), new Point(5, 6));
+        sameType.setType("Rectangle");
+        Path file = directory.resolve("triangles.snapshot");
+        SceneSnapshotWriter.write(file, Arrays.<Shape>asList(plain, typed, sameType));
+
+        MappedSceneSnapshot snapshot = MappedSceneSnapshot.open(file);
+        assertEquals(0, snapshot.circleCount());
+        assertEquals(3, snapshot.triangleCount());
+        assertNull(snapshot.triangleType(0));
+        assertNull(snapshot.triangleAngles(0));
+        assertEquals(0, snapshot.triangleAngleCount(0));
+        assertEquals(0, snapshot.triangleHeight(0));
+        assertEquals("Rectangle", snapshot.triangleType(1));
+        assertEquals(7, snapshot.triangleHeight(1));
+        assertArrayEquals(new int[]{90, 45, 45}, snapshot.triangleAngles(1));
+        assertEquals(45, snapshot.triangleAngle(1, 2));
+        assertEquals("Rectangle", snapshot.triangleType(2));
+        assertNull(snapshot.triangleAngles(2));
+
+        List<Shape> shapes = snapshot.toShapes();
+        assertTriangle(plain, shapes.get(0));
+        assertTriangle(typed, shapes.get(1));
+        assertTriangle(sameType, shapes.get(2));
+    }
+
+    @Test
+    void mixedShapesComeBackCirclesFirst() throws IOException {
+        Circle first = circle(1, 1, 1);
+        Triangle triangle = new Triangle(new Point(0, 0), new Point(3, 0), new Point(0, 4));
+        triangle.setType("Scalene");
+        Circle second = circle(2, 2, 2);
+        Path file = directory.resolve("mixed.snapshot");
+        SceneSnapshotWriter.write(file, Arrays.<Shape>asList(first, triangle, second));
+
+        List<Shape> shapes = MappedSceneSnapshot.open(file).toShapes();
+        assertEquals(3, shapes.size());
+        assertCircle(first, shapes.get(0));
+        assertCircle(second, shapes.get(1));
+        assertTriangle(triangle, shapes.get(2));
+    }
+
+    @Test
+    void wrongMagicIsRejected() throws IOException {
+        final Path file = directory.resolve("magic.snapshot");
+        SceneSnapshotWriter.write(file, Arrays.<Shape>asList(circle(1, 2, 3)));
+        overwriteInt(file, 0, 0x12345678);
+
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                MappedSceneSnapshot.open(file);
+            }
+        });
+    }
+
+    @Test
+    void wrongVersionIsRejected() throws IOException {
+        final Path file = directory.resolve("version.snapshot");
+        SceneSnapshotWriter.write(file, Arrays.<Shape>asList(circle(1, 2, 3)));
+        overwriteInt(file, 4, SceneSnapshotWriter.VERSION + 1);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                MappedSceneSnapshot.open(file);
+            }
+        });
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    @Test
+    void fileShorterThanTheHeaderIsRejected() throws IOException {
+        final Path file = directory.resolve("short.snapshot");
+        Files.write(file, new byte[]{0x53, 0x4E, 0x50, 0x31});
+
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                MappedSceneSnapshot.open(file);
+            }
+        });
+    }
+
+    @Test
+    void typeIndexOutOfRangeIsRejected() throws IOException {
+        final Path file = directory.resolve("type.snapshot");
+        Triangle triangle = new Triangle(new Point(0, 0), new Point(3, 0), new Point(0, 4));
+        triangle.setType("Scalene");
+        SceneSnapshotWriter.write(file, Arrays.<Shape>asList(triangle));
+        // The type column is the last of the eight triangle columns
+        SceneSnapshotWriter.Layout layout = new SceneSnapshotWriter.Layout(0, 1, 0, 1);
+        overwriteInt(file, layout.triangles + 7 * layout.triangleColumnBytes, 1);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                MappedSceneSnapshot.open(file);
+            }
+        });
+        assertTrue(e.getMessage().contains("type"));
+    }
+
+    @Test
+    void existingFileIsReplaced() throws IOException {
+        Path file = directory.resolve("replaced.snapshot");
+        List<Shape> many = new ArrayList<Shape>();
+        for (int i = 0; i < 1000; i++) {
+            many.add(circle(i, i, i));
+        }
+        SceneSnapshotWriter.write(file, many);
+        // Still mapped while the file is written again : the old mapping keeps the old values
+        MappedSceneSnapshot old = MappedSceneSnapshot.open(file);
+
+        long size = SceneSnapshotWriter.write(file, Arrays.<Shape>asList(circle(7, 8, 9)));
+
+        assertEquals(size, Files.size(file));
+        MappedSceneSnapshot replaced = MappedSceneSnapshot.open(file);
+        assertEquals(1, replaced.circleCount());
+        assertEquals(9, replaced.circleRadius(0));
+        assertEquals(1000, old.circleCount());
+        assertEquals(999, old.circleRadius(999));
+        // No temporary file is left next to the snapshot
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void circleWithoutCenterIsRejected() {
+        final Path file = directory.resolve("invalid.snapshot");
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                SceneSnapshotWriter.write(file, Arrays.<Shape>asList(new Circle(null)));
+            }
+        });
+        assertTrue(Files.notExists(file));
+    }
+
+    private static Circle circle(int x, int y, int radius) {
+        Circle circle = new Circle(new Point(x, y));
+        circle.setRadius(radius);
+        return circle;
+    }
+
+    private static void overwriteInt(Path file, long position, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(buffer, position);
+        }
+    }
+
+    private static void assertCircle(Circle expected, Shape shape) {
+        Circle actual = (Circle) shape;
+        assertEquals(expected.getCenter().getX(), actual.getCenter().getX());
+        assertEquals(expected.getCenter().getY(), actual.getCenter().getY());
+        assertEquals(expected.getRadius(), actual.getRadius());
+    }
+
+    private static void assertTriangle(Triangle expected, Shape shape) {
+        Triangle actual = (Triangle) shape;
+        assertEquals(expected.getP1().getLocation(), actual.getP1().getLocation());
+        assertEquals(expected.getP2().getLocation(), actual.getP2().getLocation());
+        assertEquals(expected.getP3().getLocation(), actual.getP3().getLocation());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertArrayEquals(expected.getAngleValues(), actual.getAngleValues());
+    }
+}